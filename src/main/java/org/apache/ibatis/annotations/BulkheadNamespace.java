@@ -0,0 +1,58 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The annotation that limits the concurrent executions of the statements of a namespace(e.g. mapper interface).
+ *
+ * <p><br>
+ * <b>How to use:</b>
+ * <pre>
+ * &#064;BulkheadNamespace(maxConcurrentCalls = 4, timeout = 500)
+ * public interface ReportMapper {
+ *   // ...
+ * }
+ * </pre>
+ *
+ * @see org.apache.ibatis.session.Bulkhead
+ * @since 3.5.5
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface BulkheadNamespace {
+
+  /**
+   * Returns the number of statements of the namespace that may run at the same time.
+   *
+   * @return the maximum number of concurrent calls
+   */
+  int maxConcurrentCalls();
+
+  /**
+   * Returns the time in milliseconds a statement waits for a running one to finish before it is rejected.
+   *
+   * @return the timeout, 0 rejects the statement at once
+   */
+  long timeout() default 0;
+
+}
@@ -0,0 +1,87 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.binding;
+
+import java.util.Optional;
+
+import org.apache.ibatis.session.SqlSession;
+
+/**
+ * Base class of the mapper implementations generated by {@link MapperAnnotationProcessor}.
+ * <p>
+ * A generated implementation calls the {@link SqlSession} directly for the methods whose statement is declared by an
+ * annotation, so that the SQL command type is known at compile time, and delegates the other methods (e.g. those
+ * mapped in XML) to a regular {@link MapperProxy}, which is only created on first use.
+ *
+ * @param <T> the mapper interface
+ * @since 3.5.5
+ */
+public abstract class GeneratedMapper<T> {
+
+  /**
+   * The suffix appended to the binary name of a mapper interface, with {@code $} replaced by {@code _}, to get the
+   * name of its generated implementation.
+   */
+  public static final String IMPLEMENTATION_SUFFIX = "_MyBatisImpl";
+
+  protected final SqlSession sqlSession;
+  private final MapperProxyFactory<T> mapperProxyFactory;
+  private T proxy;
+
+  protected GeneratedMapper(SqlSession sqlSession, MapperProxyFactory<T> mapperProxyFactory) {
+    this.sqlSession = sqlSession;
+    this.mapperProxyFactory = mapperProxyFactory;
+  }
+
+  /**
+   * Returns the proxy the methods that are not generated are delegated to.
+   */
+  protected T proxy() {
+    if (proxy == null) {
+      proxy = mapperProxyFactory.newInstance(sqlSession);
+    }
+    return proxy;
+  }
+
+  /**
+   * Fails like {@link MapperMethod} when a select returns null from a method with a primitive return type.
+   */
+  protected static <E> E requireNonNull(E result, String statement, Class<?> returnType) {
+    if (result == null) {
+      throw new BindingException("Mapper method '" + statement
+          + " attempted to return null from a method with a primitive return type (" + returnType + ").");
+    }
+    return result;
+  }
+
+  /**
+   * Wraps the result of a select like {@link MapperMethod} does for a method returning {@link Optional}.
+   */
+  @SuppressWarnings("unchecked")
+  protected static <E> Optional<E> toOptional(Object result) {
+    return result instanceof Optional ? (Optional<E>) result : Optional.ofNullable((E) result);
+  }
+
+  static String getImplementationName(Class<?> mapperInterface) {
+    return mapperInterface.getName().replace('$', '_') + IMPLEMENTATION_SUFFIX;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + " for " + mapperProxyFactory.getMapperInterface().getName();
+  }
+
+}
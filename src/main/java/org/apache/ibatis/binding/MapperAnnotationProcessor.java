@@ -0,0 +1,413 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.binding;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+import org.apache.ibatis.annotations.MapKey;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.mapping.SqlCommandType;
+
+/**
+ * Generates an implementation of each interface annotated with {@link Mapper}, which {@link MapperRegistry} uses
+ * instead of a {@link MapperProxy} when it is found next to the interface.
+ * <p>
+ * A method is implemented with a direct call to the {@link org.apache.ibatis.session.SqlSession} when its statement is
+ * declared by a {@code @Select}, {@code @Insert}, {@code @Update} or {@code @Delete} annotation (or their provider
+ * variants) and its parameter names do not depend on the configuration, i.e. it has no parameter, a single parameter
+ * without {@link Param}, or only parameters with {@link Param}. Every other method, e.g. one mapped in XML or one taking
+ * a {@link org.apache.ibatis.session.ResultHandler}, is delegated to a {@link MapperProxy}, so the generated class
+ * behaves as the proxy would. Generic interfaces and private nested interfaces are skipped.
+ * <p>
+ * The processor is not registered as a service, so that it does not run in every build that has MyBatis on the class
+ * path. It is enabled explicitly, e.g. with {@code javac -processor org.apache.ibatis.binding.MapperAnnotationProcessor}
+ * or the {@code annotationProcessors} setting of the Maven compiler plugin.
+ *
+ * @since 3.5.5
+ */
+@SupportedAnnotationTypes("org.apache.ibatis.annotations.Mapper")
+public class MapperAnnotationProcessor extends AbstractProcessor {
+
+  private static final Map<String, SqlCommandType> STATEMENT_ANNOTATIONS = new LinkedHashMap<>();
+
+  static {
+    STATEMENT_ANNOTATIONS.put("org.apache.ibatis.annotations.Select", SqlCommandType.SELECT);
+    STATEMENT_ANNOTATIONS.put("org.apache.ibatis.annotations.SelectProvider", SqlCommandType.SELECT);
+    STATEMENT_ANNOTATIONS.put("org.apache.ibatis.annotations.Insert", SqlCommandType.INSERT);
+    STATEMENT_ANNOTATIONS.put("org.apache.ibatis.annotations.InsertProvider", SqlCommandType.INSERT);
+    STATEMENT_ANNOTATIONS.put("org.apache.ibatis.annotations.Update", SqlCommandType.UPDATE);
+    STATEMENT_ANNOTATIONS.put("org.apache.ibatis.annotations.UpdateProvider", SqlCommandType.UPDATE);
+    STATEMENT_ANNOTATIONS.put("org.apache.ibatis.annotations.Delete", SqlCommandType.DELETE);
+    STATEMENT_ANNOTATIONS.put("org.apache.ibatis.annotations.DeleteProvider", SqlCommandType.DELETE);
+  }
+
+  private final Set<String> generated = new HashSet<>();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (Element element : roundEnv.getElementsAnnotatedWith(Mapper.class)) {
+      if (element.getKind() == ElementKind.INTERFACE && isImplementable((TypeElement) element)) {
+        generate((TypeElement) element);
+      }
+    }
+    // @Mapper is also used by other tools, so it is not claimed
+    return false;
+  }
+
+  private boolean isImplementable(TypeElement type) {
+    if (!type.getTypeParameters().isEmpty()) {
+      return false;
+    }
+    for (Element e = type; e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement()) {
+      if (e.getModifiers().contains(Modifier.PRIVATE) || !(e.getKind().isClass() || e.getKind().isInterface())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void generate(TypeElement type) {
+    Elements elements = processingEnv.getElementUtils();
+    String binaryName = elements.getBinaryName(type).toString();
+    String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+    String implementationName = binaryName.replace('$', '_') + GeneratedMapper.IMPLEMENTATION_SUFFIX;
+    if (!generated.add(implementationName)) {
+      return;
+    }
+    List<ExecutableElement> methods = getAbstractMethods(type);
+    if (methods == null) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+          "No implementation generated for " + binaryName + ", as it inherits conflicting methods.", type);
+      return;
+    }
+    String simpleName = packageName.isEmpty() ? implementationName : implementationName.substring(packageName.length() + 1);
+    String interfaceName = type.getQualifiedName().toString();
+    StringBuilder source = new StringBuilder();
+    if (!packageName.isEmpty()) {
+      source.append("package ").append(packageName).append(";\n\n");
+    }
+    source.append("/**\n * Implementation of {@link ").append(interfaceName).append("} generated by ")
+        .append(MapperAnnotationProcessor.class.getName()).append(".\n */\n");
+    source.append("public final class ").append(simpleName).append(" extends ").append(GeneratedMapper.class.getName())
+        .append('<').append(interfaceName).append("> implements ").append(interfaceName).append(" {\n\n");
+    source.append("  public ").append(simpleName).append("(org.apache.ibatis.session.SqlSession sqlSession, ")
+        .append(MapperProxyFactory.class.getName()).append('<').append(interfaceName).append("> mapperProxyFactory) {\n")
+        .append("    super(sqlSession, mapperProxyFactory);\n  }\n");
+    for (ExecutableElement method : methods) {
+      ExecutableType methodType = (ExecutableType) processingEnv.getTypeUtils().asMemberOf((DeclaredType) type.asType(), method);
+      source.append('\n');
+      appendMethod(source, binaryName + "." + method.getSimpleName(), method, methodType);
+    }
+    source.append("\n}\n");
+    try (Writer writer = processingEnv.getFiler().createSourceFile(implementationName, type).openWriter()) {
+      writer.write(source.toString());
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+          "Could not generate the implementation of " + binaryName + ". Cause: " + e, type);
+    }
+  }
+
+  private List<ExecutableElement> getAbstractMethods(TypeElement type) {
+    Types types = processingEnv.getTypeUtils();
+    Map<String, List<ExecutableElement>> methodsBySignature = new LinkedHashMap<>();
+    for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+      if (method.getModifiers().contains(Modifier.STATIC) || method.getEnclosingElement().getKind() != ElementKind.INTERFACE) {
+        continue;
+      }
+      StringBuilder signature = new StringBuilder(method.getSimpleName());
+      for (VariableElement parameter : method.getParameters()) {
+        signature.append(',').append(types.erasure(parameter.asType()));
+      }
+      methodsBySignature.computeIfAbsent(signature.toString(), k -> new ArrayList<>()).add(method);
+    }
+    List<ExecutableElement> methods = new ArrayList<>();
+    for (List<ExecutableElement> candidates : methodsBySignature.values()) {
+      // the same method may be inherited from several interfaces, the most specific declaration wins
+      ExecutableElement method = null;
+      for (ExecutableElement candidate : candidates) {
+        if (isDeclaredInSubtypeOfAll(candidate, candidates)) {
+          method = candidate;
+        }
+      }
+      if (method == null) {
+        return null;
+      }
+      if (method.getModifiers().contains(Modifier.ABSTRACT)) {
+        methods.add(method);
+      }
+    }
+    return methods;
+  }
+
+  private boolean isDeclaredInSubtypeOfAll(ExecutableElement method, List<ExecutableElement> others) {
+    Types types = processingEnv.getTypeUtils();
+    TypeMirror declaringType = types.erasure(method.getEnclosingElement().asType());
+    for (ExecutableElement other : others) {
+      if (!types.isSubtype(declaringType, types.erasure(other.getEnclosingElement().asType()))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void appendMethod(StringBuilder source, String statement, ExecutableElement method, ExecutableType methodType) {
+    TypeMirror returnType = methodType.getReturnType();
+    List<? extends VariableElement> parameters = method.getParameters();
+    List<? extends TypeMirror> parameterTypes = methodType.getParameterTypes();
+    String body = createDirectCall(statement, method, methodType);
+    if (body == null) {
+      StringBuilder call = new StringBuilder();
+      call.append("    ").append(returnType.getKind() == TypeKind.VOID ? "" : "return ").append("proxy().")
+          .append(method.getSimpleName()).append('(');
+      for (int i = 0; i < parameters.size(); i++) {
+        call.append(i == 0 ? "" : ", ").append("arg").append(i);
+      }
+      body = call.append(");\n").toString();
+    }
+    source.append("  @Override\n  public ");
+    List<? extends TypeParameterElement> typeParameters = method.getTypeParameters();
+    if (!typeParameters.isEmpty()) {
+      source.append('<');
+      for (int i = 0; i < typeParameters.size(); i++) {
+        TypeParameterElement typeParameter = typeParameters.get(i);
+        source.append(i == 0 ? "" : ", ").append(typeParameter.getSimpleName());
+        List<? extends TypeMirror> bounds = typeParameter.getBounds();
+        for (int j = 0; j < bounds.size(); j++) {
+          if (!"java.lang.Object".equals(bounds.get(j).toString())) {
+            source.append(j == 0 ? " extends " : " & ").append(bounds.get(j));
+          }
+        }
+      }
+      source.append("> ");
+    }
+    source.append(returnType).append(' ').append(method.getSimpleName()).append('(');
+    for (int i = 0; i < parameters.size(); i++) {
+      TypeMirror parameterType = parameterTypes.get(i);
+      source.append(i == 0 ? "" : ", ");
+      if (method.isVarArgs() && i == parameters.size() - 1) {
+        source.append(((ArrayType) parameterType).getComponentType()).append("...");
+      } else {
+        source.append(parameterType);
+      }
+      source.append(" arg").append(i);
+    }
+    source.append(')');
+    List<? extends TypeMirror> thrownTypes = methodType.getThrownTypes();
+    for (int i = 0; i < thrownTypes.size(); i++) {
+      source.append(i == 0 ? " throws " : ", ").append(thrownTypes.get(i));
+    }
+    source.append(" {\n").append(body).append("  }\n");
+  }
+
+  private String createDirectCall(String statement, ExecutableElement method, ExecutableType methodType) {
+    SqlCommandType command = getCommandType(method);
+    if (command == null) {
+      return null;
+    }
+    Types types = processingEnv.getTypeUtils();
+    Elements elements = processingEnv.getElementUtils();
+    TypeMirror rowBoundsType = elements.getTypeElement("org.apache.ibatis.session.RowBounds").asType();
+    TypeMirror resultHandlerType = types.erasure(elements.getTypeElement("org.apache.ibatis.session.ResultHandler").asType());
+    List<? extends VariableElement> parameters = method.getParameters();
+    List<? extends TypeMirror> parameterTypes = methodType.getParameterTypes();
+    String rowBounds = null;
+    List<Integer> namedParameters = new ArrayList<>();
+    int annotatedParameters = 0;
+    for (int i = 0; i < parameters.size(); i++) {
+      TypeMirror parameterType = parameterTypes.get(i);
+      if (types.isAssignable(types.erasure(parameterType), resultHandlerType)) {
+        return null;
+      } else if (types.isAssignable(parameterType, rowBoundsType)) {
+        if (rowBounds != null) {
+          return null;
+        }
+        rowBounds = "arg" + i;
+      } else {
+        namedParameters.add(i);
+        if (parameters.get(i).getAnnotation(Param.class) != null) {
+          annotatedParameters++;
+        }
+      }
+    }
+    StringBuilder body = new StringBuilder();
+    String param;
+    if (namedParameters.isEmpty()) {
+      param = "null";
+    } else if (annotatedParameters == 0 && namedParameters.size() == 1) {
+      param = "arg" + namedParameters.get(0);
+    } else if (annotatedParameters == namedParameters.size()) {
+      // the same entries as ParamNameResolver#getNamedParams()
+      param = "param";
+      body.append("    ").append(MapperMethod.ParamMap.class.getCanonicalName()).append("<Object> param = new ")
+          .append(MapperMethod.ParamMap.class.getCanonicalName()).append("<>();\n");
+      Set<String> names = new HashSet<>();
+      for (int index : namedParameters) {
+        names.add(parameters.get(index).getAnnotation(Param.class).value());
+      }
+      for (int i = 0; i < namedParameters.size(); i++) {
+        int index = namedParameters.get(i);
+        body.append("    param.put(").append(literal(parameters.get(index).getAnnotation(Param.class).value()))
+            .append(", arg").append(index).append(");\n");
+        String genericName = "param" + (i + 1);
+        if (!names.contains(genericName)) {
+          body.append("    param.put(").append(literal(genericName)).append(", arg").append(index).append(");\n");
+        }
+      }
+    } else {
+      // the names of parameters without @Param depend on the configuration
+      return null;
+    }
+    String call = command == SqlCommandType.SELECT
+        ? createSelect(statement, param, rowBounds, method, methodType.getReturnType())
+        : createUpdate(statement, command, param, methodType.getReturnType());
+    return call == null ? null : body.append(call).toString();
+  }
+
+  private String createUpdate(String statement, SqlCommandType command, String param, TypeMirror returnType) {
+    String call = "sqlSession." + command.name().toLowerCase(Locale.ENGLISH) + "(" + literal(statement) + ", " + param + ")";
+    switch (returnType.toString()) {
+      case "void":
+        return "    " + call + ";\n";
+      case "int":
+      case "java.lang.Integer":
+        return "    return " + call + ";\n";
+      case "long":
+      case "java.lang.Long":
+        return "    return (long) " + call + ";\n";
+      case "boolean":
+      case "java.lang.Boolean":
+        return "    return " + call + " > 0;\n";
+      default:
+        // MapperMethod reports the unsupported return type
+        return null;
+    }
+  }
+
+  private String createSelect(String statement, String param, String rowBounds, ExecutableElement method, TypeMirror returnType) {
+    Types types = processingEnv.getTypeUtils();
+    Elements elements = processingEnv.getElementUtils();
+    String arguments = literal(statement) + ", " + param;
+    String pagedArguments = rowBounds == null ? arguments : arguments + ", " + rowBounds;
+    TypeMirror erasure = types.erasure(returnType);
+    String rawType = erasure.toString();
+    if (returnType.getKind() == TypeKind.VOID) {
+      return "    sqlSession.selectOne(" + arguments + ");\n";
+    } else if (returnType.getKind() == TypeKind.ARRAY) {
+      return null;
+    } else if (returnType.getKind().isPrimitive()) {
+      String boxed = types.boxedClass((PrimitiveType) returnType).getQualifiedName().toString();
+      return "    return requireNonNull(sqlSession.<" + boxed + ">selectOne(" + arguments + "), " + literal(statement) + ", "
+          + returnType + ".class);\n";
+    } else if (types.isAssignable(erasure, types.erasure(elements.getTypeElement("java.util.Collection").asType()))) {
+      // other collections are created through the ObjectFactory by MapperMethod
+      if ("java.util.List".equals(rawType) || "java.util.Collection".equals(rawType)) {
+        return "    return sqlSession.selectList(" + pagedArguments + ");\n";
+      }
+      return null;
+    } else if (method.getAnnotation(MapKey.class) != null
+        && types.isAssignable(types.erasure(method.getReturnType()), types.erasure(elements.getTypeElement("java.util.Map").asType()))) {
+      String mapKey = literal(method.getAnnotation(MapKey.class).value());
+      return "    return sqlSession.selectMap(" + arguments + ", " + mapKey + (rowBounds == null ? "" : ", " + rowBounds) + ");\n";
+    } else if ("org.apache.ibatis.cursor.Cursor".equals(rawType)) {
+      return "    return sqlSession.selectCursor(" + pagedArguments + ");\n";
+    } else if ("java.util.Optional".equals(rawType)) {
+      return "    return toOptional(sqlSession.selectOne(" + arguments + "));\n";
+    }
+    return "    return sqlSession.selectOne(" + arguments + ");\n";
+  }
+
+  private SqlCommandType getCommandType(ExecutableElement method) {
+    SqlCommandType command = null;
+    for (AnnotationMirror annotation : method.getAnnotationMirrors()) {
+      SqlCommandType type = STATEMENT_ANNOTATIONS.get(((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString());
+      if (type != null) {
+        if (command != null) {
+          return null;
+        }
+        command = type;
+      }
+    }
+    return command;
+  }
+
+  private static String literal(String value) {
+    StringBuilder literal = new StringBuilder("\"");
+    for (char c : value.toCharArray()) {
+      switch (c) {
+        case '"':
+          literal.append("\\\"");
+          break;
+        case '\\':
+          literal.append("\\\\");
+          break;
+        case '\n':
+          literal.append("\\n");
+          break;
+        case '\r':
+          literal.append("\\r");
+          break;
+        case '\t':
+          literal.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            literal.append(String.format("\\u%04x", (int) c));
+          } else {
+            literal.append(c);
+          }
+      }
+    }
+    return literal.append('"').toString();
+  }
+
+}
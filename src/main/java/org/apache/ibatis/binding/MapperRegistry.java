@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.binding;
 
+import java.lang.reflect.Constructor;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -35,6 +36,7 @@ public class MapperRegistry {
 
   private final Configuration config;
   private final Map<Class<?>, MapperProxyFactory<?>> knownMappers = new HashMap<>();
+  private final Map<Class<?>, Constructor<?>> generatedMappers = new HashMap<>();
 
   public MapperRegistry(Configuration config) {
     this.config = config;
@@ -47,6 +49,10 @@ public class MapperRegistry {
       throw new BindingException("Type " + type + " is not known to the MapperRegistry.");
     }
     try {
+      Constructor<?> generatedMapper = generatedMappers.get(type);
+      if (generatedMapper != null) {
+        return (T) generatedMapper.newInstance(sqlSession, mapperProxyFactory);
+      }
       return mapperProxyFactory.newInstance(sqlSession);//通过mapperProxyFactory创建Mapper代理类
     } catch (Exception e) {
       throw new BindingException("Error getting mapper instance. Cause: " + e, e);
@@ -70,6 +76,10 @@ public class MapperRegistry {
         // mapper parser. If the type is already known, it won't try.
         MapperAnnotationBuilder parser = new MapperAnnotationBuilder(config, type);
         parser.parse();
+        Constructor<?> generatedMapper = findGeneratedMapper(type);
+        if (generatedMapper != null) {
+          generatedMappers.put(type, generatedMapper);
+        }
         loadCompleted = true;
       } finally {
         if (!loadCompleted) {
@@ -79,6 +89,26 @@ public class MapperRegistry {
     }
   }
 
+  /**
+   * Finds the implementation generated by {@link MapperAnnotationProcessor} for a mapper interface.
+   */
+  private Constructor<?> findGeneratedMapper(Class<?> type) {
+    Class<?> implementation;
+    try {
+      implementation = Class.forName(GeneratedMapper.getImplementationName(type), false, type.getClassLoader());
+    } catch (ClassNotFoundException | LinkageError e) {
+      return null;
+    }
+    if (!type.isAssignableFrom(implementation) || !GeneratedMapper.class.isAssignableFrom(implementation)) {
+      return null;
+    }
+    try {
+      return implementation.getConstructor(SqlSession.class, MapperProxyFactory.class);
+    } catch (NoSuchMethodException e) {
+      throw new BindingException("Generated mapper " + implementation.getName() + " has no (SqlSession, MapperProxyFactory) constructor.", e);
+    }
+  }
+
   /**
    * @since 3.2.2
    */
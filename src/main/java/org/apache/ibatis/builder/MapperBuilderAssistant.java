@@ -30,6 +30,7 @@ import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
 import org.apache.ibatis.mapping.CacheBuilder;
 import org.apache.ibatis.mapping.Discriminator;
 import org.apache.ibatis.mapping.MappedStatement;
@@ -45,6 +46,7 @@ import org.apache.ibatis.mapping.SqlSource;
 import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.scripting.LanguageDriver;
+import org.apache.ibatis.session.Bulkhead;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
@@ -142,6 +144,22 @@ public class MapperBuilderAssistant extends BaseBuilder {
     return cache;
   }
 
+  /**
+   * Limits the concurrent executions of the statements of the current namespace.
+   *
+   * @param maxConcurrentCalls
+   *          the number of statements that may run at the same time
+   * @param timeout
+   *          the time in milliseconds a statement waits for a permit, null or 0 rejects it at once
+   * @return the bulkhead
+   * @since 3.5.5
+   */
+  public Bulkhead useNewBulkhead(int maxConcurrentCalls, Long timeout) {
+    Bulkhead bulkhead = new Bulkhead(currentNamespace, maxConcurrentCalls, valueOrDefault(timeout, 0L));
+    configuration.addBulkhead(bulkhead);
+    return bulkhead;
+  }
+
   public ParameterMap addParameterMap(String id, Class<?> parameterClass, List<ParameterMapping> parameterMappings) {
     id = applyCurrentNamespace(id, false);
     ParameterMap parameterMap = new ParameterMap.Builder(configuration, id, parameterClass, parameterMappings).build();
@@ -261,7 +279,8 @@ public class MapperBuilderAssistant extends BaseBuilder {
       String keyColumn,
       String databaseId,
       LanguageDriver lang,
-      String resultSets) {
+      String resultSets,
+      Boolean useReplica) {
 
     if (unresolvedCacheRef) {
       throw new IncompleteElementException("Cache-ref not yet resolved");
@@ -286,7 +305,11 @@ public class MapperBuilderAssistant extends BaseBuilder {
         .resultSetType(resultSetType)
         .flushCacheRequired(valueOrDefault(flushCache, !isSelect))
         .useCache(valueOrDefault(useCache, isSelect))
-        .cache(currentCache);
+        .useReplica(valueOrDefault(useReplica, isSelect && !id.endsWith(SelectKeyGenerator.SELECT_KEY_SUFFIX)))
+        .useReplicaInTransaction(Boolean.TRUE.equals(useReplica))
+        .cache(currentCache)
+        // the bulkhead may have been declared by the XML mapper or by the annotations of the namespace
+        .bulkhead(configuration.hasBulkhead(currentNamespace) ? configuration.getBulkhead(currentNamespace) : null);
 
     ParameterMap statementParameterMap = getStatementParameterMap(parameterMap, parameterType, id);
     if (statementParameterMap != null) {
@@ -368,6 +391,26 @@ public class MapperBuilderAssistant extends BaseBuilder {
       String resultSet,
       String foreignColumn,
       boolean lazy) {
+    return buildResultMapping(resultType, property, column, javaType, jdbcType, nestedSelect, nestedResultMap, notNullColumn,
+        columnPrefix, typeHandler, flags, resultSet, foreignColumn, lazy, 0);
+  }
+
+  public ResultMapping buildResultMapping(
+      Class<?> resultType,
+      String property,
+      String column,
+      Class<?> javaType,
+      JdbcType jdbcType,
+      String nestedSelect,
+      String nestedResultMap,
+      String notNullColumn,
+      String columnPrefix,
+      Class<? extends TypeHandler<?>> typeHandler,
+      List<ResultFlag> flags,
+      String resultSet,
+      String foreignColumn,
+      boolean lazy,
+      int batchSize) {
     Class<?> javaTypeClass = resolveResultJavaType(resultType, property, javaType);//获取javaType
     TypeHandler<?> typeHandlerInstance = resolveTypeHandler(javaTypeClass, typeHandler);
     List<ResultMapping> composites;
@@ -388,6 +431,7 @@ public class MapperBuilderAssistant extends BaseBuilder {
         .columnPrefix(columnPrefix)
         .foreignColumn(foreignColumn)
         .lazy(lazy)
+        .batchSize(batchSize)
         .build();
   }
 
@@ -484,4 +528,16 @@ public class MapperBuilderAssistant extends BaseBuilder {
       keyColumn, databaseId, lang, null);
   }
 
+  public MappedStatement addMappedStatement(String id, SqlSource sqlSource, StatementType statementType,
+      SqlCommandType sqlCommandType, Integer fetchSize, Integer timeout, String parameterMap, Class<?> parameterType,
+      String resultMap, Class<?> resultType, ResultSetType resultSetType, boolean flushCache, boolean useCache,
+      boolean resultOrdered, KeyGenerator keyGenerator, String keyProperty, String keyColumn, String databaseId,
+      LanguageDriver lang, String resultSets) {
+    return addMappedStatement(
+      id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
+      parameterMap, parameterType, resultMap, resultType, resultSetType,
+      flushCache, useCache, resultOrdered, keyGenerator, keyProperty,
+      keyColumn, databaseId, lang, resultSets, null);
+  }
+
 }
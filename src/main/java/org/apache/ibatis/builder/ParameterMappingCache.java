@@ -0,0 +1,145 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.scripting.xmltags.ForEachSqlNode;
+
+/**
+ * A bounded cache of the parameter mappings built from the {@code #{...}} tokens of dynamic SQL.
+ * <p>
+ * A mapping is cached per token content and the type its property was resolved against: the parameter type, or the
+ * runtime type of an additional parameter (e.g. a {@code <foreach>} item) when the property refers to one. The index
+ * that {@code <foreach>} appends to the name of its items is not part of the key, as the tokens of all iterations map
+ * the same way, see {@link #getKey(String)}. Each {@link org.apache.ibatis.session.Configuration} owns one, as the
+ * mappings hold its type handlers. Once the cache is full, new mappings are still built but on every use.
+ *
+ * @since 3.5.5
+ */
+public final class ParameterMappingCache {
+
+  public static final int DEFAULT_MAX_SIZE = 4096;
+
+  // e.g. "__frch_item_12" in "__frch_item_12.name, jdbcType=VARCHAR", the item name may contain '_' and digits itself
+  private static final Pattern FOREACH_ITEM = Pattern.compile(
+      "^\\s*" + Pattern.quote(ForEachSqlNode.ITEM_PREFIX) + "\\w*?(_\\d+)(?!\\w)");
+
+  private final Map<String, Map<String, String>> expressions = new ConcurrentHashMap<>();
+  private final Map<Key, ParameterMapping> mappings = new ConcurrentHashMap<>();
+  private final int maxSize;
+
+  private static final class Key {
+    private final String content;
+    private final Class<?> type;
+    private final boolean additionalParameter;
+
+    private Key(String content, Class<?> type, boolean additionalParameter) {
+      this.content = content;
+      this.type = type;
+      this.additionalParameter = additionalParameter;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return additionalParameter == key.additionalParameter && type == key.type && content.equals(key.content);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(content, type, additionalParameter);
+    }
+  }
+
+  public ParameterMappingCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  public ParameterMappingCache(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns the key a token is cached by, which is the token itself unless it refers to a {@code <foreach>} item.
+   */
+  static String getKey(String content) {
+    if (!content.contains(ForEachSqlNode.ITEM_PREFIX)) {
+      return content;
+    }
+    Matcher matcher = FOREACH_ITEM.matcher(content);
+    if (!matcher.find()) {
+      return content;
+    }
+    return content.substring(0, matcher.start(1)) + '_' + content.substring(matcher.end(1));
+  }
+
+  /**
+   * Replaces the {@code <foreach>} item a property of a cached mapping refers to by the one of another iteration.
+   *
+   * @param property the property of the cached mapping, e.g. {@code __frch_item_0.name}
+   * @param content the token of the other iteration, e.g. {@code __frch_item_5.name}
+   * @return the property of the other iteration
+   */
+  static String replaceItem(String property, String content) {
+    Matcher propertyMatcher = FOREACH_ITEM.matcher(property);
+    Matcher contentMatcher = FOREACH_ITEM.matcher(content);
+    if (!propertyMatcher.find() || !contentMatcher.find()) {
+      return property;
+    }
+    return property.substring(0, propertyMatcher.start(1)) + contentMatcher.group(1) + property.substring(propertyMatcher.end(1));
+  }
+
+  Map<String, String> getExpression(String content) {
+    return expressions.get(content);
+  }
+
+  void putExpression(String content, Map<String, String> expression) {
+    if (expressions.size() < maxSize) {
+      expressions.putIfAbsent(content, expression);
+    }
+  }
+
+  ParameterMapping get(String content, Class<?> type, boolean additionalParameter) {
+    return mappings.get(new Key(content, type, additionalParameter));
+  }
+
+  void put(String content, Class<?> type, boolean additionalParameter, ParameterMapping parameterMapping) {
+    if (mappings.size() < maxSize) {
+      mappings.putIfAbsent(new Key(content, type, additionalParameter), parameterMapping);
+    }
+  }
+
+  public int getSize() {
+    return mappings.size();
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+}
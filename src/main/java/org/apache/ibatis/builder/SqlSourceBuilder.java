@@ -16,6 +16,7 @@
 package org.apache.ibatis.builder;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -40,22 +41,39 @@ public class SqlSourceBuilder extends BaseBuilder {
   }
 
   public SqlSource parse(String originalSql, Class<?> parameterType, Map<String, Object> additionalParameters) {
-    ParameterMappingTokenHandler handler = new ParameterMappingTokenHandler(configuration, parameterType, additionalParameters);
+    ParameterMappingTokenHandler handler = new ParameterMappingTokenHandler(configuration, parameterType, additionalParameters, null);
     GenericTokenParser parser = new GenericTokenParser("#{", "}", handler);
     String sql = parser.parse(originalSql);//解析原始SQL语句获取最终的SQL语句（将#{}转化为？）
     return new StaticSqlSource(configuration, sql, handler.getParameterMappings());
   }
 
+  /**
+   * Same as {@link #parse(String, Class, Map)}, but reuses the parameter mappings of the given cache, as this is meant
+   * for SQL built on every call.
+   *
+   * @since 3.5.5
+   */
+  public SqlSource parse(String originalSql, Class<?> parameterType, Map<String, Object> additionalParameters,
+      ParameterMappingCache cache) {
+    ParameterMappingTokenHandler handler = new ParameterMappingTokenHandler(configuration, parameterType, additionalParameters, cache);
+    GenericTokenParser parser = new GenericTokenParser("#{", "}", handler);
+    String sql = parser.parse(originalSql);
+    return new StaticSqlSource(configuration, sql, handler.getParameterMappings());
+  }
+
   private static class ParameterMappingTokenHandler extends BaseBuilder implements TokenHandler {
 
     private List<ParameterMapping> parameterMappings = new ArrayList<>();
     private Class<?> parameterType;
     private MetaObject metaParameters;
+    private ParameterMappingCache cache;
 
-    public ParameterMappingTokenHandler(Configuration configuration, Class<?> parameterType, Map<String, Object> additionalParameters) {
+    public ParameterMappingTokenHandler(Configuration configuration, Class<?> parameterType, Map<String, Object> additionalParameters,
+        ParameterMappingCache cache) {
       super(configuration);
       this.parameterType = parameterType;
       this.metaParameters = configuration.newMetaObject(additionalParameters);
+      this.cache = cache;
     }
 
     public List<ParameterMapping> getParameterMappings() {
@@ -69,11 +87,40 @@ public class SqlSourceBuilder extends BaseBuilder {
     }
 
     private ParameterMapping buildParameterMapping(String content) {
-      Map<String, String> propertiesMap = parseParameterMapping(content);
+      String key = cache == null ? null : ParameterMappingCache.getKey(content);
+      Map<String, String> propertiesMap = parseParameterMapping(content, key);
+      String property = propertiesMap.get("property");
+      boolean additionalParameter = metaParameters.hasGetter(property);
+      // the rest of the mapping only depends on the type the property is resolved against
+      Class<?> type = additionalParameter ? metaParameters.getGetterType(property) : parameterType;
+      if (cache == null) {
+        return buildParameterMapping(content, propertiesMap, type, additionalParameter);
+      }
+      ParameterMapping parameterMapping = cache.get(key, type, additionalParameter);
+      if (parameterMapping == null) {
+        parameterMapping = buildParameterMapping(content, propertiesMap, type, additionalParameter);
+        cache.put(key, type, additionalParameter, parameterMapping);
+      } else if (!property.equals(parameterMapping.getProperty())) {
+        // cached for another iteration of the same <foreach>
+        parameterMapping = new ParameterMapping.Builder(configuration, property, parameterMapping.getTypeHandler())
+            .mode(parameterMapping.getMode())
+            .javaType(parameterMapping.getJavaType())
+            .jdbcType(parameterMapping.getJdbcType())
+            .numericScale(parameterMapping.getNumericScale())
+            .resultMapId(parameterMapping.getResultMapId())
+            .jdbcTypeName(parameterMapping.getJdbcTypeName())
+            .expression(parameterMapping.getExpression())
+            .build();
+      }
+      return parameterMapping;
+    }
+
+    private ParameterMapping buildParameterMapping(String content, Map<String, String> propertiesMap, Class<?> type,
+        boolean additionalParameter) {
       String property = propertiesMap.get("property");
       Class<?> propertyType;
-      if (metaParameters.hasGetter(property)) { // issue #448 get type from additional params
-        propertyType = metaParameters.getGetterType(property);
+      if (additionalParameter) { // issue #448 get type from additional params
+        propertyType = type;
       } else if (typeHandlerRegistry.hasTypeHandler(parameterType)) {
         propertyType = parameterType;
       } else if (JdbcType.CURSOR.name().equals(propertiesMap.get("jdbcType"))) {
@@ -123,7 +170,25 @@ public class SqlSourceBuilder extends BaseBuilder {
       return builder.build();
     }
 
-    private Map<String, String> parseParameterMapping(String content) {
+    private Map<String, String> parseParameterMapping(String content, String key) {
+      if (cache == null) {
+        return newParameterExpression(content);
+      }
+      Map<String, String> expression = cache.getExpression(key);
+      if (expression == null) {
+        expression = newParameterExpression(content);
+        cache.putExpression(key, expression);
+      } else if (!key.equals(content)) {
+        String property = ParameterMappingCache.replaceItem(expression.get("property"), content);
+        if (!property.equals(expression.get("property"))) {
+          expression = new HashMap<>(expression);
+          expression.put("property", property);
+        }
+      }
+      return expression;
+    }
+
+    private Map<String, String> newParameterExpression(String content) {
       try {
         return new ParameterExpression(content);
       } catch (BuilderException ex) {
@@ -36,6 +36,7 @@ import java.util.Properties;
 import java.util.Set;
 
 import org.apache.ibatis.annotations.Arg;
+import org.apache.ibatis.annotations.BulkheadNamespace;
 import org.apache.ibatis.annotations.CacheNamespace;
 import org.apache.ibatis.annotations.CacheNamespaceRef;
 import org.apache.ibatis.annotations.Case;
@@ -130,6 +131,7 @@ public class MapperAnnotationBuilder {
       assistant.setCurrentNamespace(type.getName());
       parseCache();
       parseCacheRef();
+      parseBulkhead();
       Method[] methods = type.getMethods();//获取Mapper接口中的所有方法
       for (Method method : methods) {
         try {
@@ -193,6 +195,13 @@ public class MapperAnnotationBuilder {
     }
   }
 
+  private void parseBulkhead() {
+    BulkheadNamespace bulkheadDomain = type.getAnnotation(BulkheadNamespace.class);
+    if (bulkheadDomain != null) {
+      assistant.useNewBulkhead(bulkheadDomain.maxConcurrentCalls(), bulkheadDomain.timeout());
+    }
+  }
+
   private Properties convertToProperties(Property[] properties) {
     if (properties.length == 0) {
       return null;
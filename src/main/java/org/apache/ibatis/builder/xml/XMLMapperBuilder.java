@@ -114,6 +114,7 @@ public class XMLMapperBuilder extends BaseBuilder {
       builderAssistant.setCurrentNamespace(namespace);//设置builderAssistant的namespace
       cacheRefElement(context.evalNode("cache-ref"));//解析缓存引用
       cacheElement(context.evalNode("cache"));//解析缓存
+      bulkheadElement(context.evalNode("bulkhead"));//解析并发限制
       parameterMapElement(context.evalNodes("/mapper/parameterMap"));//解析parameterMap（似乎已被弃用）
       resultMapElements(context.evalNodes("/mapper/resultMap"));//解析resultMap
       sqlElement(context.evalNodes("/mapper/sql"));//解析SQL标签
@@ -213,6 +214,17 @@ public class XMLMapperBuilder extends BaseBuilder {
     }
   }
 
+  private void bulkheadElement(XNode context) {
+    if (context != null) {
+      Integer maxConcurrentCalls = context.getIntAttribute("maxConcurrentCalls");
+      if (maxConcurrentCalls == null) {
+        throw new BuilderException("The bulkhead element requires a maxConcurrentCalls attribute.");
+      }
+      Long timeout = context.getLongAttribute("timeout");
+      builderAssistant.useNewBulkhead(maxConcurrentCalls, timeout);
+    }
+  }
+
   private void parameterMapElement(List<XNode> list) {
     for (XNode parameterMapNode : list) {
       String id = parameterMapNode.getStringAttribute("id");
@@ -386,10 +398,11 @@ public class XMLMapperBuilder extends BaseBuilder {
     String resultSet = context.getStringAttribute("resultSet");
     String foreignColumn = context.getStringAttribute("foreignColumn");
     boolean lazy = "lazy".equals(context.getStringAttribute("fetchType", configuration.isLazyLoadingEnabled() ? "lazy" : "eager"));//对于ResultMap中可以通过fetchType的设置指定某个关联查询（select属性）进行懒加载，且该属性可以覆盖Configuration中的懒加载属性
+    int batchSize = context.getIntAttribute("batchSize", 0);//批量加载嵌套查询时每次查询的外键数量，0表示逐行查询
     Class<?> javaTypeClass = resolveClass(javaType);//同上
     Class<? extends TypeHandler<?>> typeHandlerClass = resolveClass(typeHandler);//获取TypeHandler
     JdbcType jdbcTypeEnum = resolveJdbcType(jdbcType);//将String转枚举
-    return builderAssistant.buildResultMapping(resultType, property, column, javaTypeClass, jdbcTypeEnum, nestedSelect, nestedResultMap, notNullColumn, columnPrefix, typeHandlerClass, flags, resultSet, foreignColumn, lazy);
+    return builderAssistant.buildResultMapping(resultType, property, column, javaTypeClass, jdbcTypeEnum, nestedSelect, nestedResultMap, notNullColumn, columnPrefix, typeHandlerClass, flags, resultSet, foreignColumn, lazy, batchSize);
   }
 
   private String processNestedResultMappings(XNode context, List<ResultMapping> resultMappings, Class<?> enclosingType) {
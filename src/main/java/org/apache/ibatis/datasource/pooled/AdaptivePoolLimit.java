@@ -0,0 +1,105 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * An additive increase / multiplicative decrease limit of the active connections of a pool.
+ * <p>
+ * The limit grows by one connection whenever a borrower had to wait while every connection allowed by the limit was in
+ * use, and it shrinks by one when less than half of them are in use, but not below the idle floor: a quiet period is
+ * no sign of trouble, and a limit that has decayed to the minimum would make the next burst wait while the limit grows
+ * back one connection at a time. The time a connection is checked out is taken
+ * as the response time of the database: when it exceeds twice the long term average, the database is assumed to be
+ * overloaded and the limit is cut by 10 percent, down to the minimum, so that fewer statements run concurrently until
+ * it recovers. The limit
+ * is cut at most once per window of returns as large as the limit, as the connections checked out before a cut do not
+ * reflect it.
+ * <p>
+ * Instances are not thread safe, they are guarded by the lock of the {@link PoolState}.
+ *
+ * @since 3.5.5
+ */
+final class AdaptivePoolLimit {
+
+  private static final double OVERLOAD_TOLERANCE = 2.0;
+  private static final double BACKOFF_RATIO = 0.9;
+  private static final double BASELINE_SMOOTHING = 0.05;
+
+  private final int minimum;
+  private final int idleFloor;
+  private final int maximum;
+  private double limit;
+  private double baselineUsageNanos;
+  private int releasesSinceBackoff;
+
+  /**
+   * @param minimum
+   *          the lowest limit an overloaded database can cut the limit to
+   * @param idleFloor
+   *          the lowest limit the limit shrinks to while most connections are unused
+   * @param maximum
+   *          the highest limit
+   */
+  AdaptivePoolLimit(int minimum, int idleFloor, int maximum) {
+    this.maximum = Math.max(1, maximum);
+    this.minimum = Math.max(1, Math.min(minimum, this.maximum));
+    this.idleFloor = Math.max(this.minimum, Math.min(idleFloor, this.maximum));
+    this.limit = this.maximum;
+  }
+
+  int getLimit() {
+    return (int) limit;
+  }
+
+  /**
+   * Records a checkout.
+   *
+   * @param waitNanos
+   *          the time the borrower waited for a connection to be returned
+   * @param activeCount
+   *          the number of active connections, including the checked out one
+   */
+  void onAcquire(long waitNanos, int activeCount) {
+    if (waitNanos > 0 && activeCount >= getLimit()) {
+      limit = Math.min(maximum, limit + 1);
+    }
+  }
+
+  /**
+   * Records the return of a connection.
+   *
+   * @param usageNanos
+   *          the time the connection was checked out
+   * @param activeCount
+   *          the number of connections still active
+   */
+  void onRelease(long usageNanos, int activeCount) {
+    releasesSinceBackoff++;
+    if (baselineUsageNanos == 0) {
+      baselineUsageNanos = usageNanos;
+    } else if (usageNanos > baselineUsageNanos * OVERLOAD_TOLERANCE) {
+      if (releasesSinceBackoff >= getLimit()) {
+        limit = Math.max(minimum, limit * BACKOFF_RATIO);
+        releasesSinceBackoff = 0;
+      }
+    } else if ((activeCount + 1) * 2 < limit && limit - 1 >= idleFloor) {
+      limit--;
+    }
+    // a lasting change of the response time becomes the new normal
+    baselineUsageNanos += (usageNanos - baselineUsageNanos) * BASELINE_SMOOTHING;
+  }
+
+}
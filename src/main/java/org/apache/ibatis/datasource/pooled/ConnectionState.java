@@ -0,0 +1,194 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * Tracks the session state of a physical connection so that the pool makes as few JDBC calls as possible.
+ * <p>
+ * The values set through the pooled connection are cached and only sent to the driver before the next statement is
+ * created (or at once while the physical connection is not in auto-commit mode, as changing e.g. the auto-commit mode
+ * may end the transaction). When the connection returns to the pool, the values are reset to the ones the connection
+ * was opened with, again without a call unless the next user needs different ones.
+ * <p>
+ * Commits and rollbacks are always sent to the driver, and a connection that returns to the pool is rolled back unless
+ * it is in auto-commit mode: statements may be executed without the pooled connection noticing, e.g. through a
+ * statement prepared before the last commit or through the unwrapped connection.
+ * <p>
+ * Changes made by other means, e.g. by executing {@code SET AUTOCOMMIT} statements, are not tracked.
+ */
+final class ConnectionState {
+
+  enum Property {
+    AUTO_COMMIT {
+      @Override
+      Object read(Connection connection) throws SQLException {
+        return connection.getAutoCommit();
+      }
+
+      @Override
+      void write(Connection connection, Object value) throws SQLException {
+        connection.setAutoCommit((Boolean) value);
+      }
+    },
+    TRANSACTION_ISOLATION {
+      @Override
+      Object read(Connection connection) throws SQLException {
+        return connection.getTransactionIsolation();
+      }
+
+      @Override
+      void write(Connection connection, Object value) throws SQLException {
+        connection.setTransactionIsolation((Integer) value);
+      }
+    },
+    READ_ONLY {
+      @Override
+      Object read(Connection connection) throws SQLException {
+        return connection.isReadOnly();
+      }
+
+      @Override
+      void write(Connection connection, Object value) throws SQLException {
+        connection.setReadOnly((Boolean) value);
+      }
+    },
+    CATALOG {
+      @Override
+      Object read(Connection connection) throws SQLException {
+        return connection.getCatalog();
+      }
+
+      @Override
+      void write(Connection connection, Object value) throws SQLException {
+        connection.setCatalog((String) value);
+      }
+    },
+    SCHEMA {
+      @Override
+      Object read(Connection connection) throws SQLException {
+        return connection.getSchema();
+      }
+
+      @Override
+      void write(Connection connection, Object value) throws SQLException {
+        connection.setSchema((String) value);
+      }
+    };
+
+    abstract Object read(Connection connection) throws SQLException;
+
+    abstract void write(Connection connection, Object value) throws SQLException;
+
+  }
+
+  private static final Object UNKNOWN = new Object();
+  private static final Property[] PROPERTIES = Property.values();
+
+  private final Connection connection;
+  private final Object[] original = new Object[PROPERTIES.length];
+  private final Object[] actual = new Object[PROPERTIES.length];
+  private final Object[] desired = new Object[PROPERTIES.length];
+  private boolean pending;
+
+  ConnectionState(Connection connection) {
+    this.connection = connection;
+    for (int i = 0; i < PROPERTIES.length; i++) {
+      original[i] = UNKNOWN;
+      actual[i] = UNKNOWN;
+      desired[i] = UNKNOWN;
+    }
+  }
+
+  Object get(Property property) throws SQLException {
+    int i = property.ordinal();
+    if (desired[i] == UNKNOWN) {
+      Object value = property.read(connection);
+      original[i] = value;
+      actual[i] = value;
+      desired[i] = value;
+    }
+    return desired[i];
+  }
+
+  void set(Property property, Object value) throws SQLException {
+    int i = property.ordinal();
+    if (original[i] == UNKNOWN) {
+      // the value to restore when the connection returns to the pool
+      Object current = property.read(connection);
+      original[i] = current;
+      actual[i] = current;
+    }
+    desired[i] = value;
+    pending |= !Objects.equals(value, actual[i]);
+    if (!Boolean.TRUE.equals(actual[Property.AUTO_COMMIT.ordinal()])) {
+      // a transaction may be in progress, which the new value may affect right away
+      apply();
+    }
+  }
+
+  /**
+   * Sends the values that have been set since the last call to the driver.
+   */
+  void apply() throws SQLException {
+    if (!pending) {
+      return;
+    }
+    for (int i = 0; i < PROPERTIES.length; i++) {
+      if (desired[i] != UNKNOWN && !Objects.equals(desired[i], actual[i])) {
+        PROPERTIES[i].write(connection, desired[i]);
+        actual[i] = desired[i];
+      }
+    }
+    pending = false;
+  }
+
+  void commit() throws SQLException {
+    apply();
+    connection.commit();
+  }
+
+  void rollback() throws SQLException {
+    apply();
+    connection.rollback();
+  }
+
+  /**
+   * Ends the current transaction and restores the original values, the latter being sent to the driver only when they
+   * are needed by the next user.
+   */
+  void reset() throws SQLException {
+    // the actual mode is read from the driver, it may have been changed through the unwrapped connection
+    boolean autoCommit = connection.getAutoCommit();
+    if (!autoCommit) {
+      connection.rollback();
+    }
+    int autoCommitIndex = Property.AUTO_COMMIT.ordinal();
+    if (original[autoCommitIndex] != UNKNOWN) {
+      actual[autoCommitIndex] = autoCommit;
+    }
+    for (int i = 0; i < PROPERTIES.length; i++) {
+      if (original[i] != UNKNOWN) {
+        desired[i] = original[i];
+        pending |= !Objects.equals(desired[i], actual[i]);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,202 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.beans.ConstructorProperties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations in nanoseconds.
+ * <p>
+ * Like an HDR histogram, values are counted in log-linear buckets: every power of two is divided into
+ * {@value #SUB_BUCKET_COUNT} sub-buckets, so that a percentile is reported with a relative error of at most 12.5% over
+ * the whole range of {@code long} values while recording is a single atomic increment.
+ *
+ * @since 3.5.5
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder totalCount = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  /**
+   * Records a duration.
+   *
+   * @param nanos the duration in nanoseconds, negative values are recorded as zero
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    counts.incrementAndGet(indexOf(value));
+    totalCount.increment();
+    totalNanos.add(value);
+    if (value > maxNanos.get()) {
+      maxNanos.accumulateAndGet(value, Math::max);
+    }
+  }
+
+  public long getCount() {
+    return totalCount.sum();
+  }
+
+  public long getMaxNanos() {
+    return maxNanos.get();
+  }
+
+  public long getMeanNanos() {
+    long count = totalCount.sum();
+    return count == 0 ? 0 : totalNanos.sum() / count;
+  }
+
+  /**
+   * Returns the value below which the given percentage of the recorded durations fall.
+   *
+   * @param percentile a percentile between 0 and 100
+   * @return the upper bound of the bucket holding the percentile (never more than the maximum), or 0 when nothing has
+   *         been recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    long count = totalCount.sum();
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(upperBoundOf(i), getMaxNanos());
+      }
+    }
+    // values recorded concurrently are not counted yet
+    return getMaxNanos();
+  }
+
+  /**
+   * Clears all recorded durations. Durations recorded concurrently may be partially kept.
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts.set(i, 0);
+    }
+    totalCount.reset();
+    totalNanos.reset();
+    maxNanos.set(0);
+  }
+
+  /**
+   * Takes a summary of the recorded durations in milliseconds.
+   *
+   * @return the summary
+   */
+  public Summary getSummary() {
+    return new Summary(getCount(), toMillis(getMeanNanos()), toMillis(getValueAtPercentile(50)),
+        toMillis(getValueAtPercentile(90)), toMillis(getValueAtPercentile(99)), toMillis(getValueAtPercentile(99.9)),
+        toMillis(getMaxNanos()));
+  }
+
+  private static double toMillis(long nanos) {
+    return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  static int indexOf(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  static long upperBoundOf(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+    long subBucket = index % SUB_BUCKET_COUNT;
+    long lowerBound = (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+    long width = 1L << (exponent - SUB_BUCKET_BITS);
+    return lowerBound + width - 1 < 0 ? Long.MAX_VALUE : lowerBound + width - 1;
+  }
+
+  /**
+   * An immutable summary of a histogram, exposed as composite data through JMX.
+   */
+  public static final class Summary {
+
+    private final long count;
+    private final double mean;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+    private final double p999;
+    private final double max;
+
+    @ConstructorProperties({"count", "mean", "p50", "p90", "p99", "p999", "max"})
+    public Summary(long count, double mean, double p50, double p90, double p99, double p999, double max) {
+      this.count = count;
+      this.mean = mean;
+      this.p50 = p50;
+      this.p90 = p90;
+      this.p99 = p99;
+      this.p999 = p999;
+      this.max = max;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public double getMean() {
+      return mean;
+    }
+
+    public double getP50() {
+      return p50;
+    }
+
+    public double getP90() {
+      return p90;
+    }
+
+    public double getP99() {
+      return p99;
+    }
+
+    public double getP999() {
+      return p999;
+    }
+
+    public double getMax() {
+      return max;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("count=%d mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms p99.9=%.3fms max=%.3fms",
+          count, mean, p50, p90, p99, p999, max);
+    }
+  }
+
+}
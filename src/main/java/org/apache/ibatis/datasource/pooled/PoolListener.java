@@ -0,0 +1,58 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * Receives the timings of a {@link PooledDataSource}.
+ * <p>
+ * Listeners are called by the thread that borrows, returns or creates a connection, after the pool state monitor has
+ * been released, so they should return quickly but may take locks of their own. An exception thrown by a listener is
+ * logged and otherwise ignored.
+ *
+ * @see PooledDataSource#addPoolListener(PoolListener)
+ * @since 3.5.5
+ */
+public interface PoolListener {
+
+  /**
+   * Called when a physical connection has been opened.
+   *
+   * @param creationNanos the time spent opening the connection
+   */
+  default void connectionCreated(long creationNanos) {
+    // NOP
+  }
+
+  /**
+   * Called when a connection has been handed out.
+   *
+   * @param acquireNanos the total time spent in {@code getConnection()}
+   * @param waitNanos the part of the acquire time spent waiting for another thread to return a connection
+   */
+  default void connectionAcquired(long acquireNanos, long waitNanos) {
+    // NOP
+  }
+
+  /**
+   * Called when a connection has been returned to the pool or closed by the application.
+   *
+   * @param usageNanos the time the connection was checked out
+   */
+  default void connectionReleased(long usageNanos) {
+    // NOP
+  }
+
+}
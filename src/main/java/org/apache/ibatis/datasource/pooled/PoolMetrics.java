@@ -0,0 +1,184 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.datasource.DataSourceException;
+
+/**
+ * Latency histograms and connection gauges of a {@link PooledDataSource}.
+ * <p>
+ * The histograms are updated without taking the pool state monitor. The gauges are sampled from the {@link PoolState}
+ * when they are read.
+ *
+ * @see PooledDataSource#getPoolMetrics()
+ * @since 3.5.5
+ */
+public class PoolMetrics implements PoolListener, PoolMetricsMXBean {
+
+  private final PooledDataSource dataSource;
+  private final LatencyHistogram acquireTime = new LatencyHistogram();
+  private final LatencyHistogram waitTime = new LatencyHistogram();
+  private final LatencyHistogram usageTime = new LatencyHistogram();
+  private final LatencyHistogram creationTime = new LatencyHistogram();
+  private ObjectName objectName;
+
+  public PoolMetrics(PooledDataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  @Override
+  public void connectionCreated(long creationNanos) {
+    creationTime.record(creationNanos);
+  }
+
+  @Override
+  public void connectionAcquired(long acquireNanos, long waitNanos) {
+    acquireTime.record(acquireNanos);
+    if (waitNanos > 0) {
+      waitTime.record(waitNanos);
+    }
+  }
+
+  @Override
+  public void connectionReleased(long usageNanos) {
+    usageTime.record(usageNanos);
+  }
+
+  public LatencyHistogram getAcquireTimeHistogram() {
+    return acquireTime;
+  }
+
+  /**
+   * Gets the histogram of the time spent waiting for a connection. Only the requests that had to wait are recorded.
+   *
+   * @return the histogram
+   */
+  public LatencyHistogram getWaitTimeHistogram() {
+    return waitTime;
+  }
+
+  public LatencyHistogram getUsageTimeHistogram() {
+    return usageTime;
+  }
+
+  public LatencyHistogram getCreationTimeHistogram() {
+    return creationTime;
+  }
+
+  @Override
+  public int getActiveConnections() {
+    return dataSource.getPoolState().getActiveConnectionCount();
+  }
+
+  @Override
+  public int getIdleConnections() {
+    return dataSource.getPoolState().getIdleConnectionCount();
+  }
+
+  @Override
+  public int getPendingConnections() {
+    return dataSource.getPoolState().getPendingConnectionCount();
+  }
+
+  @Override
+  public int getMaximumActiveConnections() {
+    return dataSource.getPoolMaximumActiveConnections();
+  }
+
+  @Override
+  public LatencyHistogram.Summary getAcquireTime() {
+    return acquireTime.getSummary();
+  }
+
+  @Override
+  public LatencyHistogram.Summary getWaitTime() {
+    return waitTime.getSummary();
+  }
+
+  @Override
+  public LatencyHistogram.Summary getUsageTime() {
+    return usageTime.getSummary();
+  }
+
+  @Override
+  public LatencyHistogram.Summary getCreationTime() {
+    return creationTime.getSummary();
+  }
+
+  @Override
+  public void reset() {
+    acquireTime.reset();
+    waitTime.reset();
+    usageTime.reset();
+    creationTime.reset();
+  }
+
+  /**
+   * Registers these metrics in the platform MBean server, replacing a previous registration of this instance.
+   * As the server references the metrics and the data source, {@link #unregisterMBean()} must be called when the data
+   * source is discarded.
+   *
+   * @param name the object name, e.g. {@code org.mybatis:type=PooledDataSource,name=main}
+   */
+  public synchronized void registerMBean(String name) {
+    unregisterMBean();
+    try {
+      ObjectName newName = new ObjectName(name);
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, newName);
+      objectName = newName;
+    } catch (JMException e) {
+      throw new DataSourceException("Error registering pool metrics as '" + name + "'. Cause: " + e, e);
+    }
+  }
+
+  /**
+   * Removes the registration made by {@link #registerMBean(String)}, if any.
+   */
+  public synchronized void unregisterMBean() {
+    if (objectName == null) {
+      return;
+    }
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      if (server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+    } catch (JMException e) {
+      throw new DataSourceException("Error unregistering pool metrics '" + objectName + "'. Cause: " + e, e);
+    } finally {
+      objectName = null;
+    }
+  }
+
+  public synchronized String getObjectName() {
+    return objectName == null ? null : objectName.toString();
+  }
+
+  @Override
+  public String toString() {
+    return "acquireTime   " + getAcquireTime()
+        + "\nwaitTime      " + getWaitTime()
+        + "\nusageTime     " + getUsageTime()
+        + "\ncreationTime  " + getCreationTime();
+  }
+
+}
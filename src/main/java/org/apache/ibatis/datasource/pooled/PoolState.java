@@ -16,7 +16,9 @@
 package org.apache.ibatis.datasource.pooled;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Clinton Begin
@@ -27,6 +29,8 @@ public class PoolState {
 
   protected final List<PooledConnection> idleConnections = new ArrayList<>();
   protected final List<PooledConnection> activeConnections = new ArrayList<>();
+  protected int pendingConnectionCount = 0;
+  protected final Map<Integer, PoolPartition> partitions = new HashMap<>();
   protected long requestCount = 0;
   protected long accumulatedRequestTime = 0;
   protected long accumulatedCheckoutTime = 0;
@@ -35,6 +39,26 @@ public class PoolState {
   protected long accumulatedWaitTime = 0;
   protected long hadToWaitCount = 0;
   protected long badConnectionCount = 0;
+  protected long leakedConnectionCount = 0;
+  protected long rejectedRequestCount = 0;
+
+  /**
+   * The connections of one set of credentials, identified by their connection type code.
+   */
+  static final class PoolPartition {
+    final int connectionTypeCode;
+    final String username;
+    final String password;
+    final boolean defaultCredentials;
+    int pendingConnectionCount;
+
+    PoolPartition(int connectionTypeCode, String username, String password, boolean defaultCredentials) {
+      this.connectionTypeCode = connectionTypeCode;
+      this.username = username;
+      this.password = password;
+      this.defaultCredentials = defaultCredentials;
+    }
+  }
 
   public PoolState(PooledDataSource dataSource) {
     this.dataSource = dataSource;
@@ -61,6 +85,27 @@ public class PoolState {
     return badConnectionCount;
   }
 
+  /**
+   * Gets the number of connections that have been reported by the leak detection.
+   *
+   * @return the number of leaked connections
+   * @see PooledDataSource#setPoolLeakDetectionThreshold(int)
+   * @since 3.5.5
+   */
+  public synchronized long getLeakedConnectionCount() {
+    return leakedConnectionCount;
+  }
+
+  /**
+   * Returns the number of requests that failed because no connection was available within the maximum wait time.
+   *
+   * @return the number of rejected requests
+   * @since 3.5.5
+   */
+  public synchronized long getRejectedRequestCount() {
+    return rejectedRequestCount;
+  }
+
   public synchronized long getClaimedOverdueConnectionCount() {
     return claimedOverdueConnectionCount;
   }
@@ -82,6 +127,27 @@ public class PoolState {
     return activeConnections.size();
   }
 
+  /**
+   * Gets the number of connections that are being created.
+   *
+   * @return the number of pending connections
+   * @since 3.5.5
+   */
+  public synchronized int getPendingConnectionCount() {
+    return pendingConnectionCount;
+  }
+
+  /**
+   * Gets the number of credentials the pool holds connections for.
+   *
+   * @return the number of partitions
+   * @see PooledDataSource#getConnection(String, String)
+   * @since 3.5.5
+   */
+  public synchronized int getPartitionCount() {
+    return partitions.size();
+  }
+
   @Override
   public synchronized String toString() {
     StringBuilder builder = new StringBuilder();
@@ -92,14 +158,29 @@ public class PoolState {
     builder.append("\n jdbcPassword                   ").append(dataSource.getPassword() == null ? "NULL" : "************");
     builder.append("\n poolMaxActiveConnections       ").append(dataSource.poolMaximumActiveConnections);
     builder.append("\n poolMaxIdleConnections         ").append(dataSource.poolMaximumIdleConnections);
+    builder.append("\n poolMaxActiveConnectionsPerUser ").append(dataSource.poolMaximumActiveConnectionsPerUser);
+    builder.append("\n poolMaxIdleConnectionsPerUser  ").append(dataSource.poolMaximumIdleConnectionsPerUser);
     builder.append("\n poolMaxCheckoutTime            ").append(dataSource.poolMaximumCheckoutTime);
+    builder.append("\n poolMaxPendingConnections      ").append(dataSource.poolMaximumPendingConnections);
+    builder.append("\n poolAdaptiveSizingEnabled      ").append(dataSource.poolAdaptiveSizingEnabled);
+    builder.append("\n poolMinActiveConnections       ").append(dataSource.poolMinimumActiveConnections);
+    builder.append("\n poolMaxWaitTime                ").append(dataSource.poolMaximumWaitTime);
     builder.append("\n poolTimeToWait                 ").append(dataSource.poolTimeToWait);
     builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
     builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
     builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+    builder.append("\n poolMinIdleConnections         ").append(dataSource.poolMinimumIdleConnections);
+    builder.append("\n poolMaxConnectionLifetime      ").append(dataSource.poolMaximumConnectionLifetime);
+    builder.append("\n poolValidateIdleConnections    ").append(dataSource.poolValidateIdleConnections);
+    builder.append("\n poolMaintenanceInterval        ").append(dataSource.poolMaintenanceInterval);
+    builder.append("\n poolMetricsJmxName             ").append(dataSource.poolMetricsJmxName);
+    builder.append("\n poolLeakDetectionThreshold     ").append(dataSource.poolLeakDetectionThreshold);
     builder.append("\n ---STATUS-----------------------------------------------------");
     builder.append("\n activeConnections              ").append(getActiveConnectionCount());
     builder.append("\n idleConnections                ").append(getIdleConnectionCount());
+    builder.append("\n pendingConnections             ").append(getPendingConnectionCount());
+    builder.append("\n activeConnectionLimit          ").append(dataSource.getPoolActiveConnectionLimit());
+    builder.append("\n partitions                     ").append(getPartitionCount());
     builder.append("\n requestCount                   ").append(getRequestCount());
     builder.append("\n averageRequestTime             ").append(getAverageRequestTime());
     builder.append("\n averageCheckoutTime            ").append(getAverageCheckoutTime());
@@ -108,6 +189,14 @@ public class PoolState {
     builder.append("\n hadToWait                      ").append(getHadToWaitCount());
     builder.append("\n averageWaitTime                ").append(getAverageWaitTime());
     builder.append("\n badConnectionCount             ").append(getBadConnectionCount());
+    builder.append("\n leakedConnectionCount          ").append(getLeakedConnectionCount());
+    builder.append("\n rejectedRequestCount           ").append(getRejectedRequestCount());
+    builder.append("\n ---LATENCY----------------------------------------------------");
+    PoolMetrics metrics = dataSource.getPoolMetrics();
+    builder.append("\n acquireTime                    ").append(metrics.getAcquireTime());
+    builder.append("\n waitTime                       ").append(metrics.getWaitTime());
+    builder.append("\n usageTime                      ").append(metrics.getUsageTime());
+    builder.append("\n creationTime                   ").append(metrics.getCreationTime());
     builder.append("\n===============================================================");
     return builder.toString();
   }
@@ -21,6 +21,7 @@ import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.SQLException;
 
+import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.reflection.ExceptionUtil;
 
 /**
@@ -30,16 +31,23 @@ class PooledConnection implements InvocationHandler {
 
   private static final String CLOSE = "close";
   private static final Class<?>[] IFACES = new Class<?>[] { Connection.class };
+  private static final Object NOT_TRACKED = new Object();
 
   private final int hashCode;
   private final PooledDataSource dataSource;
   private final Connection realConnection;
   private final Connection proxyConnection;
   private long checkoutTimestamp;
+  private long checkoutNanoTime;
   private long createdTimestamp;
   private long lastUsedTimestamp;
+  private long lastValidatedTimestamp;
   private int connectionTypeCode;
   private boolean valid;
+  private Throwable checkoutStackTrace;
+  private volatile String lastStatementId;
+  private boolean leakReported;
+  private ConnectionState connectionState;
 
   /**
    * Constructor for SimplePooledConnection that uses the Connection and PooledDataSource passed in.
@@ -54,6 +62,7 @@ class PooledConnection implements InvocationHandler {
     this.createdTimestamp = System.currentTimeMillis();
     this.lastUsedTimestamp = System.currentTimeMillis();
     this.valid = true;
+    this.connectionState = new ConnectionState(connection);
     this.proxyConnection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), IFACES, this);
   }
 
@@ -163,6 +172,26 @@ class PooledConnection implements InvocationHandler {
     return System.currentTimeMillis() - lastUsedTimestamp;
   }
 
+  /**
+   * Setter for the time that the connection was last validated while it was idle.
+   *
+   * @param lastValidatedTimestamp - the timestamp
+   * @since 3.5.5
+   */
+  public void setLastValidatedTimestamp(long lastValidatedTimestamp) {
+    this.lastValidatedTimestamp = lastValidatedTimestamp;
+  }
+
+  /**
+   * Getter for the time since this connection was last used or validated, whichever is later.
+   *
+   * @return - the time since the connection was last known to be good
+   * @since 3.5.5
+   */
+  public long getTimeElapsedSinceLastValidation() {
+    return System.currentTimeMillis() - Math.max(lastUsedTimestamp, lastValidatedTimestamp);
+  }
+
   /**
    * Getter for the age of the connection.
    *
@@ -190,6 +219,64 @@ class PooledConnection implements InvocationHandler {
     this.checkoutTimestamp = timestamp;
   }
 
+  /**
+   * Getter for the {@link System#nanoTime()} at which the connection was checked out, used to measure the usage time.
+   *
+   * @return the nano time of the checkout
+   */
+  public long getCheckoutNanoTime() {
+    return checkoutNanoTime;
+  }
+
+  public void setCheckoutNanoTime(long checkoutNanoTime) {
+    this.checkoutNanoTime = checkoutNanoTime;
+  }
+
+  /**
+   * Getter for the call site of the checkout, recorded when the leak detection is enabled.
+   *
+   * @return the call site, or {@code null}
+   */
+  public Throwable getCheckoutStackTrace() {
+    return checkoutStackTrace;
+  }
+
+  public void setCheckoutStackTrace(Throwable checkoutStackTrace) {
+    this.checkoutStackTrace = checkoutStackTrace;
+  }
+
+  /**
+   * Getter for the id of the mapped statement that was last prepared on this connection, taken from the
+   * {@link ErrorContext} when the leak detection is enabled.
+   *
+   * @return the statement id, or {@code null}
+   */
+  public String getLastStatementId() {
+    return lastStatementId;
+  }
+
+  /**
+   * Getter for the tracked session state of the real connection, which is shared by all the pooled connections that
+   * wrap it.
+   *
+   * @return the connection state
+   */
+  ConnectionState getConnectionState() {
+    return connectionState;
+  }
+
+  void setConnectionState(ConnectionState connectionState) {
+    this.connectionState = connectionState;
+  }
+
+  public boolean isLeakReported() {
+    return leakReported;
+  }
+
+  public void setLeakReported(boolean leakReported) {
+    this.leakReported = leakReported;
+  }
+
   /**
    * Getter for the time that this connection has been checked out.
    *
@@ -241,6 +328,16 @@ class PooledConnection implements InvocationHandler {
         // issue #579 toString() should never fail
         // throw an SQLException instead of a Runtime
         checkConnection();
+        if (checkoutStackTrace != null && (methodName.startsWith("prepare") || "createStatement".equals(methodName))) {
+          // remember which statement uses the connection to report it if the connection leaks
+          lastStatementId = ErrorContext.instance().getObject();
+        }
+        Object result = invokeTracked(methodName, args);
+        if (result != NOT_TRACKED) {
+          return result;
+        }
+        // 未跟踪的方法调用前先同步缓存的连接状态
+        connectionState.apply();
       }
       return method.invoke(realConnection, args);//调用JDBC中的connection.prepareStatement方法
     } catch (Throwable t) {
@@ -249,6 +346,51 @@ class PooledConnection implements InvocationHandler {
 
   }
 
+  private Object invokeTracked(String methodName, Object[] args) throws SQLException {
+    int argCount = args == null ? 0 : args.length;
+    switch (methodName) {
+      case "getAutoCommit":
+        return connectionState.get(ConnectionState.Property.AUTO_COMMIT);
+      case "getTransactionIsolation":
+        return connectionState.get(ConnectionState.Property.TRANSACTION_ISOLATION);
+      case "isReadOnly":
+        return connectionState.get(ConnectionState.Property.READ_ONLY);
+      case "getCatalog":
+        return connectionState.get(ConnectionState.Property.CATALOG);
+      case "getSchema":
+        return connectionState.get(ConnectionState.Property.SCHEMA);
+      case "setAutoCommit":
+        connectionState.set(ConnectionState.Property.AUTO_COMMIT, args[0]);
+        return null;
+      case "setTransactionIsolation":
+        connectionState.set(ConnectionState.Property.TRANSACTION_ISOLATION, args[0]);
+        return null;
+      case "setReadOnly":
+        connectionState.set(ConnectionState.Property.READ_ONLY, args[0]);
+        return null;
+      case "setCatalog":
+        connectionState.set(ConnectionState.Property.CATALOG, args[0]);
+        return null;
+      case "setSchema":
+        connectionState.set(ConnectionState.Property.SCHEMA, args[0]);
+        return null;
+      case "commit":
+        if (argCount == 0) {
+          connectionState.commit();
+          return null;
+        }
+        return NOT_TRACKED;
+      case "rollback":
+        if (argCount == 0) {
+          connectionState.rollback();
+          return null;
+        }
+        return NOT_TRACKED;
+      default:
+        return NOT_TRACKED;
+    }
+  }
+
   private void checkConnection() throws SQLException {
     if (!valid) {
       throw new SQLException("Error accessing PooledConnection. Connection is invalid.");
@@ -16,13 +16,24 @@
 package org.apache.ibatis.datasource.pooled;
 
 import java.io.PrintWriter;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
@@ -40,21 +51,45 @@ public class PooledDataSource implements DataSource {
 
   private static final Log log = LogFactory.getLog(PooledDataSource.class);
 
+  private static final AtomicInteger maintenanceThreadCount = new AtomicInteger();
+
   private final PoolState state = new PoolState(this);
 
   private final UnpooledDataSource dataSource;
 
+  private final PoolMetrics metrics = new PoolMetrics(this);
+  private final List<PoolListener> listeners = new CopyOnWriteArrayList<>();
+
   // OPTIONAL CONFIGURATION FIELDS
   protected int poolMaximumActiveConnections = 10;
   protected int poolMaximumIdleConnections = 5;
+  protected int poolMaximumActiveConnectionsPerUser;
+  protected int poolMaximumIdleConnectionsPerUser;
   protected int poolMaximumCheckoutTime = 20000;
   protected int poolTimeToWait = 20000;
   protected int poolMaximumLocalBadConnectionTolerance = 3;
   protected String poolPingQuery = "NO PING QUERY SET";
   protected boolean poolPingEnabled;
   protected int poolPingConnectionsNotUsedFor;
+  protected int poolMinimumIdleConnections;
+  protected int poolMaximumConnectionLifetime;
+  protected boolean poolValidateIdleConnections;
+  protected int poolValidationTimeout = 5;
+  protected int poolMaintenanceInterval = 30000;
+  protected int poolMaximumPendingConnections = 2;
+  protected String poolMetricsJmxName;
+  protected int poolLeakDetectionThreshold;
+  protected boolean poolAdaptiveSizingEnabled;
+  protected int poolMinimumActiveConnections = 1;
+  protected int poolMaximumWaitTime;
 
   private int expectedConnectionTypeCode;
+  // guarded by the state lock, created on demand when the adaptive sizing is enabled
+  private AdaptivePoolLimit adaptiveLimit;
+
+  private final Object maintenanceLock = new Object();
+  private volatile boolean maintenanceStarted;
+  private ScheduledExecutorService maintenanceExecutor;
 
   public PooledDataSource() {
     dataSource = new UnpooledDataSource();
@@ -86,11 +121,17 @@ public class PooledDataSource implements DataSource {
 
   @Override
   public Connection getConnection() throws SQLException {
+    if (!maintenanceStarted) {
+      startMaintenance();
+    }
     return popConnection(dataSource.getUsername(), dataSource.getPassword()).getProxyConnection();
   }
 
   @Override
   public Connection getConnection(String username, String password) throws SQLException {
+    if (!maintenanceStarted) {
+      startMaintenance();
+    }
     return popConnection(username, password).getProxyConnection();
   }
 
@@ -181,6 +222,32 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /**
+   * The maximum number of active connections of one set of credentials, see {@link #getConnection(String, String)}.
+   * The connections of all the credentials are limited by {@link #setPoolMaximumActiveConnections(int)} as well.
+   * A value of 0 or less means no limit per user.
+   *
+   * @param poolMaximumActiveConnectionsPerUser The maximum number of active connections per user
+   * @since 3.5.5
+   */
+  public void setPoolMaximumActiveConnectionsPerUser(int poolMaximumActiveConnectionsPerUser) {
+    this.poolMaximumActiveConnectionsPerUser = poolMaximumActiveConnectionsPerUser;
+    forceCloseAll();
+  }
+
+  /**
+   * The maximum number of idle connections of one set of credentials, so that a user cannot take all the idle slots.
+   * The idle connections of all the credentials are limited by {@link #setPoolMaximumIdleConnections(int)} as well.
+   * A value of 0 or less means no limit per user.
+   *
+   * @param poolMaximumIdleConnectionsPerUser The maximum number of idle connections per user
+   * @since 3.5.5
+   */
+  public void setPoolMaximumIdleConnectionsPerUser(int poolMaximumIdleConnectionsPerUser) {
+    this.poolMaximumIdleConnectionsPerUser = poolMaximumIdleConnectionsPerUser;
+    forceCloseAll();
+  }
+
   /**
    * The maximum number of tolerance for bad connection happens in one thread
    * which are applying for new {@link PooledConnection}.
@@ -195,6 +262,18 @@ public class PooledDataSource implements DataSource {
     this.poolMaximumLocalBadConnectionTolerance = poolMaximumLocalBadConnectionTolerance;
   }
 
+  /**
+   * The maximum number of connections that are created at the same time. Connections are created without holding the
+   * pool lock, so borrowers and returners are not blocked by the handshake; further borrowers wait until a connection
+   * becomes available.
+   *
+   * @param poolMaximumPendingConnections The maximum number of connections being created concurrently
+   * @since 3.5.5
+   */
+  public void setPoolMaximumPendingConnections(int poolMaximumPendingConnections) {
+    this.poolMaximumPendingConnections = poolMaximumPendingConnections;
+  }
+
   /**
    * The maximum time a connection can be used before it *may* be
    * given away again.
@@ -247,6 +326,135 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /**
+   * The number of idle connections the background maintenance keeps ready, as long as the maximum number of active
+   * and idle connections allows it.
+   *
+   * @param poolMinimumIdleConnections The minimum number of idle connections
+   * @since 3.5.5
+   */
+  public void setPoolMinimumIdleConnections(int poolMinimumIdleConnections) {
+    this.poolMinimumIdleConnections = poolMinimumIdleConnections;
+    restartMaintenance();
+  }
+
+  /**
+   * The maximum time a connection is kept open. Older connections are closed when they are idle or returned to the
+   * pool. A value of 0 or less means no limit.
+   *
+   * @param milliseconds The maximum lifetime of a connection
+   * @since 3.5.5
+   */
+  public void setPoolMaximumConnectionLifetime(int milliseconds) {
+    this.poolMaximumConnectionLifetime = milliseconds;
+    restartMaintenance();
+  }
+
+  /**
+   * Determines if the background maintenance validates idle connections with {@link Connection#isValid(int)}.
+   * A connection that has been validated recently is not pinged again when it is checked out.
+   *
+   * @param poolValidateIdleConnections True if idle connections should be validated in the background
+   * @since 3.5.5
+   */
+  public void setPoolValidateIdleConnections(boolean poolValidateIdleConnections) {
+    this.poolValidateIdleConnections = poolValidateIdleConnections;
+    restartMaintenance();
+  }
+
+  /**
+   * The timeout passed to {@link Connection#isValid(int)} when idle connections are validated.
+   *
+   * @param seconds The validation timeout in seconds
+   * @since 3.5.5
+   */
+  public void setPoolValidationTimeout(int seconds) {
+    this.poolValidationTimeout = seconds;
+  }
+
+  /**
+   * The delay between two runs of the background maintenance. A value of 0 or less disables it.
+   *
+   * @param milliseconds The maintenance interval
+   * @since 3.5.5
+   */
+  public void setPoolMaintenanceInterval(int milliseconds) {
+    this.poolMaintenanceInterval = milliseconds;
+    restartMaintenance();
+  }
+
+  /**
+   * Enables the leak detection: the call site of every checkout is recorded and the background maintenance reports the
+   * connections that are held longer than the given time, together with the statement that was last prepared on them.
+   * Each leaked connection is reported once. A value of 0 or less disables it.
+   *
+   * @param milliseconds
+   *          The time after which a checked out connection is reported as leaked
+   * @since 3.5.5
+   */
+  public void setPoolLeakDetectionThreshold(int milliseconds) {
+    this.poolLeakDetectionThreshold = milliseconds;
+    restartMaintenance();
+  }
+
+  /**
+   * Lets the pool adjust the number of active connections between {@link #setPoolMinimumActiveConnections(int)} and
+   * {@link #setPoolMaximumActiveConnections(int)}. The limit is raised while borrowers have to wait for a connection,
+   * lowered while most of the connections are unused, and cut when the connections are checked out much longer than
+   * usual, as an overloaded database answers slowly and more concurrent statements would only make it worse.
+   *
+   * @param poolAdaptiveSizingEnabled
+   *          whether the limit of active connections adapts to the load
+   * @since 3.5.5
+   */
+  public void setPoolAdaptiveSizingEnabled(boolean poolAdaptiveSizingEnabled) {
+    this.poolAdaptiveSizingEnabled = poolAdaptiveSizingEnabled;
+    forceCloseAll();
+  }
+
+  /**
+   * The number of active connections the adaptive sizing never goes below.
+   *
+   * @param poolMinimumActiveConnections
+   *          The lower bound of the adaptive limit of active connections
+   * @since 3.5.5
+   */
+  public void setPoolMinimumActiveConnections(int poolMinimumActiveConnections) {
+    this.poolMinimumActiveConnections = poolMinimumActiveConnections;
+    forceCloseAll();
+  }
+
+  /**
+   * The longest time a borrower waits for a connection. Once it is exceeded, {@link #getConnection()} fails with an
+   * {@link SQLException} instead of queuing further, which sheds the load when the database cannot keep up. A value of
+   * 0 or less lets borrowers wait as long as necessary.
+   *
+   * @param milliseconds
+   *          The latency budget for obtaining a connection
+   * @since 3.5.5
+   */
+  public void setPoolMaximumWaitTime(int milliseconds) {
+    this.poolMaximumWaitTime = milliseconds;
+  }
+
+  /**
+   * Registers the {@link PoolMetrics} of this data source in the platform MBean server under the given object name.
+   * An empty name removes the registration.
+   *
+   * @param poolMetricsJmxName
+   *          the object name, e.g. {@code org.mybatis:type=PooledDataSource,name=main}
+   * @since 3.5.5
+   */
+  public void setPoolMetricsJmxName(String poolMetricsJmxName) {
+    if (poolMetricsJmxName == null || poolMetricsJmxName.isEmpty()) {
+      metrics.unregisterMBean();
+      this.poolMetricsJmxName = null;
+    } else {
+      metrics.registerMBean(poolMetricsJmxName);
+      this.poolMetricsJmxName = poolMetricsJmxName;
+    }
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -290,6 +498,20 @@ public class PooledDataSource implements DataSource {
     return poolMaximumIdleConnections;
   }
 
+  /**
+   * @since 3.5.5
+   */
+  public int getPoolMaximumActiveConnectionsPerUser() {
+    return poolMaximumActiveConnectionsPerUser;
+  }
+
+  /**
+   * @since 3.5.5
+   */
+  public int getPoolMaximumIdleConnectionsPerUser() {
+    return poolMaximumIdleConnectionsPerUser;
+  }
+
   public int getPoolMaximumLocalBadConnectionTolerance() {
     return poolMaximumLocalBadConnectionTolerance;
   }
@@ -314,22 +536,156 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  /**
+   * @since 3.5.5
+   */
+  public int getPoolMaximumPendingConnections() {
+    return poolMaximumPendingConnections;
+  }
+
+  /**
+   * @since 3.5.5
+   */
+  public int getPoolMinimumIdleConnections() {
+    return poolMinimumIdleConnections;
+  }
+
+  /**
+   * @since 3.5.5
+   */
+  public int getPoolMaximumConnectionLifetime() {
+    return poolMaximumConnectionLifetime;
+  }
+
+  /**
+   * @since 3.5.5
+   */
+  public boolean isPoolValidateIdleConnections() {
+    return poolValidateIdleConnections;
+  }
+
+  /**
+   * @since 3.5.5
+   */
+  public int getPoolValidationTimeout() {
+    return poolValidationTimeout;
+  }
+
+  /**
+   * @since 3.5.5
+   */
+  public int getPoolMaintenanceInterval() {
+    return poolMaintenanceInterval;
+  }
+
+  /**
+   * @since 3.5.5
+   */
+  public int getPoolLeakDetectionThreshold() {
+    return poolLeakDetectionThreshold;
+  }
+
+  /**
+   * @since 3.5.5
+   */
+  public boolean isPoolAdaptiveSizingEnabled() {
+    return poolAdaptiveSizingEnabled;
+  }
+
+  /**
+   * @since 3.5.5
+   */
+  public int getPoolMinimumActiveConnections() {
+    return poolMinimumActiveConnections;
+  }
+
+  /**
+   * @since 3.5.5
+   */
+  public int getPoolMaximumWaitTime() {
+    return poolMaximumWaitTime;
+  }
+
+  /**
+   * Returns the number of active connections the pool currently allows, which is
+   * {@link #getPoolMaximumActiveConnections()} unless the adaptive sizing is enabled.
+   *
+   * @return the current limit of active connections
+   * @since 3.5.5
+   */
+  public int getPoolActiveConnectionLimit() {
+    synchronized (state) {
+      return getActiveConnectionLimit();
+    }
+  }
+
+  /**
+   * @since 3.5.5
+   */
+  public String getPoolMetricsJmxName() {
+    return poolMetricsJmxName;
+  }
+
+  /**
+   * Starts the background maintenance if it is needed, i.e. if a minimum number of idle connections, a maximum
+   * connection lifetime or idle connection validation is configured. It is started automatically on the first
+   * {@link #getConnection()}; starting it earlier pre-warms the pool before the first request.
+   *
+   * @since 3.5.5
+   */
+  public void startMaintenance() {
+    synchronized (maintenanceLock) {
+      stopMaintenance();
+      maintenanceStarted = true;
+      if (poolMaintenanceInterval > 0
+          && (poolMinimumIdleConnections > 0 || poolMaximumConnectionLifetime > 0 || poolValidateIdleConnections
+              || poolLeakDetectionThreshold > 0)) {
+        maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+          Thread thread = new Thread(runnable, "mybatis-pool-maintenance-" + maintenanceThreadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+        maintenanceExecutor.scheduleWithFixedDelay(new MaintenanceTask(this), 0, poolMaintenanceInterval, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  /**
+   * Stops the background maintenance. Connections are not closed, see {@link #forceCloseAll()}.
+   *
+   * @since 3.5.5
+   */
+  public void stopMaintenance() {
+    synchronized (maintenanceLock) {
+      if (maintenanceExecutor != null) {
+        maintenanceExecutor.shutdownNow();
+        maintenanceExecutor = null;
+      }
+    }
+  }
+
+  private void restartMaintenance() {
+    if (maintenanceStarted) {
+      startMaintenance();
+    }
+  }
+
   /**
    * Closes all active and idle connections in the pool.
    */
   public void forceCloseAll() {
     synchronized (state) {
       expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+      // connections created for the previous partitions are discarded
+      state.partitions.clear();
+      adaptiveLimit = null;
       for (int i = state.activeConnections.size(); i > 0; i--) {
         try {
           PooledConnection conn = state.activeConnections.remove(i - 1);
           conn.invalidate();
 
-          Connection realConn = conn.getRealConnection();
-          if (!realConn.getAutoCommit()) {
-            realConn.rollback();
-          }
-          realConn.close();
+          conn.getConnectionState().reset();
+          conn.getRealConnection().close();
         } catch (Exception e) {
           // ignore
         }
@@ -339,11 +695,8 @@ public class PooledDataSource implements DataSource {
           PooledConnection conn = state.idleConnections.remove(i - 1);
           conn.invalidate();
 
-          Connection realConn = conn.getRealConnection();
-          if (!realConn.getAutoCommit()) {
-            realConn.rollback();
-          }
-          realConn.close();
+          conn.getConnectionState().reset();
+          conn.getRealConnection().close();
         } catch (Exception e) {
           // ignore
         }
@@ -358,22 +711,68 @@ public class PooledDataSource implements DataSource {
     return state;
   }
 
+  /**
+   * Gets the latency histograms and connection gauges of this pool.
+   *
+   * @return the metrics
+   * @since 3.5.5
+   */
+  public PoolMetrics getPoolMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Adds a listener that is notified of the timings of this pool.
+   *
+   * @param listener
+   *          the listener
+   * @since 3.5.5
+   */
+  public void addPoolListener(PoolListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * @since 3.5.5
+   */
+  public void removePoolListener(PoolListener listener) {
+    listeners.remove(listener);
+  }
+
+  private void firePoolEvent(Consumer<PoolListener> event) {
+    event.accept(metrics);
+    for (PoolListener listener : listeners) {
+      try {
+        event.accept(listener);
+      } catch (RuntimeException e) {
+        log.warn("Pool listener " + listener + " failed: " + e);
+      }
+    }
+  }
+
   private int assembleConnectionTypeCode(String url, String username, String password) {
     return ("" + url + username + password).hashCode();
   }
 
   protected void pushConnection(PooledConnection conn) throws SQLException {
+    long usageNanos = -1;
 
     synchronized (state) {
-      state.activeConnections.remove(conn);
+      if (state.activeConnections.remove(conn)) {
+        usageNanos = System.nanoTime() - conn.getCheckoutNanoTime();
+        if (poolAdaptiveSizingEnabled) {
+          getAdaptiveLimit().onRelease(usageNanos, state.activeConnections.size());
+        }
+      }
       if (conn.isValid()) {
-        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
+        if (canBecomeIdle(conn)) {
           state.accumulatedCheckoutTime += conn.getCheckoutTime();
-          if (!conn.getRealConnection().getAutoCommit()) {
-            conn.getRealConnection().rollback();
-          }
+          // rolls back unless in auto-commit mode, the settings are restored when they are needed again
+          conn.getConnectionState().reset();
           PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
+          newConn.setConnectionState(conn.getConnectionState());
           state.idleConnections.add(newConn);
+          newConn.setConnectionTypeCode(conn.getConnectionTypeCode());
           newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
           newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
           conn.invalidate();
@@ -383,9 +782,7 @@ public class PooledDataSource implements DataSource {
           state.notifyAll();
         } else {
           state.accumulatedCheckoutTime += conn.getCheckoutTime();
-          if (!conn.getRealConnection().getAutoCommit()) {
-            conn.getRealConnection().rollback();
-          }
+          conn.getConnectionState().reset();
           conn.getRealConnection().close();
           if (log.isDebugEnabled()) {
             log.debug("Closed connection " + conn.getRealHashCode() + ".");
@@ -399,56 +796,94 @@ public class PooledDataSource implements DataSource {
         state.badConnectionCount++;
       }
     }
+    if (usageNanos >= 0) {
+      long usage = usageNanos;
+      firePoolEvent(listener -> listener.connectionReleased(usage));
+    }
   }
 
   private PooledConnection popConnection(String username, String password) throws SQLException {
     boolean countedWait = false;
     PooledConnection conn = null;
+    PooledConnection created = null;
+    PoolState.PoolPartition createdPartition = null;
+    PoolState.PoolPartition partition = null;
     long t = System.currentTimeMillis();
+    long startNanos = System.nanoTime();
+    long waitNanos = 0;
     int localBadConnectionCount = 0;
 
     while (conn == null) {
+      boolean mustCreate = false;
       synchronized (state) {
-        if (!state.idleConnections.isEmpty()) {
+        if (partition == null || state.partitions.get(partition.connectionTypeCode) != partition) {
+          partition = getPartition(username, password);
+        }
+        PooledConnection idleConnection;
+        if (created != null) {
+          // The connection has been created outside of the lock, its slot was reserved
+          conn = created;
+          created = null;
+          state.pendingConnectionCount--;
+          createdPartition.pendingConnectionCount--;
+          state.notifyAll();
+          if (createdPartition != partition) {
+            // the pool has been reset while the connection was created
+            closeConnection(conn);
+            conn = null;
+            continue;
+          }
+          if (log.isDebugEnabled()) {
+            log.debug("Created connection " + conn.getRealHashCode() + ".");
+          }
+        } else if ((idleConnection = findIdleConnection(partition)) != null) {
           // Pool has available connection
-          conn = state.idleConnections.remove(0);
+          conn = idleConnection;
+          state.idleConnections.remove(conn);
+          if (isExpired(conn)) {
+            // 超过最大存活时间的连接直接关闭，重新获取
+            closeConnection(conn);
+            conn = null;
+            continue;
+          }
           if (log.isDebugEnabled()) {
             log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
           }
         } else {
           // Pool does not have available connection
-          if (state.activeConnections.size() < poolMaximumActiveConnections) {
-            // Can create new connection
-            conn = new PooledConnection(dataSource.getConnection(), this);
-            if (log.isDebugEnabled()) {
-              log.debug("Created connection " + conn.getRealHashCode() + ".");
-            }
+          boolean belowMaximum = state.activeConnections.size() + state.pendingConnectionCount < getActiveConnectionLimit()
+              && (poolMaximumActiveConnectionsPerUser <= 0
+                || countActiveConnections(partition) + partition.pendingConnectionCount < poolMaximumActiveConnectionsPerUser);
+          if (belowMaximum && state.pendingConnectionCount < getMaximumPendingConnections()) {
+            // Can create new connection, reserve a slot and create it without holding the lock
+            state.pendingConnectionCount++;
+            partition.pendingConnectionCount++;
+            mustCreate = true;
           } else {
-            // Cannot create new connection
-            PooledConnection oldestActiveConnection = state.activeConnections.get(0);
-            long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
-            if (longestCheckoutTime > poolMaximumCheckoutTime) {
+            // Cannot create new connection (now), only a connection of the same user can be claimed
+            PooledConnection oldestActiveConnection = findOldestActiveConnection(partition);
+            long longestCheckoutTime = oldestActiveConnection == null ? 0 : oldestActiveConnection.getCheckoutTime();
+            if (!belowMaximum && oldestActiveConnection != null && longestCheckoutTime > poolMaximumCheckoutTime) {
               // Can claim overdue connection
               state.claimedOverdueConnectionCount++;
               state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
               state.accumulatedCheckoutTime += longestCheckoutTime;
               state.activeConnections.remove(oldestActiveConnection);
-              if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
-                try {
-                  oldestActiveConnection.getRealConnection().rollback();
-                } catch (SQLException e) {
-                  /*
-                     Just log a message for debug and continue to execute the following
-                     statement like nothing happened.
-                     Wrap the bad connection with a new PooledConnection, this will help
-                     to not interrupt current executing thread and give current thread a
-                     chance to join the next competition for another valid/good database
-                     connection. At the end of this loop, bad {@link @conn} will be set as null.
-                   */
-                  log.debug("Bad connection. Could not roll back");
-                }
+              try {
+                oldestActiveConnection.getConnectionState().reset();
+              } catch (SQLException e) {
+                /*
+                   Just log a message for debug and continue to execute the following
+                   statement like nothing happened.
+                   Wrap the bad connection with a new PooledConnection, this will help
+                   to not interrupt current executing thread and give current thread a
+                   chance to join the next competition for another valid/good database
+                   connection. At the end of this loop, bad {@link @conn} will be set as null.
+                 */
+                log.debug("Bad connection. Could not roll back");
               }
               conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
+              conn.setConnectionState(oldestActiveConnection.getConnectionState());
               conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
               conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
               oldestActiveConnection.invalidate();
@@ -457,16 +892,31 @@ public class PooledDataSource implements DataSource {
               }
             } else {
               // Must wait
+              long waitTime = poolTimeToWait;
+              if (poolMaximumWaitTime > 0) {
+                long remaining = poolMaximumWaitTime - (System.currentTimeMillis() - t);
+                if (remaining <= 0) {
+                  // back pressure: fail fast rather than queue past the latency budget
+                  state.rejectedRequestCount++;
+                  if (log.isDebugEnabled()) {
+                    log.debug("PooledDataSource: Could not get a connection within " + poolMaximumWaitTime + " milliseconds.");
+                  }
+                  throw new SQLException("PooledDataSource: Could not get a connection within " + poolMaximumWaitTime + " milliseconds.");
+                }
+                waitTime = Math.min(waitTime, remaining);
+              }
               try {
                 if (!countedWait) {
                   state.hadToWaitCount++;
                   countedWait = true;
                 }
                 if (log.isDebugEnabled()) {
-                  log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+                  log.debug("Waiting as long as " + waitTime + " milliseconds for connection.");
                 }
                 long wt = System.currentTimeMillis();
-                state.wait(poolTimeToWait);
+                long waitStartNanos = System.nanoTime();
+                state.wait(waitTime);
+                waitNanos += System.nanoTime() - waitStartNanos;
                 state.accumulatedWaitTime += System.currentTimeMillis() - wt;
               } catch (InterruptedException e) {
                 break;
@@ -477,13 +927,19 @@ public class PooledDataSource implements DataSource {
         if (conn != null) {
           // ping to server and check the connection is valid or not
           if (conn.isValid()) {
-            if (!conn.getRealConnection().getAutoCommit()) {
-              conn.getRealConnection().rollback();
-            }
-            conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+            conn.getConnectionState().reset();
+            conn.setConnectionTypeCode(partition.connectionTypeCode);
             conn.setCheckoutTimestamp(System.currentTimeMillis());
             conn.setLastUsedTimestamp(System.currentTimeMillis());
+            conn.setCheckoutNanoTime(System.nanoTime());
+            if (poolLeakDetectionThreshold > 0) {
+              conn.setCheckoutStackTrace(new Throwable("Connection " + conn.getRealHashCode()
+                  + " was checked out by thread '" + Thread.currentThread().getName() + "'"));
+            }
             state.activeConnections.add(conn);
+            if (poolAdaptiveSizingEnabled) {
+              getAdaptiveLimit().onAcquire(waitNanos, state.activeConnections.size());
+            }
             state.requestCount++;
             state.accumulatedRequestTime += System.currentTimeMillis() - t;
           } else {
@@ -492,6 +948,7 @@ public class PooledDataSource implements DataSource {
             }
             state.badConnectionCount++;
             localBadConnectionCount++;
+            closeConnection(conn);
             conn = null;
             if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
               if (log.isDebugEnabled()) {
@@ -502,7 +959,19 @@ public class PooledDataSource implements DataSource {
           }
         }
       }
-
+      if (mustCreate) {
+        createdPartition = partition;
+        created = createConnection(partition);
+        if (created == null) {
+          localBadConnectionCount++;
+          if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+            if (log.isDebugEnabled()) {
+              log.debug("PooledDataSource: Could not get a good connection to the database.");
+            }
+            throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
+          }
+        }
+      }
     }
 
     if (conn == null) {
@@ -512,6 +981,9 @@ public class PooledDataSource implements DataSource {
       throw new SQLException("PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
     }
 
+    long acquireNanos = System.nanoTime() - startNanos;
+    long totalWaitNanos = waitNanos;
+    firePoolEvent(listener -> listener.connectionAcquired(acquireNanos, totalWaitNanos));
     return conn;
   }
 
@@ -535,7 +1007,7 @@ public class PooledDataSource implements DataSource {
 
     if (result) {
       if (poolPingEnabled) {
-        if (poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor) {
+        if (poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastValidation() > poolPingConnectionsNotUsedFor) {
           try {
             if (log.isDebugEnabled()) {
               log.debug("Testing connection " + conn.getRealHashCode() + " ...");
@@ -569,6 +1041,304 @@ public class PooledDataSource implements DataSource {
     return result;
   }
 
+  /**
+   * Creates a connection for a slot that has been reserved by incrementing the pending connection count.
+   * The slot is released if the connection cannot be created, or if it is not valid, in which case it is closed first.
+   *
+   * @return the connection, or {@code null} if the new connection is not valid
+   */
+  private PooledConnection createConnection(PoolState.PoolPartition partition) throws SQLException {
+    long startNanos = System.nanoTime();
+    PooledConnection conn;
+    try {
+      conn = new PooledConnection(partition.defaultCredentials ? dataSource.getConnection()
+          : dataSource.getConnection(partition.username, partition.password), this);
+    } catch (SQLException | RuntimeException | Error e) {
+      releasePendingConnection(partition, false);
+      throw e;
+    }
+    if (!conn.isValid()) {
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") was created, discarding connection.");
+      }
+      // the slot is released only after the physical connection is gone
+      closeConnection(conn);
+      releasePendingConnection(partition, true);
+      return null;
+    }
+    conn.setConnectionTypeCode(partition.connectionTypeCode);
+    long creationNanos = System.nanoTime() - startNanos;
+    firePoolEvent(listener -> listener.connectionCreated(creationNanos));
+    return conn;
+  }
+
+  private void releasePendingConnection(PoolState.PoolPartition partition, boolean bad) {
+    synchronized (state) {
+      state.pendingConnectionCount--;
+      partition.pendingConnectionCount--;
+      if (bad) {
+        state.badConnectionCount++;
+      }
+      state.notifyAll();
+    }
+  }
+
+  /**
+   * Gets the partition of the given credentials, creating it if needed. Must be called holding the pool state lock.
+   */
+  private PoolState.PoolPartition getPartition(String username, String password) {
+    int typeCode = assembleConnectionTypeCode(dataSource.getUrl(), username, password);
+    return state.partitions.computeIfAbsent(typeCode,
+        k -> new PoolState.PoolPartition(typeCode, username, password,
+            Objects.equals(username, dataSource.getUsername()) && Objects.equals(password, dataSource.getPassword())));
+  }
+
+  private PooledConnection findIdleConnection(PoolState.PoolPartition partition) {
+    for (PooledConnection conn : state.idleConnections) {
+      if (conn.getConnectionTypeCode() == partition.connectionTypeCode) {
+        return conn;
+      }
+    }
+    return null;
+  }
+
+  private PooledConnection findOldestActiveConnection(PoolState.PoolPartition partition) {
+    for (PooledConnection conn : state.activeConnections) {
+      if (conn.getConnectionTypeCode() == partition.connectionTypeCode) {
+        return conn;
+      }
+    }
+    return null;
+  }
+
+  private int countActiveConnections(PoolState.PoolPartition partition) {
+    return countConnections(state.activeConnections, partition);
+  }
+
+  private static int countConnections(List<PooledConnection> connections, PoolState.PoolPartition partition) {
+    int count = 0;
+    for (PooledConnection conn : connections) {
+      if (conn.getConnectionTypeCode() == partition.connectionTypeCode) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private boolean canBecomeIdle(PooledConnection conn) {
+    PoolState.PoolPartition partition = state.partitions.get(conn.getConnectionTypeCode());
+    return partition != null && !isExpired(conn)
+        && state.idleConnections.size() < poolMaximumIdleConnections
+        && (!poolAdaptiveSizingEnabled || getTotalConnectionCount() < getActiveConnectionLimit())
+        && (poolMaximumIdleConnectionsPerUser <= 0
+          || countConnections(state.idleConnections, partition) < poolMaximumIdleConnectionsPerUser);
+  }
+
+  private boolean isExpired(PooledConnection conn) {
+    return poolMaximumConnectionLifetime > 0 && conn.getAge() > poolMaximumConnectionLifetime;
+  }
+
+  private AdaptivePoolLimit getAdaptiveLimit() {
+    if (adaptiveLimit == null) {
+      adaptiveLimit = new AdaptivePoolLimit(poolMinimumActiveConnections, poolMaximumIdleConnections,
+          poolMaximumActiveConnections);
+    }
+    return adaptiveLimit;
+  }
+
+  private int getActiveConnectionLimit() {
+    return poolAdaptiveSizingEnabled ? getAdaptiveLimit().getLimit() : poolMaximumActiveConnections;
+  }
+
+  private int getMaximumPendingConnections() {
+    // at least one connection must be creatable, otherwise borrowers would wait forever
+    return Math.max(1, poolMaximumPendingConnections);
+  }
+
+  private int getTotalConnectionCount() {
+    return state.idleConnections.size() + state.activeConnections.size() + state.pendingConnectionCount;
+  }
+
+  private void closeConnection(PooledConnection conn) {
+    conn.invalidate();
+    try {
+      conn.getConnectionState().reset();
+      conn.getRealConnection().close();
+    } catch (Exception e) {
+      // ignore
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Closed connection " + conn.getRealHashCode() + ".");
+    }
+  }
+
+  /**
+   * Runs the background maintenance once: reports leaked connections, retires expired idle connections, validates idle
+   * connections and creates connections up to the minimum number of idle connections.
+   */
+  void maintain() {
+    if (poolLeakDetectionThreshold > 0) {
+      detectLeaks();
+    }
+    List<PooledConnection> expired = new ArrayList<>();
+    synchronized (state) {
+      for (Iterator<PooledConnection> iterator = state.idleConnections.iterator(); iterator.hasNext();) {
+        PooledConnection conn = iterator.next();
+        if (isExpired(conn)) {
+          iterator.remove();
+          expired.add(conn);
+        }
+      }
+    }
+    expired.forEach(this::closeConnection);
+    if (poolValidateIdleConnections) {
+      validateIdleConnections();
+    }
+    fillIdleConnections();
+  }
+
+  private void detectLeaks() {
+    List<PooledConnection> leaked = new ArrayList<>();
+    synchronized (state) {
+      for (PooledConnection conn : state.activeConnections) {
+        if (!conn.isLeakReported() && conn.getCheckoutTime() > poolLeakDetectionThreshold) {
+          conn.setLeakReported(true);
+          state.leakedConnectionCount++;
+          leaked.add(conn);
+        }
+      }
+    }
+    for (PooledConnection conn : leaked) {
+      StringBuilder message = new StringBuilder("Possible connection leak: connection ").append(conn.getRealHashCode())
+          .append(" has been checked out for ").append(conn.getCheckoutTime()).append(" milliseconds");
+      if (conn.getLastStatementId() != null) {
+        message.append(", the last statement prepared on it was '").append(conn.getLastStatementId()).append("'");
+      }
+      message.append('.');
+      Throwable checkout = conn.getCheckoutStackTrace();
+      if (checkout != null) {
+        message.append(System.lineSeparator()).append(checkout.getMessage()).append(" at:");
+        for (StackTraceElement element : checkout.getStackTrace()) {
+          message.append(System.lineSeparator()).append("\tat ").append(element);
+        }
+      }
+      log.warn(message.toString());
+    }
+  }
+
+  private void validateIdleConnections() {
+    List<PooledConnection> candidates;
+    synchronized (state) {
+      candidates = new ArrayList<>(state.idleConnections);
+    }
+    for (PooledConnection conn : candidates) {
+      if (Thread.currentThread().isInterrupted()) {
+        return;
+      }
+      synchronized (state) {
+        // take it out of the pool while it is validated so that nobody checks it out
+        if (!state.idleConnections.remove(conn)) {
+          continue;
+        }
+      }
+      boolean valid;
+      try {
+        valid = conn.getRealConnection().isValid(poolValidationTimeout);
+      } catch (SQLException e) {
+        valid = false;
+      }
+      if (valid) {
+        conn.setLastValidatedTimestamp(System.currentTimeMillis());
+        returnIdleConnection(conn, null);
+      } else {
+        if (log.isDebugEnabled()) {
+          log.debug("Idle connection " + conn.getRealHashCode() + " is BAD, discarding connection.");
+        }
+        synchronized (state) {
+          state.badConnectionCount++;
+        }
+        closeConnection(conn);
+      }
+    }
+  }
+
+  private void fillIdleConnections() {
+    while (!Thread.currentThread().isInterrupted()) {
+      PoolState.PoolPartition partition;
+      synchronized (state) {
+        // only the connections of the default credentials are pre-warmed
+        partition = getPartition(dataSource.getUsername(), dataSource.getPassword());
+        if (state.idleConnections.size() >= Math.min(poolMinimumIdleConnections, poolMaximumIdleConnections)
+            || getTotalConnectionCount() >= poolMaximumActiveConnections
+            || state.pendingConnectionCount >= getMaximumPendingConnections()) {
+          return;
+        }
+        state.pendingConnectionCount++;
+        partition.pendingConnectionCount++;
+      }
+      PooledConnection conn;
+      try {
+        // the connection is created without holding the pool lock
+        conn = createConnection(partition);
+      } catch (SQLException e) {
+        log.warn("Could not create an idle connection: " + e.getMessage());
+        return;
+      }
+      if (conn == null) {
+        return;
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Created idle connection " + conn.getRealHashCode() + ".");
+      }
+      if (!returnIdleConnection(conn, partition)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Adds a connection that is not checked out to the idle connections if there is room for it, or closes it.
+   *
+   * @param reservedPartition the partition whose pending slot the connection has been created for, or {@code null}
+   */
+  private boolean returnIdleConnection(PooledConnection conn, PoolState.PoolPartition reservedPartition) {
+    synchronized (state) {
+      if (reservedPartition != null) {
+        state.pendingConnectionCount--;
+        reservedPartition.pendingConnectionCount--;
+      }
+      if (canBecomeIdle(conn) && getTotalConnectionCount() < poolMaximumActiveConnections) {
+        state.idleConnections.add(conn);
+        state.notifyAll();
+        return true;
+      }
+    }
+    closeConnection(conn);
+    return false;
+  }
+
+  private static class MaintenanceTask implements Runnable {
+    // the task must not keep an unused data source reachable
+    private final WeakReference<PooledDataSource> dataSource;
+
+    MaintenanceTask(PooledDataSource dataSource) {
+      this.dataSource = new WeakReference<>(dataSource);
+    }
+
+    @Override
+    public void run() {
+      PooledDataSource pooledDataSource = dataSource.get();
+      if (pooledDataSource == null) {
+        throw new IllegalStateException("The data source has been garbage collected.");
+      }
+      try {
+        pooledDataSource.maintain();
+      } catch (RuntimeException e) {
+        log.warn("Pool maintenance failed: " + e);
+      }
+    }
+  }
+
   /**
    * Unwraps a pooled connection to get to the 'real' connection
    *
@@ -587,6 +1357,8 @@ public class PooledDataSource implements DataSource {
 
   @Override
   protected void finalize() throws Throwable {
+    stopMaintenance();
+    metrics.unregisterMBean();
     forceCloseAll();
     super.finalize();
   }
@@ -0,0 +1,242 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * A connection of a {@link RoutingDataSource} that opens a primary and a replica connection on demand.
+ * <p>
+ * Settings such as the transaction isolation are remembered and applied to every physical connection;
+ * {@code commit()}, {@code rollback()} and {@code close()} are applied to all the open ones.
+ */
+class RoutingConnection implements InvocationHandler {
+
+  private static final Class<?>[] IFACES = new Class<?>[] { Connection.class };
+
+  private final RoutingDataSource dataSource;
+  private final String username;
+  private final String password;
+  private final Connection proxyConnection;
+  private final Map<Method, Object[]> settings = new LinkedHashMap<>();
+  private Connection primary;
+  private RoutingDataSource.ReplicaConnection replica;
+  private boolean autoCommit = true;
+  private boolean primaryUsedInTransaction;
+  private boolean closed;
+
+  RoutingConnection(RoutingDataSource dataSource, String username, String password) {
+    this.dataSource = dataSource;
+    this.username = username;
+    this.password = password;
+    this.proxyConnection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), IFACES, this);
+  }
+
+  Connection getProxyConnection() {
+    return proxyConnection;
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    String methodName = method.getName();
+    int argCount = args == null ? 0 : args.length;
+    if (Object.class.equals(method.getDeclaringClass())) {
+      return invokeObjectMethod(methodName, args);
+    }
+    switch (methodName) {
+      case "close":
+        close();
+        return null;
+      case "isClosed":
+        return closed;
+      case "getAutoCommit":
+        checkOpen();
+        return autoCommit;
+      case "setAutoCommit":
+        checkOpen();
+        autoCommit = (Boolean) args[0];
+        primaryUsedInTransaction = false;
+        applyToOpenConnections(method, args);
+        return null;
+      case "createStatement":
+      case "prepareStatement":
+      case "prepareCall":
+        checkOpen();
+        return invoke(StatementRoute.isReplicaAllowed(autoCommit) ? routeRead() : routeWrite(), method, args);
+      case "commit":
+      case "rollback":
+        if (argCount == 0) {
+          checkOpen();
+          primaryUsedInTransaction = false;
+          applyToOpenConnections(method, args);
+          return null;
+        }
+        // rollback to a savepoint
+        return invoke(routeWrite(), method, args);
+      case "setSavepoint":
+      case "releaseSavepoint":
+        checkOpen();
+        return invoke(routeWrite(), method, args);
+      default:
+        checkOpen();
+        if (methodName.startsWith("set") && argCount > 0) {
+          // connection settings, applied to the connections opened later as well
+          settings.put(method, args);
+          applyToOpenConnections(method, args);
+          return null;
+        }
+        return invoke(primary != null ? primary : replica != null ? replica.connection : routeWrite(), method, args);
+    }
+  }
+
+  private Connection routeRead() throws SQLException {
+    if (primaryUsedInTransaction) {
+      // read your own writes
+      return primary;
+    }
+    if (replica == null) {
+      RoutingDataSource.ReplicaConnection opened = dataSource.openReplicaConnection(username, password);
+      if (opened == null) {
+        return routeWrite();
+      }
+      replica = opened;
+      try {
+        configure(replica.connection);
+      } catch (SQLException | RuntimeException e) {
+        closeReplica();
+        throw e;
+      }
+    }
+    return replica.connection;
+  }
+
+  private Connection routeWrite() throws SQLException {
+    if (primary == null) {
+      Connection opened = dataSource.openPrimaryConnection(username, password);
+      try {
+        configure(opened);
+      } catch (SQLException | RuntimeException e) {
+        opened.close();
+        throw e;
+      }
+      primary = opened;
+    }
+    if (!autoCommit) {
+      primaryUsedInTransaction = true;
+    }
+    return primary;
+  }
+
+  private void configure(Connection connection) throws SQLException {
+    for (Map.Entry<Method, Object[]> setting : settings.entrySet()) {
+      invoke(connection, setting.getKey(), setting.getValue());
+    }
+    if (connection.getAutoCommit() != autoCommit) {
+      connection.setAutoCommit(autoCommit);
+    }
+  }
+
+  private void applyToOpenConnections(Method method, Object[] args) throws SQLException {
+    SQLException failure = null;
+    for (Connection connection : new Connection[] { primary, replica == null ? null : replica.connection }) {
+      if (connection != null) {
+        try {
+          invoke(connection, method, args);
+        } catch (SQLException e) {
+          if (failure == null) {
+            failure = e;
+          } else {
+            failure.addSuppressed(e);
+          }
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void close() throws SQLException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (primary != null) {
+        primary.close();
+      }
+    } finally {
+      primary = null;
+      closeReplica();
+    }
+  }
+
+  private void closeReplica() throws SQLException {
+    if (replica != null) {
+      RoutingDataSource.ReplicaConnection toClose = replica;
+      replica = null;
+      try {
+        toClose.connection.close();
+      } finally {
+        toClose.replica.release();
+      }
+    }
+  }
+
+  private void checkOpen() throws SQLException {
+    if (closed) {
+      throw new SQLException("Error accessing RoutingConnection. Connection is closed.");
+    }
+  }
+
+  private Object invokeObjectMethod(String methodName, Object[] args) {
+    switch (methodName) {
+      case "equals":
+        return proxyConnection == args[0];
+      case "hashCode":
+        return System.identityHashCode(proxyConnection);
+      default:
+        return "RoutingConnection[primary=" + primary + ", replica=" + (replica == null ? null : replica.connection) + "]";
+    }
+  }
+
+  private static Object invoke(Connection target, Method method, Object[] args) throws SQLException {
+    try {
+      return method.invoke(target, args);
+    } catch (Throwable t) {
+      Throwable cause = ExceptionUtil.unwrapThrowable(t);
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new SQLException(cause);
+    }
+  }
+
+}
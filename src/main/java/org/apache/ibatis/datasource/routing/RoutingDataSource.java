@@ -0,0 +1,232 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * A data source that sends the statements that only read data to read replicas and everything else to a primary.
+ * <p>
+ * The connections it returns are opened lazily: a physical connection is borrowed from the primary or from a replica
+ * when the first statement that needs it is prepared, see {@link StatementRoute}. A replica is used when
+ * <ul>
+ * <li>the statement is a {@code select} or has {@code useReplica="true"}, see
+ * {@link org.apache.ibatis.mapping.MappedStatement#isUseReplica()}, and</li>
+ * <li>no statement has been sent to the primary in the current transaction, so that a transaction reads its own
+ * writes.</li>
+ * </ul>
+ * Among the healthy replicas, the one with the fewest borrowed connections is chosen. A replica that fails to provide a
+ * connection is ejected for {@link #setReplicaEjectionTime(int) a while}; reads go to the primary when no replica is
+ * available.
+ *
+ * @since 3.5.5
+ */
+public class RoutingDataSource implements DataSource {
+
+  private static final Log log = LogFactory.getLog(RoutingDataSource.class);
+
+  private final DataSource primary;
+  private final List<Replica> replicas;
+  private final AtomicInteger nextReplica = new AtomicInteger();
+  private volatile int replicaEjectionTime = 30000;
+
+  static final class Replica {
+    private final DataSource dataSource;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private volatile long ejectedUntil;
+
+    private Replica(DataSource dataSource) {
+      this.dataSource = dataSource;
+    }
+
+    private boolean isEjected(long now) {
+      return ejectedUntil > now;
+    }
+
+    void release() {
+      outstanding.decrementAndGet();
+    }
+  }
+
+  static final class ReplicaConnection {
+    final Replica replica;
+    final Connection connection;
+
+    private ReplicaConnection(Replica replica, Connection connection) {
+      this.replica = replica;
+      this.connection = connection;
+    }
+  }
+
+  public RoutingDataSource(DataSource primary, List<? extends DataSource> replicas) {
+    this.primary = primary;
+    List<Replica> list = new ArrayList<>(replicas.size());
+    for (DataSource replica : replicas) {
+      list.add(new Replica(replica));
+    }
+    this.replicas = Collections.unmodifiableList(list);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return new RoutingConnection(this, null, null).getProxyConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return new RoutingConnection(this, username, password).getProxyConnection();
+  }
+
+  public DataSource getPrimary() {
+    return primary;
+  }
+
+  public int getReplicaCount() {
+    return replicas.size();
+  }
+
+  public DataSource getReplica(int index) {
+    return replicas.get(index).dataSource;
+  }
+
+  /**
+   * Gets the number of connections currently borrowed from a replica.
+   *
+   * @param index the index of the replica
+   * @return the number of outstanding connections
+   */
+  public int getReplicaOutstandingConnections(int index) {
+    return replicas.get(index).outstanding.get();
+  }
+
+  public boolean isReplicaEjected(int index) {
+    return replicas.get(index).isEjected(System.currentTimeMillis());
+  }
+
+  /**
+   * The time a replica is not used after it failed to provide a connection.
+   *
+   * @param milliseconds The ejection time
+   */
+  public void setReplicaEjectionTime(int milliseconds) {
+    this.replicaEjectionTime = milliseconds;
+  }
+
+  public int getReplicaEjectionTime() {
+    return replicaEjectionTime;
+  }
+
+  Connection openPrimaryConnection(String username, String password) throws SQLException {
+    return username == null ? primary.getConnection() : primary.getConnection(username, password);
+  }
+
+  /**
+   * Borrows a connection from the least loaded healthy replica.
+   *
+   * @return the connection, or {@code null} if no replica is available
+   */
+  ReplicaConnection openReplicaConnection(String username, String password) {
+    List<Replica> candidates = new ArrayList<>(replicas);
+    while (!candidates.isEmpty()) {
+      Replica replica = leastOutstanding(candidates);
+      if (replica == null) {
+        return null;
+      }
+      candidates.remove(replica);
+      replica.outstanding.incrementAndGet();
+      try {
+        Connection connection = username == null ? replica.dataSource.getConnection()
+            : replica.dataSource.getConnection(username, password);
+        return new ReplicaConnection(replica, connection);
+      } catch (SQLException | RuntimeException e) {
+        replica.release();
+        replica.ejectedUntil = System.currentTimeMillis() + replicaEjectionTime;
+        log.warn("Ejecting replica " + replicas.indexOf(replica) + " for " + replicaEjectionTime
+            + " milliseconds, it failed to provide a connection. Cause: " + e);
+      }
+    }
+    return null;
+  }
+
+  private Replica leastOutstanding(List<Replica> candidates) {
+    long now = System.currentTimeMillis();
+    int size = candidates.size();
+    // start at a rotating offset so that ties are spread over the replicas
+    int offset = Math.floorMod(nextReplica.getAndIncrement(), size);
+    Replica best = null;
+    for (int i = 0; i < size; i++) {
+      Replica replica = candidates.get((offset + i) % size);
+      if (!replica.isEjected(now) && (best == null || replica.outstanding.get() < best.outstanding.get())) {
+        best = replica;
+      }
+    }
+    return best;
+  }
+
+  @Override
+  public PrintWriter getLogWriter() throws SQLException {
+    return primary.getLogWriter();
+  }
+
+  @Override
+  public void setLogWriter(PrintWriter out) throws SQLException {
+    primary.setLogWriter(out);
+    for (Replica replica : replicas) {
+      replica.dataSource.setLogWriter(out);
+    }
+  }
+
+  @Override
+  public void setLoginTimeout(int seconds) throws SQLException {
+    primary.setLoginTimeout(seconds);
+    for (Replica replica : replicas) {
+      replica.dataSource.setLoginTimeout(seconds);
+    }
+  }
+
+  @Override
+  public int getLoginTimeout() throws SQLException {
+    return primary.getLoginTimeout();
+  }
+
+  @Override
+  public Logger getParentLogger() {
+    return Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    throw new SQLException(getClass().getName() + " is not a wrapper.");
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) {
+    return false;
+  }
+
+}
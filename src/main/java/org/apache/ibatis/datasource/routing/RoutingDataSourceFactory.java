@@ -0,0 +1,91 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.datasource.DataSourceException;
+import org.apache.ibatis.datasource.DataSourceFactory;
+import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
+
+/**
+ * Creates a {@link RoutingDataSource} of {@link org.apache.ibatis.datasource.pooled.PooledDataSource}s.
+ * <p>
+ * The properties of the primary are prefixed with {@code primary.}, those of a replica with
+ * {@code replica.<name>.}, e.g. {@code replica.east.url}. Replicas are ordered by name. The only other property is
+ * {@code replicaEjectionTime}.
+ *
+ * @since 3.5.5
+ */
+public class RoutingDataSourceFactory implements DataSourceFactory {
+
+  private static final String PRIMARY_PROPERTY_PREFIX = "primary.";
+  private static final String REPLICA_PROPERTY_PREFIX = "replica.";
+  private static final String REPLICA_EJECTION_TIME_PROPERTY = "replicaEjectionTime";
+
+  private RoutingDataSource dataSource;
+
+  @Override
+  public void setProperties(Properties properties) {
+    Properties primaryProperties = new Properties();
+    Map<String, Properties> replicaProperties = new TreeMap<>();
+    String ejectionTime = null;
+    for (String propertyName : properties.stringPropertyNames()) {
+      String value = properties.getProperty(propertyName);
+      if (propertyName.startsWith(PRIMARY_PROPERTY_PREFIX)) {
+        primaryProperties.setProperty(propertyName.substring(PRIMARY_PROPERTY_PREFIX.length()), value);
+      } else if (propertyName.startsWith(REPLICA_PROPERTY_PREFIX)
+          && propertyName.indexOf('.', REPLICA_PROPERTY_PREFIX.length()) > 0) {
+        int dot = propertyName.indexOf('.', REPLICA_PROPERTY_PREFIX.length());
+        replicaProperties.computeIfAbsent(propertyName.substring(REPLICA_PROPERTY_PREFIX.length(), dot), k -> new Properties())
+            .setProperty(propertyName.substring(dot + 1), value);
+      } else if (REPLICA_EJECTION_TIME_PROPERTY.equals(propertyName)) {
+        ejectionTime = value;
+      } else {
+        throw new DataSourceException("Unknown DataSource property: " + propertyName);
+      }
+    }
+    if (primaryProperties.isEmpty()) {
+      throw new DataSourceException("The routing data source requires the properties of the primary, e.g. primary.url.");
+    }
+    List<DataSource> replicas = new ArrayList<>();
+    for (Properties replica : replicaProperties.values()) {
+      replicas.add(createPooledDataSource(replica));
+    }
+    dataSource = new RoutingDataSource(createPooledDataSource(primaryProperties), replicas);
+    if (ejectionTime != null) {
+      dataSource.setReplicaEjectionTime(Integer.parseInt(ejectionTime));
+    }
+  }
+
+  @Override
+  public DataSource getDataSource() {
+    return dataSource;
+  }
+
+  private DataSource createPooledDataSource(Properties properties) {
+    PooledDataSourceFactory factory = new PooledDataSourceFactory();
+    factory.setProperties(properties);
+    return factory.getDataSource();
+  }
+
+}
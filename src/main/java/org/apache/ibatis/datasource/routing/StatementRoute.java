@@ -0,0 +1,80 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * Tells the connections of a {@link RoutingDataSource} whether the statement that is about to be prepared by the
+ * current thread may run on a read replica.
+ * <p>
+ * The executor sets the route of each {@link MappedStatement} around its execution, see
+ * {@link MappedStatement#isUseReplica()} and {@link MappedStatement#isUseReplicaInTransaction()}. Statements prepared
+ * without a route, e.g. by application code that uses the connection directly, go to the primary.
+ *
+ * @since 3.5.5
+ */
+public final class StatementRoute {
+
+  private static final ThreadLocal<MappedStatement> STATEMENT = new ThreadLocal<>();
+
+  private StatementRoute() {
+    // Prevent Instantiation
+  }
+
+  /**
+   * Sets the route of the given statement for the current thread.
+   *
+   * @param ms the statement that is executed
+   * @return the previous statement, to be passed to {@link #restore(MappedStatement)}
+   */
+  public static MappedStatement enter(MappedStatement ms) {
+    MappedStatement previous = STATEMENT.get();
+    STATEMENT.set(ms);
+    return previous;
+  }
+
+  /**
+   * Restores the route that was active before {@link #enter(MappedStatement)}.
+   *
+   * @param previous the value returned by {@link #enter(MappedStatement)}
+   */
+  public static void restore(MappedStatement previous) {
+    if (previous == null) {
+      STATEMENT.remove();
+    } else {
+      STATEMENT.set(previous);
+    }
+  }
+
+  /**
+   * Returns whether the statement executed by the current thread may run on a read replica.
+   * <p>
+   * Within a transaction only the statements that explicitly declare {@code useReplica="true"} may, the others read
+   * from the primary so that they see a consistent state along with the writes of the transaction.
+   *
+   * @param autoCommit whether the connection is in auto-commit mode
+   * @return true if a replica may be used
+   */
+  public static boolean isReplicaAllowed(boolean autoCommit) {
+    MappedStatement ms = STATEMENT.get();
+    if (ms == null) {
+      return false;
+    }
+    return autoCommit ? ms.isUseReplica() : ms.isUseReplicaInTransaction();
+  }
+
+}
@@ -0,0 +1,42 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.exceptions;
+
+/**
+ * Thrown when a statement is rejected by the {@link org.apache.ibatis.session.Bulkhead} of its namespace.
+ *
+ * @since 3.5.5
+ */
+public class BulkheadFullException extends PersistenceException {
+
+  private static final long serialVersionUID = -3478321960735106492L;
+
+  public BulkheadFullException() {
+    super();
+  }
+
+  public BulkheadFullException(String message) {
+    super(message);
+  }
+
+  public BulkheadFullException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+  public BulkheadFullException(Throwable cause) {
+    super(cause);
+  }
+}
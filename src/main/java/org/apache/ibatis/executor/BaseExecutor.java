@@ -26,6 +26,8 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.datasource.routing.RoutingDataSource;
+import org.apache.ibatis.datasource.routing.StatementRoute;
 import org.apache.ibatis.executor.statement.StatementUtil;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
@@ -61,6 +63,7 @@ public abstract class BaseExecutor implements Executor {
 
   protected int queryStack;
   private boolean closed;
+  private final boolean routeStatements;
 
   protected BaseExecutor(Configuration configuration, Transaction transaction) {
     this.transaction = transaction;
@@ -70,6 +73,8 @@ public abstract class BaseExecutor implements Executor {
     this.closed = false;
     this.configuration = configuration;
     this.wrapper = this;
+    this.routeStatements = configuration != null && configuration.getEnvironment() != null
+        && configuration.getEnvironment().getDataSource() instanceof RoutingDataSource;
   }
 
   @Override
@@ -114,7 +119,21 @@ public abstract class BaseExecutor implements Executor {
       throw new ExecutorException("Executor was closed.");
     }
     clearLocalCache();
-    return doUpdate(ms, parameter);
+    MappedStatement previousRoute = routeStatements ? StatementRoute.enter(ms) : null;
+    Throwable failure = null;
+    try {
+      return doUpdate(ms, parameter);
+    } catch (Throwable t) {
+      failure = t;
+      throw t;
+    } finally {
+      if (routeStatements) {
+        StatementRoute.restore(previousRoute);
+      }
+      if (queryStack == 0) {
+        releaseConnection(failure);
+      }
+    }
   }
 
   @Override
@@ -147,26 +166,36 @@ public abstract class BaseExecutor implements Executor {
       clearLocalCache();
     }
     List<E> list;
+    Throwable failure = null;
     try {
-      queryStack++;//增加查询递归层数
-      list = resultHandler == null ? (List<E>) localCache.getObject(key) : null;//如果resultHandler为空则从本地缓存中获取查询结果
-      if (list != null) {
-        handleLocallyCachedOutputParameters(ms, key, parameter, boundSql);//如果本地缓存中获取到的查询结果不为空则处理输出参数（输出参数仅限于存储过程）
-      } else {
-        list = queryFromDatabase(ms, parameter, rowBounds, resultHandler, key, boundSql);//本地缓存中结果为空则从数据库中查询
+      try {
+        queryStack++;//增加查询递归层数
+        list = resultHandler == null ? (List<E>) localCache.getObject(key) : null;//如果resultHandler为空则从本地缓存中获取查询结果
+        if (list != null) {
+          handleLocallyCachedOutputParameters(ms, key, parameter, boundSql);//如果本地缓存中获取到的查询结果不为空则处理输出参数（输出参数仅限于存储过程）
+        } else {
+          list = queryFromDatabase(ms, parameter, rowBounds, resultHandler, key, boundSql);//本地缓存中结果为空则从数据库中查询
+        }
+      } finally {
+        queryStack--;//查询完成减少查询层数
       }
-    } finally {
-      queryStack--;//查询完成减少查询层数
-    }
-    if (queryStack == 0) {//如果查询层数为0
-      for (DeferredLoad deferredLoad : deferredLoads) {//延迟加载将结果存储本地缓存中
-        deferredLoad.load();
+      if (queryStack == 0) {//如果查询层数为0
+        for (DeferredLoad deferredLoad : deferredLoads) {//延迟加载将结果存储本地缓存中
+          deferredLoad.load();
+        }
+        // issue #601
+        deferredLoads.clear();//清空延迟加载
+        if (configuration.getLocalCacheScope() == LocalCacheScope.STATEMENT) {//如果本地缓存作用域是STATEMENT则清除缓存
+          // issue #482
+          clearLocalCache();
+        }
       }
-      // issue #601
-      deferredLoads.clear();//清空延迟加载
-      if (configuration.getLocalCacheScope() == LocalCacheScope.STATEMENT) {//如果本地缓存作用域是STATEMENT则清除缓存
-        // issue #482
-        clearLocalCache();
+    } catch (Throwable t) {
+      failure = t;
+      throw t;
+    } finally {
+      if (queryStack == 0) {
+        releaseConnection(failure);
       }
     }
     return list;
@@ -175,7 +204,14 @@ public abstract class BaseExecutor implements Executor {
   @Override
   public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
     BoundSql boundSql = ms.getBoundSql(parameter);
-    return doQueryCursor(ms, parameter, rowBounds, boundSql);
+    MappedStatement previousRoute = routeStatements ? StatementRoute.enter(ms) : null;
+    try {
+      return doQueryCursor(ms, parameter, rowBounds, boundSql);
+    } finally {
+      if (routeStatements) {
+        StatementRoute.restore(previousRoute);
+      }
+    }
   }
 
   @Override
@@ -320,9 +356,13 @@ public abstract class BaseExecutor implements Executor {
   private <E> List<E> queryFromDatabase(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql) throws SQLException {
     List<E> list;
     localCache.putObject(key, EXECUTION_PLACEHOLDER);//将EXECUTION_PLACEHOLDER放入本地缓存中
+    MappedStatement previousRoute = routeStatements ? StatementRoute.enter(ms) : null;
     try {
       list = doQuery(ms, parameter, rowBounds, resultHandler, boundSql);
     } finally {
+      if (routeStatements) {
+        StatementRoute.restore(previousRoute);
+      }
       localCache.removeObject(key);//移除缓存中的EXECUTION_PLACEHOLDER
     }
     localCache.putObject(key, list);//将查询结果放入缓存中
@@ -332,6 +372,32 @@ public abstract class BaseExecutor implements Executor {
     return list;//返回查询结果
   }
 
+  /**
+   * Returns whether the connection can be released once no statement is running, i.e. the executor keeps no
+   * statements or result sets open on it.
+   *
+   * @return false by default
+   * @since 3.5.5
+   */
+  protected boolean isConnectionReleasable() {
+    return false;
+  }
+
+  private void releaseConnection(Throwable failure) throws SQLException {
+    if (!isConnectionReleasable()) {
+      return;
+    }
+    try {
+      transaction.releaseConnection();
+    } catch (SQLException | RuntimeException e) {
+      // do not hide the exception thrown by the statement
+      if (failure == null) {
+        throw e;
+      }
+      failure.addSuppressed(e);
+    }
+  }
+
   protected Connection getConnection(Log statementLog) throws SQLException {
     Connection connection = transaction.getConnection();
     if (statementLog.isDebugEnabled()) {
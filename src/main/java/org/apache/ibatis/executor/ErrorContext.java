@@ -83,6 +83,16 @@ public class ErrorContext {
     return this;
   }
 
+  /**
+   * Gets the object being processed, usually the id of the mapped statement that is executed.
+   *
+   * @return the object, or {@code null} if not set
+   * @since 3.5.5
+   */
+  public String getObject() {
+    return object;
+  }
+
   public ErrorContext cause(Throwable cause) {
     this.cause = cause;
     return this;
@@ -36,6 +36,8 @@ import org.apache.ibatis.transaction.Transaction;
  */
 public class SimpleExecutor extends BaseExecutor {
 
+  private boolean cursorOpened;
+
   public SimpleExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
   }
@@ -73,9 +75,16 @@ public class SimpleExecutor extends BaseExecutor {
     Statement stmt = prepareStatement(handler, ms.getStatementLog());
     Cursor<E> cursor = handler.queryCursor(stmt);
     stmt.closeOnCompletion();
+    // the connection is not released anymore, as the cursor reads from it until it is closed
+    cursorOpened = true;
     return cursor;
   }
 
+  @Override
+  protected boolean isConnectionReleasable() {
+    return !cursorOpened;
+  }
+
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) {
     return Collections.emptyList();
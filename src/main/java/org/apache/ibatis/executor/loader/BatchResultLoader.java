@@ -0,0 +1,267 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.ResultExtractor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.MetaClass;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.defaults.DefaultSqlSession.StrictMap;
+
+/**
+ * Loads the nested select of one result mapping for many parent rows at once.
+ * <p>
+ * The keys of the registered parents are sent to the nested statement in chunks of
+ * {@link ResultMapping#getBatchSize()} as a single list parameter (available as {@code list} and {@code collection},
+ * as with {@code SqlSession#selectList(String, Object)}). The returned rows are assigned back to their parents by
+ * comparing the properties mapped to the {@code foreignColumn} of the result mapping with the parent key.
+ *
+ * @since 3.5.5
+ */
+public class BatchResultLoader {
+
+  private final Configuration configuration;
+  private final Executor executor;
+  private final MappedStatement mappedStatement;
+  private final ResultMapping resultMapping;
+  private final ResultExtractor resultExtractor;
+  private final long creatorThreadId;
+
+  private final Map<CacheKey, Object> pendingKeys = new LinkedHashMap<>();
+  private final Map<CacheKey, List<Object>> loadedResults = new HashMap<>();
+  private final List<PendingParent> eagerParents = new ArrayList<>();
+  private String[] foreignProperties;
+
+  private static class PendingParent {
+    private final MetaObject metaObject;
+    private final CacheKey key;
+
+    PendingParent(MetaObject metaObject, CacheKey key) {
+      this.metaObject = metaObject;
+      this.key = key;
+    }
+  }
+
+  public BatchResultLoader(Configuration configuration, Executor executor, MappedStatement mappedStatement, ResultMapping resultMapping) {
+    this.configuration = configuration;
+    this.executor = executor;
+    this.mappedStatement = mappedStatement;
+    this.resultMapping = resultMapping;
+    this.resultExtractor = new ResultExtractor(configuration, configuration.getObjectFactory());
+    this.creatorThreadId = Thread.currentThread().getId();
+  }
+
+  /**
+   * Registers a parent whose property is assigned by the next call to {@link #loadEagerly()}.
+   */
+  public synchronized void addParent(MetaObject metaResultObject, Object parameterObject) {
+    eagerParents.add(new PendingParent(metaResultObject, register(parameterObject)));
+  }
+
+  /**
+   * Registers a parent whose property is loaded on first access, together with up to
+   * {@code batchSize - 1} other pending parents.
+   *
+   * @return a loader to be added to the {@link ResultLoaderMap} of the parent
+   */
+  public synchronized ResultLoader addLazyParent(Object parameterObject) {
+    CacheKey key = register(parameterObject);
+    return new BatchedResultLoader(key, wrapKeys(Collections.singletonList(parameterObject)));
+  }
+
+  /**
+   * Loads every pending key and assigns the results to the parents registered by {@link #addParent}.
+   */
+  public synchronized void loadEagerly() throws SQLException {
+    if (eagerParents.isEmpty()) {
+      return;
+    }
+    List<CacheKey> chunk = new ArrayList<>(Math.min(pendingKeys.size(), resultMapping.getBatchSize()));
+    for (CacheKey key : new ArrayList<>(pendingKeys.keySet())) {
+      chunk.add(key);
+      if (chunk.size() == resultMapping.getBatchSize()) {
+        load(chunk);
+        chunk.clear();
+      }
+    }
+    if (!chunk.isEmpty()) {
+      load(chunk);
+    }
+    for (PendingParent parent : eagerParents) {
+      parent.metaObject.setValue(resultMapping.getProperty(), extractResult(parent.key));
+    }
+    eagerParents.clear();
+  }
+
+  private synchronized Object loadResult(CacheKey key) throws SQLException {
+    if (!loadedResults.containsKey(key)) {
+      List<CacheKey> chunk = new ArrayList<>();
+      chunk.add(key);
+      for (CacheKey pendingKey : pendingKeys.keySet()) {
+        if (chunk.size() == resultMapping.getBatchSize()) {
+          break;
+        }
+        if (!pendingKey.equals(key)) {
+          chunk.add(pendingKey);
+        }
+      }
+      load(chunk);
+    }
+    return extractResult(key);
+  }
+
+  private CacheKey register(Object parameterObject) {
+    CacheKey key = createParentKey(parameterObject);
+    if (!loadedResults.containsKey(key)) {
+      pendingKeys.putIfAbsent(key, parameterObject);
+    }
+    return key;
+  }
+
+  private void load(List<CacheKey> keys) throws SQLException {
+    List<Object> parameters = new ArrayList<>(keys.size());
+    Map<CacheKey, List<Object>> results = new HashMap<>();
+    for (CacheKey key : keys) {
+      parameters.add(pendingKeys.remove(key));
+      results.put(key, new ArrayList<>());
+    }
+    List<Object> rows = selectList(wrapKeys(parameters));
+    for (Object row : rows) {
+      if (row != null) {
+        List<Object> children = results.get(createForeignKey(row));
+        if (children != null) {
+          children.add(row);
+        }
+      }
+    }
+    loadedResults.putAll(results);
+  }
+
+  private List<Object> selectList(Object parameterObject) throws SQLException {
+    Executor localExecutor = executor;
+    if (Thread.currentThread().getId() != this.creatorThreadId || localExecutor.isClosed()) {
+      localExecutor = ResultLoader.newExecutor(configuration);
+    }
+    try {
+      return localExecutor.query(mappedStatement, parameterObject, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+    } finally {
+      if (localExecutor != executor) {
+        localExecutor.close(false);
+      }
+    }
+  }
+
+  private Object extractResult(CacheKey key) {
+    List<Object> children = loadedResults.get(key);
+    return resultExtractor.extractObjectFromList(children == null ? new ArrayList<>() : new ArrayList<>(children),
+        resultMapping.getJavaType());
+  }
+
+  private Object wrapKeys(List<Object> keys) {
+    StrictMap<Object> map = new StrictMap<>();
+    map.put("collection", keys);
+    map.put("list", keys);
+    return map;
+  }
+
+  private CacheKey createParentKey(Object parameterObject) {
+    // values are compared as strings, like the keys of multiple result sets, so that e.g. Integer and Long ids match
+    CacheKey key = new CacheKey();
+    if (resultMapping.isCompositeResult()) {
+      MetaObject metaParameter = configuration.newMetaObject(parameterObject);
+      for (ResultMapping composite : resultMapping.getComposites()) {
+        key.update(String.valueOf(metaParameter.getValue(composite.getProperty())));
+      }
+    } else {
+      key.update(String.valueOf(parameterObject));
+    }
+    return key;
+  }
+
+  private CacheKey createForeignKey(Object row) {
+    MetaObject metaRow = configuration.newMetaObject(row);
+    CacheKey key = new CacheKey();
+    for (String property : getForeignProperties()) {
+      key.update(String.valueOf(metaRow.getValue(property)));
+    }
+    return key;
+  }
+
+  private String[] getForeignProperties() {
+    if (foreignProperties == null) {
+      String[] columns = resultMapping.getForeignColumn().split(",");
+      ResultMap resultMap = mappedStatement.getResultMaps().get(0);
+      String[] properties = new String[columns.length];
+      for (int i = 0; i < columns.length; i++) {
+        properties[i] = resolveForeignProperty(resultMap, columns[i].trim());
+      }
+      foreignProperties = properties;
+    }
+    return foreignProperties;
+  }
+
+  private String resolveForeignProperty(ResultMap resultMap, String column) {
+    for (ResultMapping mapping : resultMap.getResultMappings()) {
+      if (mapping.getProperty() != null && column.equalsIgnoreCase(mapping.getColumn())) {
+        return mapping.getProperty();
+      }
+    }
+    if (Map.class.isAssignableFrom(resultMap.getType())) {
+      return column;
+    }
+    String property = MetaClass.forClass(resultMap.getType(), configuration.getReflectorFactory())
+        .findProperty(column, configuration.isMapUnderscoreToCamelCase());
+    if (property == null) {
+      throw new ExecutorException("Could not find a property of " + resultMap.getType().getName() + " for foreignColumn '"
+          + column + "' of nested select '" + mappedStatement.getId() + "'.");
+    }
+    return property;
+  }
+
+  private class BatchedResultLoader extends ResultLoader {
+
+    private final CacheKey key;
+
+    BatchedResultLoader(CacheKey key, Object parameterObject) {
+      // the single key parameter is what a deserialized LoadPair falls back to
+      super(BatchResultLoader.this.configuration, BatchResultLoader.this.executor, BatchResultLoader.this.mappedStatement,
+          parameterObject, resultMapping.getJavaType(), null, null);
+      this.key = key;
+    }
+
+    @Override
+    public Object loadResult() throws SQLException {
+      resultObject = BatchResultLoader.this.loadResult(key);
+      return resultObject;
+    }
+  }
+
+}
@@ -0,0 +1,98 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.parameter;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.property.PropertyPath;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Reads the properties of the parameter objects of one class, as {@link MetaObject#getValue(String)} would.
+ * <p>
+ * The way the class is read is decided once: an object that has a type handler is bound as is, a property of a
+ * {@link Map} is read with {@link Map#get(Object)}, and a property of a plain bean is read through the cached
+ * {@link PropertyPath} of its {@link Reflector}. Only indexed properties, nested map properties and objects with a
+ * custom {@link ObjectWrapper} still go through a {@link MetaObject}.
+ * <p>
+ * Plans are created by {@link org.apache.ibatis.mapping.MappedStatement#getParameterBindingPlan(Object)}.
+ *
+ * @since 3.5.5
+ */
+public final class ParameterBindingPlan {
+
+  private enum Kind {
+    VALUE, MAP, BEAN, OTHER
+  }
+
+  private final Configuration configuration;
+  private final Kind kind;
+  private final Reflector reflector;
+
+  public ParameterBindingPlan(Configuration configuration, Object parameterObject) {
+    this.configuration = configuration;
+    Class<?> type = parameterObject.getClass();
+    ReflectorFactory reflectorFactory = configuration.getReflectorFactory();
+    if (configuration.getTypeHandlerRegistry().hasTypeHandler(type)) {
+      this.kind = Kind.VALUE;
+    } else if (parameterObject instanceof ObjectWrapper || configuration.getObjectWrapperFactory().hasWrapperFor(parameterObject)) {
+      // checked on the first object of the class, like MetaObject would for each one
+      this.kind = Kind.OTHER;
+    } else if (parameterObject instanceof Map) {
+      this.kind = Kind.MAP;
+    } else if (parameterObject instanceof Collection || !reflectorFactory.isClassCacheEnabled()) {
+      this.kind = Kind.OTHER;
+    } else {
+      this.kind = Kind.BEAN;
+    }
+    this.reflector = kind == Kind.BEAN ? reflectorFactory.findForClass(type) : null;
+  }
+
+  /**
+   * Returns the value of a property of a parameter object of the class this plan was created for.
+   */
+  public Object getValue(Object parameterObject, String property) {
+    switch (kind) {
+      case VALUE:
+        return parameterObject;
+      case MAP:
+        if (isSimpleName(property)) {
+          return ((Map<?, ?>) parameterObject).get(property);
+        }
+        break;
+      case BEAN:
+        PropertyPath path = reflector.getPropertyPath(property);
+        if (path != null) {
+          return path.getValue(parameterObject, configuration.getObjectFactory(), configuration.getObjectWrapperFactory(),
+              configuration.getReflectorFactory());
+        }
+        break;
+      default:
+        break;
+    }
+    return configuration.newMetaObject(parameterObject).getValue(property);
+  }
+
+  private static boolean isSimpleName(String property) {
+    return property.indexOf('.') < 0 && property.indexOf('[') < 0;
+  }
+
+}
@@ -21,8 +21,10 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -36,6 +38,7 @@ import org.apache.ibatis.cursor.defaults.DefaultCursor;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.loader.BatchResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoaderMap;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
@@ -92,9 +95,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private final Map<String, ResultMapping> nextResultMaps = new HashMap<>();
   private final Map<CacheKey, List<PendingRelation>> pendingRelations = new HashMap<>();
 
+  // batched nested selects
+  private final Map<ResultMapping, BatchResultLoader> batchResultLoaders = new IdentityHashMap<>();
+
   // Cached Automappings
   private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
 
+  // Cached instantiation plans
+  private final Map<String, ResultObjectPlan> resultObjectPlanCache = new HashMap<>();
+
   // temporary marking flag that indicate using constructor mapping (use field to reduce memory usage)
   private boolean useConstructorMappings;
 
@@ -117,6 +126,27 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
   }
 
+  /**
+   * How the result object of a result map is created from the current result set, resolved on the first row.
+   */
+  private static class ResultObjectPlan {
+    private final ResultSetWrapper rsw;
+    private final boolean typeHandlerForResultObject;
+    private final boolean defaultConstructor;
+    private final boolean lazyNestedQuery;
+    // automatic constructor mapping, resolved on first use
+    private List<Class<?>> constructorArgTypes;
+    private String[] constructorColumns;
+    private TypeHandler<?>[] constructorTypeHandlers;
+
+    ResultObjectPlan(ResultSetWrapper rsw, boolean typeHandlerForResultObject, boolean defaultConstructor, boolean lazyNestedQuery) {
+      this.rsw = rsw;
+      this.typeHandlerForResultObject = typeHandlerForResultObject;
+      this.defaultConstructor = defaultConstructor;
+      this.lazyNestedQuery = lazyNestedQuery;
+    }
+  }
+
   public DefaultResultSetHandler(Executor executor, MappedStatement mappedStatement, ParameterHandler parameterHandler, ResultHandler<?> resultHandler, BoundSql boundSql,
                                  RowBounds rowBounds) {
     this.executor = executor;
@@ -327,6 +357,21 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     } else {
       handleRowValuesForSimpleResultMap(rsw, resultMap, resultHandler, rowBounds, parentMapping);//将ResultSet中的内容转化为ResultMap指定的对象并存储在ResultHandler的list中
     }
+    loadBatchedNestedQueries();//执行本次收集到的批量嵌套查询
+  }
+
+  private void loadBatchedNestedQueries() throws SQLException {
+    if (batchResultLoaders.isEmpty()) {
+      return;
+    }
+    try {
+      for (BatchResultLoader batchResultLoader : batchResultLoaders.values()) {
+        batchResultLoader.loadEagerly();
+      }
+    } finally {
+      // lazy loaders keep their own reference, the next rows start a new batch
+      batchResultLoaders.clear();
+    }
   }
 
   private void ensureNoRowBounds() {//确保返回的结果集的limits在限制内（大于0或者小于Integer的最大值，这两个界限可能会发生变化）且启用了安全行边界
@@ -395,7 +440,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix) throws SQLException {
     final ResultLoaderMap lazyLoader = new ResultLoaderMap();//创建懒加载ResultMap
     Object rowValue = createResultObject(rsw, resultMap, lazyLoader, columnPrefix);//创建ResultMap所指定的需要封装的对象（如果采用无参构造则是空模板，没有数据）
-    if (rowValue != null && !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {//如果不含有能够处理resultMap指定封装对象的Handler
+    if (rowValue != null && !getResultObjectPlan(rsw, resultMap).typeHandlerForResultObject) {//如果不含有能够处理resultMap指定封装对象的Handler
       final MetaObject metaObject = configuration.newMetaObject(rowValue);//使用MetaObject封装rowValue
       boolean foundValues = this.useConstructorMappings;//是否使用有参构造方法创建对象
       if (shouldApplyAutomaticMappings(resultMap, false)) {//是否采用了自动映射
@@ -588,34 +633,47 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     this.useConstructorMappings = false; // 重置之前的映射结果
     final List<Class<?>> constructorArgTypes = new ArrayList<>();//创建构造方法参数类型list
     final List<Object> constructorArgs = new ArrayList<>();//创建构造方法参数值list
-    Object resultObject = createResultObject(rsw, resultMap, constructorArgTypes, constructorArgs, columnPrefix);//创建结果对象（没有任何数据只是个空模板）
-    if (resultObject != null && !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {//如果不含有结果对象类型的Handler
-      final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();//获取ResultMap
-      for (ResultMapping propertyMapping : propertyMappings) {
-        // issue gcode #109 && issue #149
-        if (propertyMapping.getNestedQueryId() != null && propertyMapping.isLazy()) {//检查ResultMap中是否存在嵌套查询且采用懒加载如果有则通过configuration创建代理对象（使用Javassist方式）作为resultObject
-          resultObject = configuration.getProxyFactory().createProxy(resultObject, lazyLoader, configuration, objectFactory, constructorArgTypes, constructorArgs);
+    final ResultObjectPlan plan = getResultObjectPlan(rsw, resultMap);
+    Object resultObject = createResultObject(rsw, resultMap, plan, constructorArgTypes, constructorArgs, columnPrefix);//创建结果对象（没有任何数据只是个空模板）
+    // issue gcode #109 && issue #149
+    if (resultObject != null && !plan.typeHandlerForResultObject && plan.lazyNestedQuery) {//存在懒加载的嵌套查询时通过configuration创建代理对象（使用Javassist方式）作为resultObject
+      resultObject = configuration.getProxyFactory().createProxy(resultObject, lazyLoader, configuration, objectFactory, constructorArgTypes, constructorArgs);
+    }
+    this.useConstructorMappings = resultObject != null && !constructorArgTypes.isEmpty(); // set current mapping result
+    return resultObject;
+  }
+
+  private ResultObjectPlan getResultObjectPlan(ResultSetWrapper rsw, ResultMap resultMap) {
+    ResultObjectPlan plan = resultObjectPlanCache.get(resultMap.getId());
+    if (plan == null || plan.rsw != rsw) {
+      // 每个结果集只解析一次，而不是每行都解析
+      final Class<?> resultType = resultMap.getType();
+      boolean lazyNestedQuery = false;
+      for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+        if (propertyMapping.getNestedQueryId() != null && propertyMapping.isLazy()) {
+          lazyNestedQuery = true;
           break;
         }
       }
+      plan = new ResultObjectPlan(rsw, hasTypeHandlerForResultObject(rsw, resultType),
+          resultType.isInterface() || MetaClass.forClass(resultType, reflectorFactory).hasDefaultConstructor(), lazyNestedQuery);
+      resultObjectPlanCache.put(resultMap.getId(), plan);
     }
-    this.useConstructorMappings = resultObject != null && !constructorArgTypes.isEmpty(); // set current mapping result
-    return resultObject;
+    return plan;
   }
 
-  private Object createResultObject(ResultSetWrapper rsw, ResultMap resultMap, List<Class<?>> constructorArgTypes, List<Object> constructorArgs, String columnPrefix)
+  private Object createResultObject(ResultSetWrapper rsw, ResultMap resultMap, ResultObjectPlan plan, List<Class<?>> constructorArgTypes, List<Object> constructorArgs, String columnPrefix)
       throws SQLException {
     final Class<?> resultType = resultMap.getType();//获取resultMap需要包装的对象类型
-    final MetaClass metaType = MetaClass.forClass(resultType, reflectorFactory);//resultType封装为MetaClass
     final List<ResultMapping> constructorMappings = resultMap.getConstructorResultMappings();//获取构造方法Mapping
-    if (hasTypeHandlerForResultObject(rsw, resultType)) {//如果含有能够处理结果类型的Handler
+    if (plan.typeHandlerForResultObject) {//如果含有能够处理结果类型的Handler
       return createPrimitiveResultObject(rsw, resultMap, columnPrefix);//创建原始结果对象
     } else if (!constructorMappings.isEmpty()) {//如果含有构造方法mapping
       return createParameterizedResultObject(rsw, resultType, constructorMappings, constructorArgTypes, constructorArgs, columnPrefix);
-    } else if (resultType.isInterface() || metaType.hasDefaultConstructor()) {//如果resultType是接口或者含有默认的构造方法
+    } else if (plan.defaultConstructor) {//如果resultType是接口或者含有默认的构造方法
       return objectFactory.create(resultType);//采用objectFactory创建
     } else if (shouldApplyAutomaticMappings(resultMap, false)) {
-      return createByConstructorSignature(rsw, resultType, constructorArgTypes, constructorArgs);
+      return createByConstructorSignature(rsw, resultType, plan, constructorArgTypes, constructorArgs);
     }
     throw new ExecutorException("Do not know how to create an instance of " + resultType);
   }
@@ -647,32 +705,47 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return foundValues ? objectFactory.create(resultType, constructorArgTypes, constructorArgs) : null;
   }
 
-  private Object createByConstructorSignature(ResultSetWrapper rsw, Class<?> resultType, List<Class<?>> constructorArgTypes, List<Object> constructorArgs) throws SQLException {
+  private Object createByConstructorSignature(ResultSetWrapper rsw, Class<?> resultType, ResultObjectPlan plan, List<Class<?>> constructorArgTypes, List<Object> constructorArgs) throws SQLException {
+    if (plan.constructorTypeHandlers == null) {
+      resolveConstructorSignature(rsw, resultType, plan);
+    }
+    return createUsingConstructor(rsw, resultType, plan, constructorArgTypes, constructorArgs);
+  }
+
+  private void resolveConstructorSignature(ResultSetWrapper rsw, Class<?> resultType, ResultObjectPlan plan) {
     final Constructor<?>[] constructors = resultType.getDeclaredConstructors();
-    final Constructor<?> defaultConstructor = findDefaultConstructor(constructors);
-    if (defaultConstructor != null) {
-      return createUsingConstructor(rsw, resultType, constructorArgTypes, constructorArgs, defaultConstructor);
-    } else {
-      for (Constructor<?> constructor : constructors) {
-        if (allowedConstructorUsingTypeHandlers(constructor, rsw.getJdbcTypes())) {
-          return createUsingConstructor(rsw, resultType, constructorArgTypes, constructorArgs, constructor);
+    Constructor<?> constructor = findDefaultConstructor(constructors);
+    if (constructor == null) {
+      for (Constructor<?> candidate : constructors) {
+        if (allowedConstructorUsingTypeHandlers(candidate, rsw.getJdbcTypes())) {
+          constructor = candidate;
+          break;
         }
       }
     }
-    throw new ExecutorException("No constructor found in " + resultType.getName() + " matching " + rsw.getClassNames());
+    if (constructor == null) {
+      throw new ExecutorException("No constructor found in " + resultType.getName() + " matching " + rsw.getClassNames());
+    }
+    final Class<?>[] parameterTypes = constructor.getParameterTypes();
+    final String[] columns = new String[parameterTypes.length];
+    final TypeHandler<?>[] typeHandlers = new TypeHandler<?>[parameterTypes.length];
+    for (int i = 0; i < parameterTypes.length; i++) {
+      columns[i] = rsw.getColumnNames().get(i);
+      typeHandlers[i] = rsw.getTypeHandler(parameterTypes[i], columns[i]);
+    }
+    plan.constructorArgTypes = Arrays.asList(parameterTypes);
+    plan.constructorColumns = columns;
+    plan.constructorTypeHandlers = typeHandlers;
   }
 
-  private Object createUsingConstructor(ResultSetWrapper rsw, Class<?> resultType, List<Class<?>> constructorArgTypes, List<Object> constructorArgs, Constructor<?> constructor) throws SQLException {
+  private Object createUsingConstructor(ResultSetWrapper rsw, Class<?> resultType, ResultObjectPlan plan, List<Class<?>> constructorArgTypes, List<Object> constructorArgs) throws SQLException {
     boolean foundValues = false;
-    for (int i = 0; i < constructor.getParameterTypes().length; i++) {
-      Class<?> parameterType = constructor.getParameterTypes()[i];
-      String columnName = rsw.getColumnNames().get(i);
-      TypeHandler<?> typeHandler = rsw.getTypeHandler(parameterType, columnName);
-      Object value = typeHandler.getResult(rsw.getResultSet(), columnName);
-      constructorArgTypes.add(parameterType);
+    for (int i = 0; i < plan.constructorTypeHandlers.length; i++) {
+      Object value = plan.constructorTypeHandlers[i].getResult(rsw.getResultSet(), plan.constructorColumns[i]);
       constructorArgs.add(value);
       foundValues = value != null || foundValues;
     }
+    constructorArgTypes.addAll(plan.constructorArgTypes);
     return foundValues ? objectFactory.create(resultType, constructorArgTypes, constructorArgs) : null;
   }
 
@@ -744,7 +817,20 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     final Class<?> nestedQueryParameterType = nestedQuery.getParameterMap().getType();
     final Object nestedQueryParameterObject = prepareParameterForNestedQuery(rs, propertyMapping, nestedQueryParameterType, columnPrefix);
     Object value = null;
-    if (nestedQueryParameterObject != null) {
+    if (nestedQueryParameterObject != null && propertyMapping.getBatchSize() > 0) {
+      final BatchResultLoader batchResultLoader = batchResultLoaders.computeIfAbsent(propertyMapping,
+          k -> new BatchResultLoader(configuration, executor, nestedQuery, propertyMapping));
+      if (propertyMapping.isLazy()) {
+        lazyLoader.addLoader(property, metaResultObject, batchResultLoader.addLazyParent(nestedQueryParameterObject));
+      } else {
+        batchResultLoader.addParent(metaResultObject, nestedQueryParameterObject);
+        if (resultHandler != null) {
+          // a custom ResultHandler receives each row before the result set is exhausted
+          batchResultLoader.loadEagerly();
+        }
+      }
+      value = DEFERRED;
+    } else if (nestedQueryParameterObject != null) {
       final BoundSql nestedBoundSql = nestedQuery.getBoundSql(nestedQueryParameterObject);
       final CacheKey key = executor.createCacheKey(nestedQuery, nestedQueryParameterObject, RowBounds.DEFAULT, nestedBoundSql);
       final Class<?> targetType = propertyMapping.getJavaType();
@@ -896,7 +982,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     } else {
       final ResultLoaderMap lazyLoader = new ResultLoaderMap();
       rowValue = createResultObject(rsw, resultMap, lazyLoader, columnPrefix);
-      if (rowValue != null && !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
+      if (rowValue != null && !getResultObjectPlan(rsw, resultMap).typeHandlerForResultObject) {
         final MetaObject metaObject = configuration.newMetaObject(rowValue);
         boolean foundValues = this.useConstructorMappings;
         if (shouldApplyAutomaticMappings(resultMap, true)) {
@@ -18,14 +18,18 @@ package org.apache.ibatis.mapping;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.executor.parameter.ParameterBindingPlan;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
+import org.apache.ibatis.session.Bulkhead;
 import org.apache.ibatis.session.Configuration;
 
 /**
@@ -42,11 +46,14 @@ public final class MappedStatement {
   private ResultSetType resultSetType;
   private SqlSource sqlSource;
   private Cache cache;
+  private Bulkhead bulkhead;
   private ParameterMap parameterMap;
   private List<ResultMap> resultMaps;
   private boolean flushCacheRequired;
   private boolean useCache;
   private boolean resultOrdered;
+  private boolean useReplica;
+  private boolean useReplicaInTransaction;
   private SqlCommandType sqlCommandType;
   private KeyGenerator keyGenerator;
   private String[] keyProperties;
@@ -56,6 +63,7 @@ public final class MappedStatement {
   private Log statementLog;
   private LanguageDriver lang;
   private String[] resultSets;
+  private final ConcurrentMap<Class<?>, ParameterBindingPlan> parameterBindingPlans = new ConcurrentHashMap<>();
 
   MappedStatement() {
     // constructor disabled
@@ -129,6 +137,14 @@ public final class MappedStatement {
       return this;
     }
 
+    /**
+     * @since 3.5.5
+     */
+    public Builder bulkhead(Bulkhead bulkhead) {
+      mappedStatement.bulkhead = bulkhead;
+      return this;
+    }
+
     public Builder flushCacheRequired(boolean flushCacheRequired) {
       mappedStatement.flushCacheRequired = flushCacheRequired;
       return this;
@@ -144,6 +160,22 @@ public final class MappedStatement {
       return this;
     }
 
+    /**
+     * @since 3.5.5
+     */
+    public Builder useReplica(boolean useReplica) {
+      mappedStatement.useReplica = useReplica;
+      return this;
+    }
+
+    /**
+     * @since 3.5.5
+     */
+    public Builder useReplicaInTransaction(boolean useReplicaInTransaction) {
+      mappedStatement.useReplicaInTransaction = useReplicaInTransaction;
+      return this;
+    }
+
     public Builder keyGenerator(KeyGenerator keyGenerator) {
       mappedStatement.keyGenerator = keyGenerator;
       return this;
@@ -249,6 +281,16 @@ public final class MappedStatement {
     return cache;
   }
 
+  /**
+   * Returns the bulkhead that limits the concurrent executions of the statements of this namespace.
+   *
+   * @return the bulkhead, or null if the namespace has none
+   * @since 3.5.5
+   */
+  public Bulkhead getBulkhead() {
+    return bulkhead;
+  }
+
   public boolean isFlushCacheRequired() {
     return flushCacheRequired;
   }
@@ -261,6 +303,28 @@ public final class MappedStatement {
     return resultOrdered;
   }
 
+  /**
+   * Returns whether this statement may be executed on a read replica when the data source is a
+   * {@link org.apache.ibatis.datasource.routing.RoutingDataSource}.
+   *
+   * @return true if the statement only reads data
+   * @since 3.5.5
+   */
+  public boolean isUseReplica() {
+    return useReplica;
+  }
+
+  /**
+   * Returns whether this statement may be executed on a read replica within a transaction, i.e. when auto-commit is
+   * off. Only statements that explicitly declare {@code useReplica="true"} do.
+   *
+   * @return true if the statement may run on a replica within a transaction
+   * @since 3.5.5
+   */
+  public boolean isUseReplicaInTransaction() {
+    return useReplicaInTransaction;
+  }
+
   public String getDatabaseId() {
     return databaseId;
   }
@@ -314,6 +378,22 @@ public final class MappedStatement {
     return boundSql;
   }
 
+  /**
+   * Gets the plan that reads the properties of parameter objects of the same class as the given one.
+   *
+   * @param parameterObject
+   *          a non-null parameter object
+   * @return the binding plan of the class of the parameter object
+   * @since 3.5.5
+   */
+  public ParameterBindingPlan getParameterBindingPlan(Object parameterObject) {
+    ParameterBindingPlan plan = parameterBindingPlans.get(parameterObject.getClass());
+    if (plan == null) {
+      plan = parameterBindingPlans.computeIfAbsent(parameterObject.getClass(), type -> new ParameterBindingPlan(configuration, parameterObject));
+    }
+    return plan;
+  }
+
   private static String[] delimitedStringToArray(String in) {
     if (in == null || in.trim().length() == 0) {
       return null;
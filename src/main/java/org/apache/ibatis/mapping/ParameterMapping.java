@@ -16,6 +16,7 @@
 package org.apache.ibatis.mapping;
 
 import java.sql.ResultSet;
+import java.util.Collection;
 
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
@@ -126,6 +127,11 @@ public class ParameterMapping {
         Configuration configuration = parameterMapping.configuration;
         TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
         parameterMapping.typeHandler = typeHandlerRegistry.getTypeHandler(parameterMapping.javaType, parameterMapping.jdbcType);
+        if (parameterMapping.typeHandler == null && parameterMapping.jdbcType == JdbcType.ARRAY
+            && (parameterMapping.javaType.isArray() || Collection.class.isAssignableFrom(parameterMapping.javaType))) {
+          // a Java array or collection is bound as a single SQL array, e.g. for "id = ANY(?)"
+          parameterMapping.typeHandler = typeHandlerRegistry.getTypeHandler(JdbcType.ARRAY);
+        }
       }
     }
 
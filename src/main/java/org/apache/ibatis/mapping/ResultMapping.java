@@ -45,6 +45,7 @@ public class ResultMapping {
   private String resultSet;
   private String foreignColumn;
   private boolean lazy;
+  private int batchSize;
 
   ResultMapping() {
   }
@@ -132,6 +133,11 @@ public class ResultMapping {
       return this;
     }
 
+    public Builder batchSize(int batchSize) {
+      resultMapping.batchSize = batchSize;
+      return this;
+    }
+
     public ResultMapping build() {
       // lock down collections
       resultMapping.flags = Collections.unmodifiableList(resultMapping.flags);
@@ -167,6 +173,18 @@ public class ResultMapping {
           throw new IllegalStateException("There should be the same number of columns and foreignColumns in property " + resultMapping.property);
         }
       }
+      if (resultMapping.batchSize > 0) {
+        if (resultMapping.nestedQueryId == null || resultMapping.foreignColumn == null) {
+          throw new IllegalStateException("Batched loading requires both select and foreignColumn in property " + resultMapping.property);
+        }
+        if (resultMapping.flags.contains(ResultFlag.CONSTRUCTOR)) {
+          throw new IllegalStateException("Batched loading is not supported for constructor argument " + resultMapping.property);
+        }
+        int numColumns = resultMapping.composites.isEmpty() ? 1 : resultMapping.composites.size();
+        if (numColumns != resultMapping.foreignColumn.split(",").length) {
+          throw new IllegalStateException("There should be the same number of columns and foreignColumns in property " + resultMapping.property);
+        }
+      }
     }
 
     private void resolveTypeHandler() {
@@ -251,6 +269,16 @@ public class ResultMapping {
     this.lazy = lazy;
   }
 
+  /**
+   * Gets the maximum number of parent keys sent to the nested select in one query.
+   *
+   * @return the batch size, or {@code 0} when the nested select is executed once per parent row
+   * @since 3.5.5
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -294,6 +322,7 @@ public class ResultMapping {
     sb.append(", resultSet='").append(resultSet).append('\'');
     sb.append(", foreignColumn='").append(foreignColumn).append('\'');
     sb.append(", lazy=").append(lazy);
+    sb.append(", batchSize=").append(batchSize);
     sb.append('}');
     return sb.toString();
   }
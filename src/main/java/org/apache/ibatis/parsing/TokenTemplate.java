@@ -0,0 +1,139 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.parsing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A text split once into literal segments and the contents of the tokens between them, e.g. the {@code ${...}}
+ * placeholders of a SQL text node, which is rendered on every execution of its statement. A text that is parsed only
+ * once is better served by {@link GenericTokenParser#parse(String)}, which does not split it first.
+ * <p>
+ * Rendering a template with a {@link TokenHandler} gives the same result as {@link GenericTokenParser#parse(String)}
+ * with the same tokens, including escaped (backslash-prefixed) and unclosed tokens, without scanning the text again.
+ * Templates are immutable and can be shared between threads.
+ *
+ * @since 3.5.5
+ */
+public final class TokenTemplate {
+
+  private static final String[] NO_TOKENS = new String[0];
+
+  private final String[] literals;
+  private final String[] tokens;
+  private final int length;
+
+  private TokenTemplate(String[] literals, String[] tokens, int length) {
+    this.literals = literals;
+    this.tokens = tokens;
+    this.length = length;
+  }
+
+  public static TokenTemplate compile(String openToken, String closeToken, String text) {
+    if (text == null || text.isEmpty()) {
+      return new TokenTemplate(new String[] {""}, NO_TOKENS, 0);
+    }
+    // search open token
+    int start = text.indexOf(openToken);
+    if (start == -1) {
+      return new TokenTemplate(new String[] {text}, NO_TOKENS, text.length());
+    }
+    char[] src = text.toCharArray();
+    int offset = 0;
+    List<String> literals = new ArrayList<>();
+    List<String> tokens = new ArrayList<>();
+    final StringBuilder literal = new StringBuilder(text.length());
+    StringBuilder expression = null;
+    while (start > -1) {
+      if (start > 0 && src[start - 1] == '\\') {
+        // this open token is escaped. remove the backslash and continue.
+        literal.append(src, offset, start - offset - 1).append(openToken);
+        offset = start + openToken.length();
+      } else {
+        // found open token. let's search close token.
+        if (expression == null) {
+          expression = new StringBuilder();
+        } else {
+          expression.setLength(0);
+        }
+        literal.append(src, offset, start - offset);
+        offset = start + openToken.length();
+        int end = text.indexOf(closeToken, offset);
+        while (end > -1) {
+          if (end > offset && src[end - 1] == '\\') {
+            // this close token is escaped. remove the backslash and continue.
+            expression.append(src, offset, end - offset - 1).append(closeToken);
+            offset = end + closeToken.length();
+            end = text.indexOf(closeToken, offset);
+          } else {
+            expression.append(src, offset, end - offset);
+            break;
+          }
+        }
+        if (end == -1) {
+          // close token was not found.
+          literal.append(src, start, src.length - start);
+          offset = src.length;
+        } else {
+          literals.add(literal.toString());
+          literal.setLength(0);
+          tokens.add(expression.toString());
+          offset = end + closeToken.length();
+        }
+      }
+      start = text.indexOf(openToken, offset);
+    }
+    if (offset < src.length) {
+      literal.append(src, offset, src.length - offset);
+    }
+    literals.add(literal.toString());
+    return new TokenTemplate(literals.toArray(new String[0]), tokens.toArray(NO_TOKENS), text.length());
+  }
+
+  /**
+   * Returns whether the text contains at least one token.
+   */
+  public boolean hasTokens() {
+    return tokens.length > 0;
+  }
+
+  /**
+   * Returns the contents of the tokens, in order of appearance.
+   */
+  public List<String> getTokens() {
+    return Collections.unmodifiableList(Arrays.asList(tokens));
+  }
+
+  /**
+   * Replaces every token with the value returned by the handler. The handler is called once per token, in order of
+   * appearance.
+   */
+  public String render(TokenHandler handler) {
+    if (tokens.length == 0) {
+      return literals[0];
+    }
+    // the result is rarely much shorter than the text, e.g. #{id} becomes ?
+    final StringBuilder builder = new StringBuilder(length);
+    for (int i = 0; i < tokens.length; i++) {
+      builder.append(literals[i]).append(handler.handleToken(tokens[i]));
+    }
+    return builder.append(literals[tokens.length]).toString();
+  }
+
+}
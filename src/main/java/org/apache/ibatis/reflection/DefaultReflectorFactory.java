@@ -15,14 +15,62 @@
  */
 package org.apache.ibatis.reflection;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.reflection.invoker.InvokerFactory;
+
 public class DefaultReflectorFactory implements ReflectorFactory {
   private boolean classCacheEnabled = true;
   private final ConcurrentMap<Class<?>, Reflector> reflectorMap = new ConcurrentHashMap<>();
+  private final InvokerFactory invokerFactory;
+  private ReflectorIndex reflectorIndex;
 
   public DefaultReflectorFactory() {
+    this(Reflector.DEFAULT_INVOKER_FACTORY);
+  }
+
+  /**
+   * Creates a factory whose reflectors use the given invoker factory.
+   *
+   * @param invokerFactory the invoker factory
+   * @since 3.5.5
+   */
+  protected DefaultReflectorFactory(InvokerFactory invokerFactory) {
+    this.invokerFactory = invokerFactory;
+  }
+
+  /**
+   * Loads the {@link ReflectorIndex} named by the {@code index} property, a comma separated list of class path
+   * resources.
+   */
+  @Override
+  public void setProperties(Properties properties) {
+    String resources = properties.getProperty("index");
+    if (resources == null) {
+      return;
+    }
+    for (String resource : resources.split(",")) {
+      try (InputStream inputStream = Resources.getResourceAsStream(resource.trim())) {
+        addReflectorIndex(ReflectorIndex.read(inputStream));
+      } catch (IOException e) {
+        throw new ReflectionException("Error loading reflector index '" + resource.trim() + "'.  Cause: " + e, e);
+      }
+    }
+  }
+
+  /**
+   * Adds precomputed metadata that is used instead of scanning the indexed classes.
+   *
+   * @param reflectorIndex the index
+   * @since 3.5.5
+   */
+  public void addReflectorIndex(ReflectorIndex reflectorIndex) {
+    this.reflectorIndex = this.reflectorIndex == null ? reflectorIndex : this.reflectorIndex.merge(reflectorIndex);
   }
 
   @Override
@@ -39,10 +87,27 @@ public class DefaultReflectorFactory implements ReflectorFactory {
   public Reflector findForClass(Class<?> type) {
     if (classCacheEnabled) {
       // synchronized (type) removed see issue #461
-      return reflectorMap.computeIfAbsent(type, Reflector::new);
+      return reflectorMap.computeIfAbsent(type, this::createReflector);
     } else {
-      return new Reflector(type);
+      return createReflector(type);
+    }
+  }
+
+  /**
+   * Creates the reflector of a class that is not cached yet.
+   *
+   * @param type the class to reflect
+   * @return the reflector
+   * @since 3.5.5
+   */
+  protected Reflector createReflector(Class<?> type) {
+    if (reflectorIndex != null) {
+      Reflector reflector = reflectorIndex.newReflector(type, invokerFactory);
+      if (reflector != null) {
+        return reflector;
+      }
     }
+    return new Reflector(type, invokerFactory);
   }
 
 }
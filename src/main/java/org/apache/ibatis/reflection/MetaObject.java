@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.property.PropertyPath;
 import org.apache.ibatis.reflection.property.PropertyTokenizer;
 import org.apache.ibatis.reflection.wrapper.BeanWrapper;
 import org.apache.ibatis.reflection.wrapper.CollectionWrapper;
@@ -37,6 +38,7 @@ public class MetaObject {
   private final ObjectFactory objectFactory;
   private final ObjectWrapperFactory objectWrapperFactory;
   private final ReflectorFactory reflectorFactory;
+  private Reflector beanReflector;
 
   private MetaObject(Object object, ObjectFactory objectFactory, ObjectWrapperFactory objectWrapperFactory, ReflectorFactory reflectorFactory) {
     this.originalObject = object;
@@ -110,6 +112,10 @@ public class MetaObject {
   }
 
   public Object getValue(String name) {
+    PropertyPath path = getPropertyPath(name);
+    if (path != null) {
+      return path.getValue(this);
+    }
     PropertyTokenizer prop = new PropertyTokenizer(name);
     if (prop.hasNext()) {
       MetaObject metaValue = metaObjectForProperty(prop.getIndexedName());
@@ -124,6 +130,11 @@ public class MetaObject {
   }
 
   public void setValue(String name, Object value) {
+    PropertyPath path = getPropertyPath(name);
+    if (path != null) {
+      path.setValue(this, value);
+      return;
+    }
     PropertyTokenizer prop = new PropertyTokenizer(name);
     if (prop.hasNext()) {
       MetaObject metaValue = metaObjectForProperty(prop.getIndexedName());//prop.getIndexedName()：获取属性
@@ -141,6 +152,16 @@ public class MetaObject {
     }
   }
 
+  private PropertyPath getPropertyPath(String name) {
+    if (objectWrapper.getClass() != BeanWrapper.class || !reflectorFactory.isClassCacheEnabled()) {
+      return null;
+    }
+    if (beanReflector == null) {
+      beanReflector = reflectorFactory.findForClass(originalObject.getClass());
+    }
+    return beanReflector.getPropertyPath(name);
+  }
+
   public MetaObject metaObjectForProperty(String name) {
     Object value = getValue(name);
     return MetaObject.forObject(value, objectFactory, objectWrapperFactory, reflectorFactory);
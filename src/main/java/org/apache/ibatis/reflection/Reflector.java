@@ -33,13 +33,15 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.ibatis.reflection.invoker.AmbiguousMethodInvoker;
-import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
 import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.InvokerFactory;
 import org.apache.ibatis.reflection.invoker.MethodInvoker;
-import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
 import org.apache.ibatis.reflection.property.PropertyNamer;
+import org.apache.ibatis.reflection.property.PropertyPath;
 
 /**
  * This class represents a cached set of class definition information that
@@ -49,7 +51,11 @@ import org.apache.ibatis.reflection.property.PropertyNamer;
  */
 public class Reflector {
 
+  static final InvokerFactory DEFAULT_INVOKER_FACTORY = new InvokerFactory() {
+  };
+
   private final Class<?> type;
+  private final InvokerFactory invokerFactory;
   private final String[] readablePropertyNames;
   private final String[] writablePropertyNames;
   private final Map<String, Invoker> setMethods = new HashMap<>();
@@ -59,15 +65,50 @@ public class Reflector {
   private Constructor<?> defaultConstructor;
 
   private Map<String, String> caseInsensitivePropertyMap = new HashMap<>();
+  private final ConcurrentMap<String, PropertyPath> propertyPaths = new ConcurrentHashMap<>();
 
   public Reflector(Class<?> clazz) {
+    this(clazz, DEFAULT_INVOKER_FACTORY);
+  }
+
+  /**
+   * Creates a reflector whose getter and setter invokers are created by the given factory.
+   *
+   * @param clazz the class to reflect
+   * @param invokerFactory the invoker factory
+   * @since 3.5.5
+   */
+  public Reflector(Class<?> clazz, InvokerFactory invokerFactory) {
     type = clazz;
+    this.invokerFactory = invokerFactory;
     addDefaultConstructor(clazz);//添加无参构造方法
     addGetMethods(clazz);//添加GET方法
     addSetMethods(clazz);//添加set方法
     addFields(clazz);//添加属性
     readablePropertyNames = getMethods.keySet().toArray(new String[0]);//Map<String, Invoker> getMethods = new HashMap<>();用于封装get方法，readablePropertyNames用于保存get方法名
     writablePropertyNames = setMethods.keySet().toArray(new String[0]);//Map<String, Invoker> setMethods = new HashMap<>();用于封装set方法，writablePropertyNames用于保存set方法名
+    addCaseInsensitivePropertyNames();
+  }
+
+  /**
+   * Creates a reflector from metadata that has been resolved before, see {@link ReflectorIndex}.
+   */
+  Reflector(Class<?> clazz, InvokerFactory invokerFactory, Constructor<?> defaultConstructor,
+      Map<String, Invoker> getMethods, Map<String, Class<?>> getTypes,
+      Map<String, Invoker> setMethods, Map<String, Class<?>> setTypes) {
+    this.type = clazz;
+    this.invokerFactory = invokerFactory;
+    this.defaultConstructor = defaultConstructor;
+    this.getMethods.putAll(getMethods);
+    this.getTypes.putAll(getTypes);
+    this.setMethods.putAll(setMethods);
+    this.setTypes.putAll(setTypes);
+    readablePropertyNames = this.getMethods.keySet().toArray(new String[0]);
+    writablePropertyNames = this.setMethods.keySet().toArray(new String[0]);
+    addCaseInsensitivePropertyNames();
+  }
+
+  private void addCaseInsensitivePropertyNames() {
     for (String propName : readablePropertyNames) {
       caseInsensitivePropertyMap.put(propName.toUpperCase(Locale.ENGLISH), propName);
     }
@@ -127,7 +168,7 @@ public class Reflector {
         ? new AmbiguousMethodInvoker(method, MessageFormat.format(
             "Illegal overloaded getter method with ambiguous type for property ''{0}'' in class ''{1}''. This breaks the JavaBeans specification and can cause unpredictable results.",
             name, method.getDeclaringClass().getName()))
-        : new MethodInvoker(method);
+        : invokerFactory.createMethodInvoker(method);
     getMethods.put(name, invoker);
     Type returnType = TypeParameterResolver.resolveReturnType(method, type);
     getTypes.put(name, typeToClass(returnType));
@@ -194,7 +235,7 @@ public class Reflector {
   }
 
   private void addSetMethod(String name, Method method) {
-    MethodInvoker invoker = new MethodInvoker(method);
+    MethodInvoker invoker = invokerFactory.createMethodInvoker(method);
     setMethods.put(name, invoker);
     Type[] paramTypes = TypeParameterResolver.resolveParamTypes(method, type);
     setTypes.put(name, typeToClass(paramTypes[0]));
@@ -244,7 +285,7 @@ public class Reflector {
 
   private void addSetField(Field field) {
     if (isValidPropertyName(field.getName())) {
-      setMethods.put(field.getName(), new SetFieldInvoker(field));
+      setMethods.put(field.getName(), invokerFactory.createSetFieldInvoker(field));
       Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
       setTypes.put(field.getName(), typeToClass(fieldType));
     }
@@ -252,7 +293,7 @@ public class Reflector {
 
   private void addGetField(Field field) {
     if (isValidPropertyName(field.getName())) {
-      getMethods.put(field.getName(), new GetFieldInvoker(field));
+      getMethods.put(field.getName(), invokerFactory.createGetFieldInvoker(field));
       Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
       getTypes.put(field.getName(), typeToClass(fieldType));
     }
@@ -444,4 +485,19 @@ public class Reflector {
   public String findPropertyName(String name) {
     return caseInsensitivePropertyMap.get(name.toUpperCase(Locale.ENGLISH));
   }
+
+  /**
+   * Gets the compiled form of a property path rooted at this class.
+   *
+   * @param path - the property path, e.g. {@code order.customer.id}
+   * @return The compiled path, or null if the path contains indexed properties
+   * @since 3.5.5
+   */
+  public PropertyPath getPropertyPath(String path) {
+    PropertyPath propertyPath = propertyPaths.get(path);
+    if (propertyPath == null && PropertyPath.isCompilable(path)) {
+      propertyPath = propertyPaths.computeIfAbsent(path, p -> new PropertyPath(this, p));
+    }
+    return propertyPath;
+  }
 }
@@ -15,8 +15,20 @@
  */
 package org.apache.ibatis.reflection;
 
+import java.util.Properties;
+
 public interface ReflectorFactory {
 
+  /**
+   * Sets configuration properties.
+   *
+   * @param properties configuration properties
+   * @since 3.5.5
+   */
+  default void setProperties(Properties properties) {
+    // NOP
+  }
+
   boolean isClassCacheEnabled();
 
   void setClassCacheEnabled(boolean classCacheEnabled);
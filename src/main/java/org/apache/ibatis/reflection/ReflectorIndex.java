@@ -0,0 +1,584 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.zip.CRC32;
+
+import org.apache.ibatis.builder.xml.XMLConfigBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.io.ResolverUtil;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMap;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.reflection.invoker.AmbiguousMethodInvoker;
+import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.InvokerFactory;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Reflection metadata of a set of classes that has been resolved ahead of time, usually at build time.
+ * <p>
+ * A {@link Reflector} scans every method of a class and its super types, resolves getter and setter conflicts and
+ * generic property types. The index stores the outcome of that work, i.e. which member backs each property and the
+ * resolved property type, so that {@link DefaultReflectorFactory} can create a reflector by looking up the members
+ * directly. Classes that are not in the index, or whose members no longer match the index, are reflected as usual.
+ * Each entry records a fingerprint of the class files of the class and its super types, so that a class that has
+ * been changed after the index was created, e.g. by adding a property or changing the type of a getter, is detected.
+ * <p>
+ * The index can be created with {@link #main(String[])}, e.g. from the build:
+ *
+ * <pre>
+ * java org.apache.ibatis.reflection.ReflectorIndex target/classes/META-INF/mybatis/reflector.idx mybatis-config.xml com.example.domain
+ * </pre>
+ *
+ * and is loaded with {@code <reflectorFactory type="..."><property name="index" value="META-INF/mybatis/reflector.idx"/></reflectorFactory>}.
+ *
+ * @since 3.5.5
+ */
+public class ReflectorIndex {
+
+  private static final int MAGIC = 0x4d42524c;
+  private static final int VERSION = 2;
+  private static final int FIELD = -1;
+
+  private static final Map<String, Class<?>> PRIMITIVE_TYPES = new HashMap<>();
+
+  static {
+    for (Class<?> primitive : new Class<?>[] { boolean.class, byte.class, char.class, short.class, int.class,
+        long.class, float.class, double.class, void.class }) {
+      PRIMITIVE_TYPES.put(primitive.getName(), primitive);
+    }
+  }
+
+  private final Map<String, ClassEntry> entries;
+
+  private static class ClassEntry {
+    private final long fingerprint;
+    private final boolean hasDefaultConstructor;
+    private final List<PropertyEntry> getters;
+    private final List<PropertyEntry> setters;
+
+    ClassEntry(long fingerprint, boolean hasDefaultConstructor, List<PropertyEntry> getters, List<PropertyEntry> setters) {
+      this.fingerprint = fingerprint;
+      this.hasDefaultConstructor = hasDefaultConstructor;
+      this.getters = getters;
+      this.setters = setters;
+    }
+  }
+
+  private static class PropertyEntry {
+    private final String name;
+    private final String declaringClass;
+    private final String memberName;
+    // null for fields
+    private final String[] parameterTypes;
+    private final String type;
+
+    PropertyEntry(String name, String declaringClass, String memberName, String[] parameterTypes, String type) {
+      this.name = name;
+      this.declaringClass = declaringClass;
+      this.memberName = memberName;
+      this.parameterTypes = parameterTypes;
+      this.type = type;
+    }
+  }
+
+  private ReflectorIndex(Map<String, ClassEntry> entries) {
+    this.entries = entries;
+  }
+
+  /**
+   * Creates the index of the given classes.
+   * <p>
+   * Classes with ambiguous getters or setters are left out, they are reflected at runtime and fail there as usual.
+   *
+   * @param types the classes to index
+   * @return the index
+   */
+  public static ReflectorIndex create(Collection<Class<?>> types) {
+    Map<String, ClassEntry> entries = new LinkedHashMap<>();
+    for (Class<?> type : types) {
+      ClassEntry entry = createEntry(new Reflector(type));
+      if (entry != null) {
+        entries.put(type.getName(), entry);
+      }
+    }
+    return new ReflectorIndex(entries);
+  }
+
+  /**
+   * Creates the index of the result and parameter types used by the statements of a configuration.
+   *
+   * @param configuration a configuration with all mappers loaded
+   * @return the index
+   */
+  public static ReflectorIndex create(Configuration configuration) {
+    return create(collectTypes(configuration));
+  }
+
+  private static Set<Class<?>> collectTypes(Configuration configuration) {
+    Set<Class<?>> types = new LinkedHashSet<>();
+    for (ResultMap resultMap : new LinkedHashSet<>(configuration.getResultMaps())) {
+      addBeanType(configuration, types, resultMap.getType());
+    }
+    for (ParameterMap parameterMap : new LinkedHashSet<>(configuration.getParameterMaps())) {
+      addBeanType(configuration, types, parameterMap.getType());
+    }
+    for (MappedStatement mappedStatement : new LinkedHashSet<>(configuration.getMappedStatements())) {
+      // inline result maps of resultType are not registered in the configuration
+      for (ResultMap resultMap : mappedStatement.getResultMaps()) {
+        addBeanType(configuration, types, resultMap.getType());
+      }
+      if (mappedStatement.getParameterMap() != null) {
+        addBeanType(configuration, types, mappedStatement.getParameterMap().getType());
+      }
+    }
+    return types;
+  }
+
+  private static void addBeanType(Configuration configuration, Set<Class<?>> types, Class<?> type) {
+    if (type != null && !type.isPrimitive() && !type.isArray() && !type.isInterface() && type != Object.class
+        && !configuration.getTypeHandlerRegistry().hasTypeHandler(type)) {
+      types.add(type);
+    }
+  }
+
+  private static ClassEntry createEntry(Reflector reflector) {
+    List<PropertyEntry> getters = new ArrayList<>();
+    for (String name : reflector.getGetablePropertyNames()) {
+      PropertyEntry property = createProperty(name, reflector.getGetInvoker(name), reflector.getGetterType(name));
+      if (property == null) {
+        return null;
+      }
+      getters.add(property);
+    }
+    List<PropertyEntry> setters = new ArrayList<>();
+    for (String name : reflector.getSetablePropertyNames()) {
+      PropertyEntry property = createProperty(name, reflector.getSetInvoker(name), reflector.getSetterType(name));
+      if (property == null) {
+        return null;
+      }
+      setters.add(property);
+    }
+    long fingerprint;
+    try {
+      fingerprint = fingerprint(reflector.getType());
+    } catch (IOException e) {
+      // a class without a class file cannot be checked against the index
+      return null;
+    }
+    return new ClassEntry(fingerprint, reflector.hasDefaultConstructor(), getters, setters);
+  }
+
+  /**
+   * Computes a hash of the class files of a class, its super classes and its interfaces, i.e. of everything a
+   * {@link Reflector} looks at. The CRC that a jar stores for each entry is used when the class comes from a jar, so
+   * that the class file does not have to be read. Classes of the JDK are identified by the Java version instead.
+   *
+   * @throws IOException if a class file cannot be found or read, e.g. for a class generated at runtime
+   */
+  private static long fingerprint(Class<?> type) throws IOException {
+    Set<Class<?>> visited = new LinkedHashSet<>();
+    for (Class<?> currentClass = type; currentClass != null && currentClass != Object.class; currentClass = currentClass.getSuperclass()) {
+      addTypes(currentClass, visited);
+    }
+    long hash = 1;
+    boolean jdkType = false;
+    for (Class<?> visitedType : visited) {
+      if (visitedType.getClassLoader() == null) {
+        jdkType = true;
+      } else {
+        hash = 31 * hash + classFileCrc(visitedType);
+      }
+    }
+    if (jdkType) {
+      hash = 31 * hash + System.getProperty("java.version", "").hashCode();
+    }
+    return hash;
+  }
+
+  private static void addTypes(Class<?> type, Set<Class<?>> visited) {
+    if (visited.add(type)) {
+      for (Class<?> anInterface : type.getInterfaces()) {
+        addTypes(anInterface, visited);
+      }
+    }
+  }
+
+  private static long classFileCrc(Class<?> type) throws IOException {
+    URL url = type.getClassLoader().getResource(type.getName().replace('.', '/') + ".class");
+    if (url == null) {
+      throw new IOException("Class file of " + type.getName() + " not found.");
+    }
+    URLConnection connection = url.openConnection();
+    if (connection instanceof JarURLConnection) {
+      JarEntry jarEntry = ((JarURLConnection) connection).getJarEntry();
+      if (jarEntry != null && jarEntry.getCrc() != -1) {
+        return jarEntry.getCrc();
+      }
+    }
+    CRC32 crc = new CRC32();
+    byte[] buffer = new byte[8192];
+    try (InputStream inputStream = connection.getInputStream()) {
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        crc.update(buffer, 0, read);
+      }
+    }
+    return crc.getValue();
+  }
+
+  private static PropertyEntry createProperty(String name, Invoker invoker, Class<?> type) {
+    if (invoker instanceof AmbiguousMethodInvoker) {
+      return null;
+    } else if (invoker instanceof MethodInvoker) {
+      Method method = ((MethodInvoker) invoker).getMethod();
+      Class<?>[] parameterTypes = method.getParameterTypes();
+      String[] parameterTypeNames = new String[parameterTypes.length];
+      for (int i = 0; i < parameterTypes.length; i++) {
+        parameterTypeNames[i] = parameterTypes[i].getName();
+      }
+      return new PropertyEntry(name, method.getDeclaringClass().getName(), method.getName(), parameterTypeNames, type.getName());
+    } else if (invoker instanceof GetFieldInvoker) {
+      Field field = ((GetFieldInvoker) invoker).getField();
+      return new PropertyEntry(name, field.getDeclaringClass().getName(), field.getName(), null, type.getName());
+    } else if (invoker instanceof SetFieldInvoker) {
+      Field field = ((SetFieldInvoker) invoker).getField();
+      return new PropertyEntry(name, field.getDeclaringClass().getName(), field.getName(), null, type.getName());
+    }
+    return null;
+  }
+
+  /**
+   * Returns whether the index contains the given class.
+   *
+   * @param type the class
+   * @return true if the class is indexed
+   */
+  public boolean contains(Class<?> type) {
+    return entries.containsKey(type.getName());
+  }
+
+  /**
+   * Gets the number of indexed classes.
+   *
+   * @return the number of classes
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Combines this index with another one, the entries of the other index win.
+   *
+   * @param other the other index
+   * @return a new index
+   */
+  public ReflectorIndex merge(ReflectorIndex other) {
+    Map<String, ClassEntry> merged = new HashMap<>(entries);
+    merged.putAll(other.entries);
+    return new ReflectorIndex(merged);
+  }
+
+  /**
+   * Creates the reflector of an indexed class.
+   *
+   * @return the reflector, or null if the class is not indexed or does not match the index anymore
+   */
+  Reflector newReflector(Class<?> type, InvokerFactory invokerFactory) {
+    ClassEntry entry = entries.get(type.getName());
+    if (entry == null) {
+      return null;
+    }
+    try {
+      if (entry.fingerprint != fingerprint(type)) {
+        // the class has changed since the index was created
+        return null;
+      }
+      MemberResolver resolver = new MemberResolver(type);
+      Constructor<?> defaultConstructor = entry.hasDefaultConstructor ? type.getDeclaredConstructor() : null;
+      Map<String, Invoker> getMethods = new HashMap<>();
+      Map<String, Class<?>> getTypes = new HashMap<>();
+      for (PropertyEntry property : entry.getters) {
+        Class<?> memberType;
+        if (property.parameterTypes == null) {
+          Field field = resolver.findField(property);
+          getMethods.put(property.name, invokerFactory.createGetFieldInvoker(field));
+          memberType = field.getType();
+        } else {
+          Method method = resolver.findMethod(property);
+          getMethods.put(property.name, invokerFactory.createMethodInvoker(method));
+          memberType = method.getReturnType();
+        }
+        getTypes.put(property.name, resolver.resolveType(property.type, memberType));
+      }
+      Map<String, Invoker> setMethods = new HashMap<>();
+      Map<String, Class<?>> setTypes = new HashMap<>();
+      for (PropertyEntry property : entry.setters) {
+        Class<?> memberType;
+        if (property.parameterTypes == null) {
+          Field field = resolver.findField(property);
+          if (Modifier.isFinal(field.getModifiers()) && Modifier.isStatic(field.getModifiers())) {
+            return null;
+          }
+          setMethods.put(property.name, invokerFactory.createSetFieldInvoker(field));
+          memberType = field.getType();
+        } else {
+          Method method = resolver.findMethod(property);
+          setMethods.put(property.name, invokerFactory.createMethodInvoker(method));
+          memberType = method.getParameterTypes()[0];
+        }
+        setTypes.put(property.name, resolver.resolveType(property.type, memberType));
+      }
+      return new Reflector(type, invokerFactory, defaultConstructor, getMethods, getTypes, setMethods, setTypes);
+    } catch (ReflectiveOperationException | LinkageError | SecurityException | IOException e) {
+      // the class has changed since the index was created
+      return null;
+    }
+  }
+
+  /**
+   * Looks up the members of the index entries of a class. The members of each declaring class are listed once and
+   * matched by name, so that the parameter types need not be loaded by name.
+   */
+  private static class MemberResolver {
+    private final ClassLoader classLoader;
+    private final Map<String, Class<?>> superClasses = new HashMap<>();
+    private final Map<Class<?>, Method[]> declaredMethods = new HashMap<>();
+
+    MemberResolver(Class<?> type) {
+      this.classLoader = type.getClassLoader() != null ? type.getClassLoader() : ReflectorIndex.class.getClassLoader();
+      for (Class<?> currentClass = type; currentClass != null; currentClass = currentClass.getSuperclass()) {
+        superClasses.put(currentClass.getName(), currentClass);
+      }
+    }
+
+    Field findField(PropertyEntry property) throws ReflectiveOperationException {
+      return declaringClass(property).getDeclaredField(property.memberName);
+    }
+
+    Method findMethod(PropertyEntry property) throws ReflectiveOperationException {
+      Class<?> declaringClass = declaringClass(property);
+      Method[] methods = declaredMethods.get(declaringClass);
+      if (methods == null) {
+        methods = declaringClass.getDeclaredMethods();
+        declaredMethods.put(declaringClass, methods);
+      }
+      Method result = null;
+      for (Method method : methods) {
+        if (method.getName().equals(property.memberName) && hasParameterTypes(method, property.parameterTypes)
+            && (result == null || result.getReturnType().isAssignableFrom(method.getReturnType()))) {
+          // the most specific return type wins over bridge methods, as with Class.getDeclaredMethod()
+          result = method;
+        }
+      }
+      if (result == null) {
+        throw new NoSuchMethodException(declaringClass.getName() + "." + property.memberName);
+      }
+      return result;
+    }
+
+    private static boolean hasParameterTypes(Method method, String[] parameterTypes) {
+      if (method.getParameterCount() != parameterTypes.length) {
+        return false;
+      }
+      Class<?>[] actualTypes = method.getParameterTypes();
+      for (int i = 0; i < parameterTypes.length; i++) {
+        if (!actualTypes[i].getName().equals(parameterTypes[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Returns the property type, which is usually the type of the member itself, unless a type variable has been
+     * resolved.
+     */
+    Class<?> resolveType(String name, Class<?> memberType) throws ClassNotFoundException {
+      return memberType.getName().equals(name) ? memberType : classForName(name, classLoader);
+    }
+
+    private Class<?> declaringClass(PropertyEntry property) throws ClassNotFoundException {
+      Class<?> declaringClass = superClasses.get(property.declaringClass);
+      // e.g. a default method of an interface
+      return declaringClass != null ? declaringClass : classForName(property.declaringClass, classLoader);
+    }
+  }
+
+  private static Class<?> classForName(String name, ClassLoader classLoader) throws ClassNotFoundException {
+    Class<?> primitive = PRIMITIVE_TYPES.get(name);
+    return primitive != null ? primitive : Class.forName(name, false, classLoader);
+  }
+
+  /**
+   * Writes the index.
+   *
+   * @param outputStream the stream to write to, it is not closed
+   * @throws IOException if the index could not be written
+   */
+  public void write(OutputStream outputStream) throws IOException {
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(entries.size());
+    for (Map.Entry<String, ClassEntry> entry : entries.entrySet()) {
+      out.writeUTF(entry.getKey());
+      out.writeLong(entry.getValue().fingerprint);
+      out.writeBoolean(entry.getValue().hasDefaultConstructor);
+      writeProperties(out, entry.getValue().getters);
+      writeProperties(out, entry.getValue().setters);
+    }
+    out.flush();
+  }
+
+  private static void writeProperties(DataOutputStream out, List<PropertyEntry> properties) throws IOException {
+    out.writeInt(properties.size());
+    for (PropertyEntry property : properties) {
+      out.writeUTF(property.name);
+      out.writeUTF(property.declaringClass);
+      out.writeUTF(property.memberName);
+      if (property.parameterTypes == null) {
+        out.writeInt(FIELD);
+      } else {
+        out.writeInt(property.parameterTypes.length);
+        for (String parameterType : property.parameterTypes) {
+          out.writeUTF(parameterType);
+        }
+      }
+      out.writeUTF(property.type);
+    }
+  }
+
+  /**
+   * Reads an index written by {@link #write(OutputStream)}.
+   *
+   * @param inputStream the stream to read from, it is not closed
+   * @return the index
+   * @throws IOException if the index could not be read
+   */
+  public static ReflectorIndex read(InputStream inputStream) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a reflector index.");
+    }
+    int version = in.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported reflector index version " + version + ".");
+    }
+    int size = in.readInt();
+    Map<String, ClassEntry> entries = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      String className = in.readUTF();
+      long fingerprint = in.readLong();
+      boolean hasDefaultConstructor = in.readBoolean();
+      List<PropertyEntry> getters = readProperties(in);
+      List<PropertyEntry> setters = readProperties(in);
+      entries.put(className, new ClassEntry(fingerprint, hasDefaultConstructor, getters, setters));
+    }
+    return new ReflectorIndex(entries);
+  }
+
+  private static List<PropertyEntry> readProperties(DataInputStream in) throws IOException {
+    int size = in.readInt();
+    List<PropertyEntry> properties = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      String name = in.readUTF();
+      String declaringClass = in.readUTF();
+      String memberName = in.readUTF();
+      int parameterCount = in.readInt();
+      String[] parameterTypes = null;
+      if (parameterCount != FIELD) {
+        parameterTypes = new String[parameterCount];
+        for (int j = 0; j < parameterCount; j++) {
+          parameterTypes[j] = in.readUTF();
+        }
+      }
+      properties.add(new PropertyEntry(name, declaringClass, memberName, parameterTypes, in.readUTF()));
+    }
+    return properties;
+  }
+
+  /**
+   * Creates an index file.
+   * <p>
+   * The first argument is the file to write. Each further argument is either a MyBatis configuration resource
+   * (ending with {@code .xml}) whose statement types are indexed, or a package whose classes are indexed.
+   *
+   * @param args the output file followed by configuration resources and package names
+   * @throws Exception if the index could not be created
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length < 2) {
+      System.err.println("Usage: ReflectorIndex <output file> <config resource or package>...");
+      System.exit(1);
+    }
+    Set<Class<?>> types = new LinkedHashSet<>();
+    for (int i = 1; i < args.length; i++) {
+      if (args[i].endsWith(".xml")) {
+        try (InputStream inputStream = Resources.getResourceAsStream(args[i])) {
+          types.addAll(collectTypes(new XMLConfigBuilder(inputStream).parse()));
+        }
+      } else {
+        ResolverUtil<Object> resolverUtil = new ResolverUtil<>();
+        resolverUtil.find(new ResolverUtil.IsA(Object.class), args[i]);
+        for (Class<?> type : resolverUtil.getClasses()) {
+          if (!type.isInterface() && !type.isAnnotation() && !type.isAnonymousClass()) {
+            types.add(type);
+          }
+        }
+      }
+    }
+    ReflectorIndex index = create(types);
+    File file = new File(args[0]);
+    if (file.getParentFile() != null) {
+      file.getParentFile().mkdirs();
+    }
+    try (OutputStream outputStream = new FileOutputStream(file)) {
+      index.write(outputStream);
+    }
+    System.out.println("Indexed " + index.size() + " classes into " + args[0]);
+  }
+
+}
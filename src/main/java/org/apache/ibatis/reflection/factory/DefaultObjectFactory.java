@@ -18,6 +18,7 @@ package org.apache.ibatis.reflection.factory;
 import java.io.Serializable;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -28,6 +29,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.apache.ibatis.reflection.ReflectionException;
@@ -40,6 +42,40 @@ public class DefaultObjectFactory implements ObjectFactory, Serializable {
 
   private static final long serialVersionUID = -8855120656740914948L;
 
+  private static final Class<?>[] NO_ARG_TYPES = new Class<?>[0];
+
+  // resolved (and if necessary accessible) constructors, rebuilt after deserialization
+  private transient volatile Map<ConstructorKey, Constructor<?>> constructorCache;
+
+  private static final class ConstructorKey {
+    private final Class<?> type;
+    private final Class<?>[] argTypes;
+    private final int hashCode;
+
+    ConstructorKey(Class<?> type, Class<?>[] argTypes) {
+      this.type = type;
+      this.argTypes = argTypes;
+      this.hashCode = 31 * type.hashCode() + Arrays.hashCode(argTypes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ConstructorKey)) {
+        return false;
+      }
+      ConstructorKey other = (ConstructorKey) o;
+      return type == other.type && Arrays.equals(argTypes, other.argTypes);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
   @Override
   public <T> T create(Class<T> type) {
     return create(type, null, null);
@@ -55,31 +91,10 @@ public class DefaultObjectFactory implements ObjectFactory, Serializable {
 
   private  <T> T instantiateClass(Class<T> type, List<Class<?>> constructorArgTypes, List<Object> constructorArgs) {
     try {
-      Constructor<T> constructor;
       if (constructorArgTypes == null || constructorArgs == null) {//采用无参构造方法
-        constructor = type.getDeclaredConstructor();
-        try {
-          return constructor.newInstance();
-        } catch (IllegalAccessException e) {
-          if (Reflector.canControlMemberAccessible()) {
-            constructor.setAccessible(true);//由于JDK的安全检查耗时较多.所以通过setAccessible(true)的方式关闭安全检查就可以达到提升反射速度的目的
-            return constructor.newInstance();//再次尝试
-          } else {
-            throw e;
-          }
-        }
-      }
-      constructor = type.getDeclaredConstructor(constructorArgTypes.toArray(new Class[0]));//采用有参构造方法
-      try {
-        return constructor.newInstance(constructorArgs.toArray(new Object[0]));//使用有参构造方法创建对象
-      } catch (IllegalAccessException e) {
-        if (Reflector.canControlMemberAccessible()) {
-          constructor.setAccessible(true);
-          return constructor.newInstance(constructorArgs.toArray(new Object[0]));
-        } else {
-          throw e;
-        }
+        return newInstance(type, NO_ARG_TYPES, new Object[0]);
       }
+      return newInstance(type, constructorArgTypes.toArray(new Class<?>[0]), constructorArgs.toArray(new Object[0]));//采用有参构造方法
     } catch (Exception e) {
       String argTypes = Optional.ofNullable(constructorArgTypes).orElseGet(Collections::emptyList)
           .stream().map(Class::getSimpleName).collect(Collectors.joining(","));
@@ -89,6 +104,40 @@ public class DefaultObjectFactory implements ObjectFactory, Serializable {
     }
   }
 
+  @SuppressWarnings("unchecked")
+  private <T> T newInstance(Class<T> type, Class<?>[] argTypes, Object[] args) throws Exception {
+    Map<ConstructorKey, Constructor<?>> cache = getConstructorCache();
+    ConstructorKey key = new ConstructorKey(type, argTypes);
+    Constructor<T> constructor = (Constructor<T>) cache.get(key);
+    if (constructor != null) {
+      return constructor.newInstance(args);
+    }
+    constructor = type.getDeclaredConstructor(argTypes);
+    T instance;
+    try {
+      instance = constructor.newInstance(args);
+    } catch (IllegalAccessException e) {
+      if (Reflector.canControlMemberAccessible()) {
+        constructor.setAccessible(true);//由于JDK的安全检查耗时较多.所以通过setAccessible(true)的方式关闭安全检查就可以达到提升反射速度的目的
+        instance = constructor.newInstance(args);//再次尝试
+      } else {
+        throw e;
+      }
+    }
+    // only constructors that could be called are cached
+    cache.put(key, constructor);
+    return instance;
+  }
+
+  private Map<ConstructorKey, Constructor<?>> getConstructorCache() {
+    Map<ConstructorKey, Constructor<?>> cache = constructorCache;
+    if (cache == null) {
+      cache = new ConcurrentHashMap<>();
+      constructorCache = cache;
+    }
+    return cache;
+  }
+
   protected Class<?> resolveInterface(Class<?> type) {
     Class<?> classToCreate;
     if (type == List.class || type == Collection.class || type == Iterable.class) {
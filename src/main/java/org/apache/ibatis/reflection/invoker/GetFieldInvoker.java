@@ -47,4 +47,14 @@ public class GetFieldInvoker implements Invoker {
   public Class<?> getType() {
     return field.getType();
   }
+
+  /**
+   * Gets the field this invoker reads.
+   *
+   * @return the field
+   * @since 3.5.5
+   */
+  public Field getField() {
+    return field;
+  }
 }
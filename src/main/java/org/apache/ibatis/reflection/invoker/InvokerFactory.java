@@ -0,0 +1,45 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import org.apache.ibatis.reflection.Reflector;
+
+/**
+ * Creates the invokers a {@link Reflector} uses to read and write properties.
+ * <p>
+ * The default methods create the reflection based {@link MethodInvoker}, {@link GetFieldInvoker} and
+ * {@link SetFieldInvoker}.
+ *
+ * @since 3.5.5
+ */
+public interface InvokerFactory {
+
+  default MethodInvoker createMethodInvoker(Method method) {
+    return new MethodInvoker(method);
+  }
+
+  default GetFieldInvoker createGetFieldInvoker(Field field) {
+    return new GetFieldInvoker(field);
+  }
+
+  default SetFieldInvoker createSetFieldInvoker(Field field) {
+    return new SetFieldInvoker(field);
+  }
+
+}
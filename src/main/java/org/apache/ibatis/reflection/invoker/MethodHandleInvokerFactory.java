@@ -0,0 +1,222 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.lang.UsesJava8;
+import org.apache.ibatis.reflection.Reflector;
+
+/**
+ * An {@link InvokerFactory} that creates invokers backed by {@link MethodHandle}s.
+ * <p>
+ * Each handle is adapted once to a generic {@code (Object, Object[])Object} signature and called with
+ * {@code invokeExact}, which avoids the per call access checks of {@link Method#invoke} and {@link Field#get}.
+ * When a handle cannot be created (e.g. for a final field or a member that cannot be made accessible),
+ * the invoker falls back to plain reflection.
+ *
+ * @since 3.5.5
+ */
+public class MethodHandleInvokerFactory implements InvokerFactory {
+
+  private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+  private static final Map<Class<?>, List<Class<?>>> UNBOXED_TYPES = new HashMap<>();
+
+  static {
+    UNBOXED_TYPES.put(Boolean.class, Arrays.asList(boolean.class));
+    UNBOXED_TYPES.put(Byte.class, Arrays.asList(byte.class, short.class, int.class, long.class, float.class, double.class));
+    UNBOXED_TYPES.put(Short.class, Arrays.asList(short.class, int.class, long.class, float.class, double.class));
+    UNBOXED_TYPES.put(Character.class, Arrays.asList(char.class, int.class, long.class, float.class, double.class));
+    UNBOXED_TYPES.put(Integer.class, Arrays.asList(int.class, long.class, float.class, double.class));
+    UNBOXED_TYPES.put(Long.class, Arrays.asList(long.class, float.class, double.class));
+    UNBOXED_TYPES.put(Float.class, Arrays.asList(float.class, double.class));
+    UNBOXED_TYPES.put(Double.class, Arrays.asList(double.class));
+  }
+
+  @Override
+  public MethodInvoker createMethodInvoker(Method method) {
+    return new MethodHandleMethodInvoker(method);
+  }
+
+  @Override
+  public GetFieldInvoker createGetFieldInvoker(Field field) {
+    return new MethodHandleGetFieldInvoker(field);
+  }
+
+  @Override
+  public SetFieldInvoker createSetFieldInvoker(Field field) {
+    return new MethodHandleSetFieldInvoker(field);
+  }
+
+  private interface HandleFactory {
+    MethodHandle create(MethodHandles.Lookup lookup) throws IllegalAccessException;
+  }
+
+  private static MethodHandle createHandle(AccessibleObject member, int parameterCount, HandleFactory factory) {
+    try {
+      if (Reflector.canControlMemberAccessible()) {
+        member.setAccessible(true);
+      }
+      MethodHandle handle = factory.create(MethodHandles.lookup());
+      if (Modifier.isStatic(((Member) member).getModifiers())) {
+        handle = MethodHandles.dropArguments(handle, 0, Object.class);
+      }
+      return handle.asType(MethodType.genericMethodType(parameterCount + 1))
+          .asSpreader(Object[].class, parameterCount)
+          .asType(INVOKER_TYPE);
+    } catch (IllegalAccessException | RuntimeException e) {
+      // e.g. final fields or members of a module that is not open, use reflection
+      return null;
+    }
+  }
+
+  @UsesJava8
+  private static Object invokeExact(MethodHandle handle, Object target, Object[] args) throws Throwable {
+    // signature polymorphic call that the API signature check cannot resolve
+    return (Object) handle.invokeExact(target, args);
+  }
+
+  /**
+   * Returns whether {@link Method#invoke} would accept the target and the arguments, i.e. whether a failure of the
+   * handle happened while adapting them rather than in the method itself.
+   */
+  private static boolean acceptsArguments(Method method, Object target, Object[] args) {
+    if (!Modifier.isStatic(method.getModifiers()) && !method.getDeclaringClass().isInstance(target)) {
+      return false;
+    }
+    Class<?>[] parameterTypes = method.getParameterTypes();
+    int length = args == null ? 0 : args.length;
+    if (length != parameterTypes.length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (!acceptsValue(parameterTypes[i], args[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean acceptsValue(Class<?> type, Object value) {
+    if (!type.isPrimitive()) {
+      return value == null || type.isInstance(value);
+    }
+    if (value == null) {
+      return false;
+    }
+    // unboxing followed by a widening primitive conversion, as Method#invoke does
+    List<Class<?>> primitiveTypes = UNBOXED_TYPES.get(value.getClass());
+    return primitiveTypes != null && primitiveTypes.contains(type);
+  }
+
+  static class MethodHandleMethodInvoker extends MethodInvoker {
+
+    private final MethodHandle handle;
+
+    MethodHandleMethodInvoker(Method method) {
+      super(method);
+      this.handle = createHandle(method, method.getParameterCount(), lookup -> lookup.unreflect(method));
+    }
+
+    @Override
+    public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+      if (handle == null) {
+        return super.invoke(target, args);
+      }
+      try {
+        return invokeExact(handle, target, args);
+      } catch (ClassCastException | NullPointerException | IllegalArgumentException e) {
+        if (!acceptsArguments(getMethod(), target, args)) {
+          // the handle rejected the arguments before calling the method, fail as Method#invoke does
+          return super.invoke(target, args);
+        }
+        throw new InvocationTargetException(e);
+      } catch (Throwable t) {
+        // same contract as Method#invoke so that callers can unwrap the cause
+        throw new InvocationTargetException(t);
+      }
+    }
+  }
+
+  static class MethodHandleGetFieldInvoker extends GetFieldInvoker {
+
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+
+    private final MethodHandle handle;
+
+    MethodHandleGetFieldInvoker(Field field) {
+      super(field);
+      this.handle = createHandle(field, 0, lookup -> lookup.unreflectGetter(field));
+    }
+
+    @Override
+    public Object invoke(Object target, Object[] args) throws IllegalAccessException {
+      if (handle == null) {
+        return super.invoke(target, args);
+      }
+      try {
+        return invokeExact(handle, target, NO_ARGUMENTS);
+      } catch (RuntimeException e) {
+        // a wrong target or value, accessing a field runs no code so reflection can report it as usual
+        return super.invoke(target, args);
+      } catch (Error e) {
+        throw e;
+      } catch (Throwable t) {
+        throw new IllegalStateException(t);
+      }
+    }
+  }
+
+  static class MethodHandleSetFieldInvoker extends SetFieldInvoker {
+
+    private final MethodHandle handle;
+
+    MethodHandleSetFieldInvoker(Field field) {
+      super(field);
+      this.handle = createHandle(field, 1, lookup -> lookup.unreflectSetter(field));
+    }
+
+    @Override
+    public Object invoke(Object target, Object[] args) throws IllegalAccessException {
+      if (handle == null) {
+        return super.invoke(target, args);
+      }
+      try {
+        return invokeExact(handle, target, args);
+      } catch (RuntimeException e) {
+        // a wrong target or value, accessing a field runs no code so reflection can report it as usual
+        return super.invoke(target, args);
+      } catch (Error e) {
+        throw e;
+      } catch (Throwable t) {
+        throw new IllegalStateException(t);
+      }
+    }
+  }
+
+}
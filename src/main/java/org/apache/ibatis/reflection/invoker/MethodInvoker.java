@@ -56,4 +56,14 @@ public class MethodInvoker implements Invoker {
   public Class<?> getType() {
     return type;
   }
+
+  /**
+   * Gets the method this invoker calls.
+   *
+   * @return the method
+   * @since 3.5.5
+   */
+  public Method getMethod() {
+    return method;
+  }
 }
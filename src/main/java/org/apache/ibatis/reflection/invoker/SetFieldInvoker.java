@@ -48,4 +48,14 @@ public class SetFieldInvoker implements Invoker {
   public Class<?> getType() {
     return field.getType();
   }
+
+  /**
+   * Gets the field this invoker writes.
+   *
+   * @return the field
+   * @since 3.5.5
+   */
+  public Field getField() {
+    return field;
+  }
 }
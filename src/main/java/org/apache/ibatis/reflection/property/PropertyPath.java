@@ -0,0 +1,196 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.property;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
+
+/**
+ * A dotted bean property path (e.g. {@code order.customer.id}) that is tokenized once and remembers the getter and
+ * setter {@link Invoker}s of each step, so that it can be read and written without creating intermediate
+ * {@link MetaObject}s.
+ * <p>
+ * Instances are cached per root class by {@link Reflector#getPropertyPath(String)}. Whenever a step does not hold a
+ * plain bean (a {@code null}, a {@link Map}, a {@link Collection} or an object with a custom {@link ObjectWrapper}),
+ * the rest of the path is delegated to a regular {@link MetaObject}, so the behavior is the same as
+ * {@link MetaObject#getValue(String)} and {@link MetaObject#setValue(String, Object)}.
+ *
+ * @since 3.5.5
+ */
+public final class PropertyPath {
+
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
+  private final String[] names;
+  private final String[] remainders;
+  private final Step[] steps;
+
+  private static final class Step {
+    private final Class<?> type;
+    private final Reflector reflector;
+    private final Invoker getInvoker;
+    private final Invoker setInvoker;
+
+    private Step(Reflector reflector, String name) {
+      this.type = reflector.getType();
+      this.reflector = reflector;
+      this.getInvoker = reflector.hasGetter(name) ? reflector.getGetInvoker(name) : null;
+      this.setInvoker = reflector.hasSetter(name) ? reflector.getSetInvoker(name) : null;
+    }
+
+    private Invoker getGetInvoker(String name) {
+      // a missing getter fails with the usual message of the reflector
+      return getInvoker != null ? getInvoker : reflector.getGetInvoker(name);
+    }
+
+    private Invoker getSetInvoker(String name) {
+      return setInvoker != null ? setInvoker : reflector.getSetInvoker(name);
+    }
+  }
+
+  /**
+   * Creates a path rooted at the class of the given reflector.
+   *
+   * @param reflector the reflector of the root class
+   * @param path a property path without indexed properties
+   */
+  public PropertyPath(Reflector reflector, String path) {
+    this.names = path.split("\\.");
+    this.remainders = new String[names.length];
+    int offset = 0;
+    for (int i = 0; i < names.length; i++) {
+      remainders[i] = path.substring(offset);
+      offset += names[i].length() + 1;
+    }
+    this.steps = new Step[names.length];
+    this.steps[0] = new Step(reflector, names[0]);
+  }
+
+  /**
+   * Returns whether a path can be compiled, i.e. it has no indexed properties such as {@code items[0]}.
+   */
+  public static boolean isCompilable(String path) {
+    return path.indexOf('[') < 0 && !path.isEmpty() && !path.startsWith(".") && !path.endsWith(".");
+  }
+
+  public Object getValue(MetaObject root) {
+    return getValue(root.getOriginalObject(), root.getObjectFactory(), root.getObjectWrapperFactory(), root.getReflectorFactory());
+  }
+
+  /**
+   * Same as {@link #getValue(MetaObject)} for a plain bean that has not been wrapped in a {@link MetaObject}.
+   */
+  public Object getValue(Object object, ObjectFactory objectFactory, ObjectWrapperFactory objectWrapperFactory,
+      ReflectorFactory reflectorFactory) {
+    Object current = object;
+    int last = names.length - 1;
+    for (int i = 0; i < last; i++) {
+      current = get(reflectorFactory, current, i);
+      if (current == null) {
+        return null;
+      }
+      if (!isPlainBean(objectWrapperFactory, current)) {
+        return MetaObject.forObject(current, objectFactory, objectWrapperFactory, reflectorFactory).getValue(remainders[i + 1]);
+      }
+    }
+    return get(reflectorFactory, current, last);
+  }
+
+  public void setValue(MetaObject root, Object value) {
+    Object current = root.getOriginalObject();
+    int last = names.length - 1;
+    for (int i = 0; i < last; i++) {
+      Object next = get(root.getReflectorFactory(), current, i);
+      if (next == null) {
+        if (value == null) {
+          // don't instantiate child path if value is null
+          return;
+        }
+        ObjectWrapper wrapper = forObject(root, current).getObjectWrapper();
+        MetaObject metaValue = wrapper.instantiatePropertyValue(remainders[i], new PropertyTokenizer(remainders[i]), root.getObjectFactory());
+        metaValue.setValue(remainders[i + 1], value);
+        return;
+      }
+      if (!isPlainBean(root.getObjectWrapperFactory(), next)) {
+        forObject(root, next).setValue(remainders[i + 1], value);
+        return;
+      }
+      current = next;
+    }
+    set(root, current, last, value);
+  }
+
+  private Object get(ReflectorFactory reflectorFactory, Object object, int index) {
+    try {
+      Invoker method = stepFor(reflectorFactory, object, index).getGetInvoker(names[index]);
+      try {
+        return method.invoke(object, NO_ARGUMENTS);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new ReflectionException("Could not get property '" + names[index] + "' from " + object.getClass() + ".  Cause: " + t.toString(), t);
+    }
+  }
+
+  private void set(MetaObject root, Object object, int index, Object value) {
+    try {
+      Invoker method = stepFor(root.getReflectorFactory(), object, index).getSetInvoker(names[index]);
+      Object[] params = {value};
+      try {
+        method.invoke(object, params);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    } catch (Throwable t) {
+      throw new ReflectionException("Could not set property '" + names[index] + "' of '" + object.getClass() + "' with value '" + value + "' Cause: " + t.toString(), t);
+    }
+  }
+
+  private Step stepFor(ReflectorFactory reflectorFactory, Object object, int index) {
+    Step step = steps[index];
+    if (step == null || step.type != object.getClass()) {
+      // the declared type of a property may differ from the runtime type, remember the latest one
+      step = new Step(reflectorFactory.findForClass(object.getClass()), names[index]);
+      if (index > 0) {
+        steps[index] = step;
+      }
+    }
+    return step;
+  }
+
+  private static boolean isPlainBean(ObjectWrapperFactory objectWrapperFactory, Object object) {
+    return !(object instanceof Map || object instanceof Collection || object instanceof ObjectWrapper
+        || objectWrapperFactory.hasWrapperFor(object));
+  }
+
+  private static MetaObject forObject(MetaObject root, Object object) {
+    return MetaObject.forObject(object, root.getObjectFactory(), root.getObjectWrapperFactory(), root.getReflectorFactory());
+  }
+
+}
@@ -20,17 +20,16 @@ import java.sql.SQLException;
 import java.util.List;
 
 import org.apache.ibatis.executor.ErrorContext;
+import org.apache.ibatis.executor.parameter.ParameterBindingPlan;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
-import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeException;
 import org.apache.ibatis.type.TypeHandler;
-import org.apache.ibatis.type.TypeHandlerRegistry;
 
 /**
  * @author Clinton Begin
@@ -38,8 +37,6 @@ import org.apache.ibatis.type.TypeHandlerRegistry;
  */
 public class DefaultParameterHandler implements ParameterHandler {
 
-  private final TypeHandlerRegistry typeHandlerRegistry;
-
   private final MappedStatement mappedStatement;
   private final Object parameterObject;
   private final BoundSql boundSql;
@@ -48,7 +45,6 @@ public class DefaultParameterHandler implements ParameterHandler {
   public DefaultParameterHandler(MappedStatement mappedStatement, Object parameterObject, BoundSql boundSql) {
     this.mappedStatement = mappedStatement;
     this.configuration = mappedStatement.getConfiguration();
-    this.typeHandlerRegistry = mappedStatement.getConfiguration().getTypeHandlerRegistry();
     this.parameterObject = parameterObject;
     this.boundSql = boundSql;
   }
@@ -63,6 +59,7 @@ public class DefaultParameterHandler implements ParameterHandler {
     ErrorContext.instance().activity("setting parameters").object(mappedStatement.getParameterMap().getId());
     List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();//获取参数列表
     if (parameterMappings != null) {
+      ParameterBindingPlan plan = null;
       for (int i = 0; i < parameterMappings.size(); i++) {
         ParameterMapping parameterMapping = parameterMappings.get(i);
         if (parameterMapping.getMode() != ParameterMode.OUT) {//如果参数类型不是输出类型
@@ -72,11 +69,12 @@ public class DefaultParameterHandler implements ParameterHandler {
             value = boundSql.getAdditionalParameter(propertyName);
           } else if (parameterObject == null) {
             value = null;
-          } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {//如果含有参数列表的Handler则赋值
-            value = parameterObject;
           } else {
-            MetaObject metaObject = configuration.newMetaObject(parameterObject);//使用MetaObject包装参数类
-            value = metaObject.getValue(propertyName);//赋值
+            if (plan == null) {
+              // decides once per parameter class whether the object itself, a map entry or a bean property is bound
+              plan = mappedStatement.getParameterBindingPlan(parameterObject);
+            }
+            value = plan.getValue(parameterObject, propertyName);
           }
           TypeHandler typeHandler = parameterMapping.getTypeHandler();//获取参数映射的处理类
           JdbcType jdbcType = parameterMapping.getJdbcType();//获取JdbcType
@@ -0,0 +1,229 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import ognl.ASTAnd;
+import ognl.ASTChain;
+import ognl.ASTConst;
+import ognl.ASTOr;
+import ognl.ASTProperty;
+import ognl.Node;
+import ognl.OgnlContext;
+import ognl.OgnlException;
+import ognl.OgnlOps;
+import ognl.OgnlRuntime;
+
+/**
+ * An OGNL expression translated to a tree of plain Java evaluators, so that the common tests of dynamic SQL (e.g.
+ * <code>name != null and name != ''</code>) skip the generic interpretation of the OGNL parser nodes.
+ * <p>
+ * Only property chains, constants, comparisons, <code>and</code>, <code>or</code> and <code>not</code> are compiled.
+ * They are evaluated with the same {@link OgnlRuntime} and {@link OgnlOps} methods as the interpreter, so the results
+ * (including the type conversions of comparisons) are the same. Any other expression is left to the interpreter.
+ *
+ * @since 3.5.5
+ */
+final class CompiledExpression {
+
+  @FunctionalInterface
+  private interface Evaluator {
+    Object evaluate(OgnlContext context, Object source) throws OgnlException;
+  }
+
+  private final Evaluator evaluator;
+
+  private CompiledExpression(Evaluator evaluator) {
+    this.evaluator = evaluator;
+  }
+
+  /**
+   * Compiles a parsed expression.
+   *
+   * @return the compiled expression or <code>null</code> if the expression uses an unsupported construct
+   */
+  static CompiledExpression compile(Object node) {
+    Evaluator evaluator = compileNode((Node) node);
+    return evaluator == null ? null : new CompiledExpression(evaluator);
+  }
+
+  Object getValue(OgnlContext context, Object root) throws OgnlException {
+    return evaluator.evaluate(context, root);
+  }
+
+  private static Evaluator compileNode(Node node) {
+    if (node instanceof ASTConst) {
+      Object value = ((ASTConst) node).getValue();
+      return (context, source) -> value;
+    }
+    if (node instanceof ASTProperty) {
+      return compileProperty((ASTProperty) node);
+    }
+    if (node instanceof ASTChain) {
+      return compileChain(node);
+    }
+    if (node instanceof ASTAnd) {
+      return compileJunction(node, false);
+    }
+    if (node instanceof ASTOr) {
+      return compileJunction(node, true);
+    }
+    // the other operators are not public, they are identified by name
+    switch (node.getClass().getName()) {
+      case "ognl.ASTNot":
+        Evaluator operand = compileNode(node.jjtGetChild(0));
+        return operand == null ? null
+            : (context, source) -> OgnlOps.booleanValue(operand.evaluate(context, source)) ? Boolean.FALSE : Boolean.TRUE;
+      case "ognl.ASTEq":
+        return compileComparison(node, Comparison.EQ);
+      case "ognl.ASTNotEq":
+        return compileComparison(node, Comparison.NOT_EQ);
+      case "ognl.ASTLess":
+        return compileComparison(node, Comparison.LESS);
+      case "ognl.ASTLessEq":
+        return compileComparison(node, Comparison.LESS_EQ);
+      case "ognl.ASTGreater":
+        return compileComparison(node, Comparison.GREATER);
+      case "ognl.ASTGreaterEq":
+        return compileComparison(node, Comparison.GREATER_EQ);
+      default:
+        return null;
+    }
+  }
+
+  private static Evaluator compileProperty(ASTProperty node) {
+    if (node.isIndexedAccess() || node.jjtGetNumChildren() != 1 || !(node.jjtGetChild(0) instanceof ASTConst)) {
+      return null;
+    }
+    Node nameNode = node.jjtGetChild(0);
+    Object name = ((ASTConst) nameNode).getValue();
+    if (!(name instanceof String)) {
+      return null;
+    }
+    return (context, source) -> {
+      // the property accessors read the node being evaluated, as left by the interpreter after evaluating the name
+      context.setCurrentObject(context.getRoot());
+      context.setCurrentNode(nameNode);
+      Object result = OgnlRuntime.getProperty(context, source, name);
+      if (result == null) {
+        result = OgnlRuntime.getNullHandler(OgnlRuntime.getTargetClass(source)).nullPropertyValue(context, source, name);
+      }
+      return result;
+    };
+  }
+
+  private static Evaluator compileChain(Node node) {
+    Evaluator[] links = compileChildren(node);
+    if (links == null) {
+      return null;
+    }
+    for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+      // only plain property chains such as a.b.c, method calls and projections are left to the interpreter
+      if (!(node.jjtGetChild(i) instanceof ASTProperty)) {
+        return null;
+      }
+    }
+    return (context, source) -> {
+      Object result = source;
+      for (Evaluator link : links) {
+        result = link.evaluate(context, result);
+      }
+      return result;
+    };
+  }
+
+  private static Evaluator compileJunction(Node node, boolean or) {
+    Evaluator[] operands = compileChildren(node);
+    if (operands == null) {
+      return null;
+    }
+    // like the interpreter, the value of the last evaluated operand is returned
+    return (context, source) -> {
+      Object result = null;
+      int last = operands.length - 1;
+      for (int i = 0; i <= last; i++) {
+        result = operands[i].evaluate(context, source);
+        if (i != last && OgnlOps.booleanValue(result) == or) {
+          break;
+        }
+      }
+      return result;
+    };
+  }
+
+  private static Evaluator compileComparison(Node node, Comparison comparison) {
+    Evaluator[] operands = compileChildren(node);
+    if (operands == null || operands.length != 2) {
+      return null;
+    }
+    Evaluator left = operands[0];
+    Evaluator right = operands[1];
+    return (context, source) -> comparison.test(left.evaluate(context, source), right.evaluate(context, source))
+        ? Boolean.TRUE : Boolean.FALSE;
+  }
+
+  private static Evaluator[] compileChildren(Node node) {
+    Evaluator[] evaluators = new Evaluator[node.jjtGetNumChildren()];
+    for (int i = 0; i < evaluators.length; i++) {
+      evaluators[i] = compileNode(node.jjtGetChild(i));
+      if (evaluators[i] == null) {
+        return null;
+      }
+    }
+    return evaluators;
+  }
+
+  private enum Comparison {
+    EQ {
+      @Override
+      boolean test(Object v1, Object v2) {
+        return OgnlOps.equal(v1, v2);
+      }
+    },
+    NOT_EQ {
+      @Override
+      boolean test(Object v1, Object v2) {
+        return !OgnlOps.equal(v1, v2);
+      }
+    },
+    LESS {
+      @Override
+      boolean test(Object v1, Object v2) {
+        return OgnlOps.less(v1, v2);
+      }
+    },
+    LESS_EQ {
+      @Override
+      boolean test(Object v1, Object v2) {
+        return !OgnlOps.greater(v1, v2);
+      }
+    },
+    GREATER {
+      @Override
+      boolean test(Object v1, Object v2) {
+        return OgnlOps.greater(v1, v2);
+      }
+    },
+    GREATER_EQ {
+      @Override
+      boolean test(Object v1, Object v2) {
+        return !OgnlOps.less(v1, v2);
+      }
+    };
+
+    abstract boolean test(Object v1, Object v2);
+  }
+
+}
@@ -17,7 +17,6 @@ package org.apache.ibatis.scripting.xmltags;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.StringJoiner;
 
 import ognl.OgnlContext;
 import ognl.OgnlRuntime;
@@ -34,21 +33,35 @@ public class DynamicContext {
   public static final String PARAMETER_OBJECT_KEY = "_parameter";
   public static final String DATABASE_ID_KEY = "_databaseId";
 
+  static final int DEFAULT_SQL_CAPACITY = 256;
+
   static {
     OgnlRuntime.setPropertyAccessor(ContextMap.class, new ContextAccessor());
   }
 
   private final ContextMap bindings;
-  private final StringJoiner sqlBuilder = new StringJoiner(" ");
+  private final StringBuilder sqlBuilder;
+  private boolean sqlAppended;
   private int uniqueNumber = 0;
 
   public DynamicContext(Configuration configuration, Object parameterObject) {
+    this(configuration, parameterObject, DEFAULT_SQL_CAPACITY);
+  }
+
+  /**
+   * @param sqlCapacity
+   *          the expected length of the SQL, e.g. the length of the SQL built by the previous call, so that the
+   *          buffer does not have to grow while the SQL is appended
+   * @since 3.5.5
+   */
+  public DynamicContext(Configuration configuration, Object parameterObject, int sqlCapacity) {
+    sqlBuilder = new StringBuilder(sqlCapacity);
     if (parameterObject != null && !(parameterObject instanceof Map)) {
       MetaObject metaObject = configuration.newMetaObject(parameterObject);
       boolean existsTypeHandler = configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass());
-      bindings = new ContextMap(metaObject, existsTypeHandler);
+      bindings = new ContextMap(metaObject, existsTypeHandler, configuration);
     } else {
-      bindings = new ContextMap(null, false);
+      bindings = new ContextMap(null, false, configuration);
     }
     bindings.put(PARAMETER_OBJECT_KEY, parameterObject);
     bindings.put(DATABASE_ID_KEY, configuration.getDatabaseId());
@@ -63,11 +76,30 @@ public class DynamicContext {
   }
 
   public void appendSql(String sql) {
-    sqlBuilder.add(sql);
+    // the fragments are separated by a space, as if they were joined with a StringJoiner
+    if (sqlAppended) {
+      sqlBuilder.append(' ');
+    } else {
+      sqlAppended = true;
+    }
+    sqlBuilder.append(sql);
   }
 
   public String getSql() {
-    return sqlBuilder.toString().trim();
+    // same result as toString().trim() with a single copy
+    int start = 0;
+    int end = sqlBuilder.length();
+    while (start < end && sqlBuilder.charAt(start) <= ' ') {
+      start++;
+    }
+    while (end > start && sqlBuilder.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    return sqlBuilder.substring(start, end);
+  }
+
+  int getSqlLength() {
+    return sqlBuilder.length();
   }
 
   public int getUniqueNumber() {
@@ -78,10 +110,31 @@ public class DynamicContext {
     private static final long serialVersionUID = 2977601501966151582L;
     private final MetaObject parameterMetaObject;
     private final boolean fallbackParameterObject;
+    private final transient ExpressionCache expressionCache;
+    private final transient ExpressionLanguage expressionLanguage;
+    private transient Map ognlContext;
 
-    public ContextMap(MetaObject parameterMetaObject, boolean fallbackParameterObject) {
+    public ContextMap(MetaObject parameterMetaObject, boolean fallbackParameterObject, Configuration configuration) {
       this.parameterMetaObject = parameterMetaObject;
       this.fallbackParameterObject = fallbackParameterObject;
+      this.expressionCache = configuration.getExpressionCache();
+      this.expressionLanguage = configuration.getExpressionLanguage();
+    }
+
+    ExpressionCache getExpressionCache() {
+      return expressionCache;
+    }
+
+    ExpressionLanguage getExpressionLanguage() {
+      return expressionLanguage;
+    }
+
+    Map getOgnlContext() {
+      return ognlContext;
+    }
+
+    void setOgnlContext(Map ognlContext) {
+      this.ognlContext = ognlContext;
     }
 
     @Override
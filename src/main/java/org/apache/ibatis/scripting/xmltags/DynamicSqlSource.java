@@ -27,6 +27,8 @@ public class DynamicSqlSource implements SqlSource {
 
   private final Configuration configuration;
   private final SqlNode rootSqlNode;
+  // the length of the SQL built by the last call, a stale value read by a concurrent call only costs a resize
+  private int sqlCapacity = DynamicContext.DEFAULT_SQL_CAPACITY;
 
   public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode) {
     this.configuration = configuration;
@@ -35,11 +37,13 @@ public class DynamicSqlSource implements SqlSource {
 
   @Override
   public BoundSql getBoundSql(Object parameterObject) {
-    DynamicContext context = new DynamicContext(configuration, parameterObject);
+    DynamicContext context = new DynamicContext(configuration, parameterObject, sqlCapacity);
     rootSqlNode.apply(context);
+    sqlCapacity = context.getSqlLength();
     SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
     Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
-    SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
+    SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings(),
+        configuration.getParameterMappingCache());
     BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
     context.getBindings().forEach(boundSql::setAdditionalParameter);
     return boundSql;
@@ -0,0 +1,62 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A bounded cache of parsed OGNL expressions.
+ * <p>
+ * Each {@link org.apache.ibatis.session.Configuration} owns one, so that the expressions of a discarded configuration
+ * can be garbage collected. Once the cache is full, new expressions are still evaluated but are parsed on every use.
+ *
+ * @since 3.5.5
+ */
+public final class ExpressionCache {
+
+  public static final int DEFAULT_MAX_SIZE = 4096;
+
+  private final Map<String, Object> expressions = new ConcurrentHashMap<>();
+  private final int maxSize;
+
+  public ExpressionCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  public ExpressionCache(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  Object get(String expression) {
+    return expressions.get(expression);
+  }
+
+  void put(String expression, Object node) {
+    if (expressions.size() < maxSize) {
+      expressions.putIfAbsent(expression, node);
+    }
+  }
+
+  public int getSize() {
+    return expressions.size();
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+}
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.scripting.xmltags.DynamicContext.ContextMap;
 
 /**
  * @author Clinton Begin
@@ -29,7 +30,7 @@ import org.apache.ibatis.builder.BuilderException;
 public class ExpressionEvaluator {
 
   public boolean evaluateBoolean(String expression, Object parameterObject) {
-    Object value = OgnlCache.getValue(expression, parameterObject);
+    Object value = getValue(expression, parameterObject);
     if (value instanceof Boolean) {
       return (Boolean) value;
     }
@@ -40,7 +41,7 @@ public class ExpressionEvaluator {
   }
 
   public Iterable<?> evaluateIterable(String expression, Object parameterObject) {
-    Object value = OgnlCache.getValue(expression, parameterObject);
+    Object value = getValue(expression, parameterObject);
     if (value == null) {
       throw new BuilderException("The expression '" + expression + "' evaluated to a null value.");
     }
@@ -65,4 +66,12 @@ public class ExpressionEvaluator {
     throw new BuilderException("Error evaluating expression '" + expression + "'.  Return value (" + value + ") was not iterable.");
   }
 
+  static Object getValue(String expression, Object parameterObject) {
+    if (parameterObject instanceof ContextMap) {
+      // the bindings of a dynamic context carry the expression language of their configuration
+      return ((ContextMap) parameterObject).getExpressionLanguage().getValue(expression, parameterObject);
+    }
+    return OgnlCache.getValue(expression, parameterObject);
+  }
+
 }
@@ -0,0 +1,45 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+/**
+ * Evaluates the expressions of the dynamic SQL elements: the tests of <code>&lt;if&gt;</code> and
+ * <code>&lt;when&gt;</code>, the values of <code>&lt;bind&gt;</code>, the collections of <code>&lt;foreach&gt;</code>
+ * and the <code>${}</code> substitutions.
+ * <p>
+ * The language is chosen per configuration with the <code>expressionLanguage</code> setting. Implementations must be
+ * thread safe and have a no-argument constructor.
+ *
+ * @since 3.5.5
+ * @see OgnlExpressionLanguage
+ * @see SimpleExpressionLanguage
+ */
+public interface ExpressionLanguage {
+
+  /**
+   * Evaluates an expression.
+   *
+   * @param expression
+   *          the expression, e.g. <code>name != null and name != ''</code>
+   * @param root
+   *          the object the names of the expression are resolved against, usually the bindings of the dynamic context
+   * @return the value of the expression
+   * @throws org.apache.ibatis.builder.BuilderException
+   *           if the expression cannot be evaluated
+   */
+  Object getValue(String expression, Object root);
+
+}
@@ -15,7 +15,10 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.ibatis.parsing.GenericTokenParser;
 import org.apache.ibatis.session.Configuration;
@@ -26,6 +29,10 @@ import org.apache.ibatis.session.Configuration;
 public class ForEachSqlNode implements SqlNode {
   public static final String ITEM_PREFIX = "__frch_";
 
+  // the number of distinct SQL fragments of the body whose templates are kept
+  private static final int MAX_TEMPLATES = 64;
+  private static final char TOKEN_MARKER = '\uFFFF';
+
   private final ExpressionEvaluator evaluator;
   private final String collectionExpression;
   private final SqlNode contents;
@@ -35,8 +42,22 @@ public class ForEachSqlNode implements SqlNode {
   private final String item;
   private final String index;
   private final Configuration configuration;
+  private final boolean padToPowerOfTwo;
+  private final Map<String, Template> templates = new ConcurrentHashMap<>();
 
   public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index, String item, String open, String close, String separator) {
+    this(configuration, contents, collectionExpression, index, item, open, close, separator, false);
+  }
+
+  /**
+   * @param padToPowerOfTwo
+   *          whether the last element is repeated until the number of elements is a power of two, so that e.g. an
+   *          <code>IN</code> list produces one of a few distinct statements whatever the size of the collection
+   * @since 3.5.5
+   */
+  public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index, String item, String open, String close, String separator,
+      boolean padToPowerOfTwo) {
+    this.padToPowerOfTwo = padToPowerOfTwo;
     this.evaluator = new ExpressionEvaluator();
     this.collectionExpression = collectionExpression;
     this.contents = contents;
@@ -51,36 +72,38 @@ public class ForEachSqlNode implements SqlNode {
   @Override
   public boolean apply(DynamicContext context) {
     Map<String, Object> bindings = context.getBindings();
-    final Iterable<?> iterable = evaluator.evaluateIterable(collectionExpression, bindings);
+    Iterable<?> iterable = evaluator.evaluateIterable(collectionExpression, bindings);
     if (!iterable.iterator().hasNext()) {
       return true;
     }
+    if (padToPowerOfTwo) {
+      iterable = padToPowerOfTwo(iterable);
+    }
     boolean first = true;
     applyOpen(context);
     int i = 0;
+    // the wrappers are reused for every element
+    PrefixedContext prefixedContext = new PrefixedContext(context);
+    FilteredDynamicContext filteredContext = new FilteredDynamicContext(configuration, prefixedContext);
     for (Object o : iterable) {
-      DynamicContext oldContext = context;
-      if (first || separator == null) {
-        context = new PrefixedContext(context, "");
-      } else {
-        context = new PrefixedContext(context, separator);
-      }
+      prefixedContext.reset(first || separator == null ? "" : separator);
       int uniqueNumber = context.getUniqueNumber();
       // Issue #709
       if (o instanceof Map.Entry) {
         @SuppressWarnings("unchecked")
         Map.Entry<Object, Object> mapEntry = (Map.Entry<Object, Object>) o;
-        applyIndex(context, mapEntry.getKey(), uniqueNumber);
-        applyItem(context, mapEntry.getValue(), uniqueNumber);
+        applyIndex(context, mapEntry.getKey());
+        applyItem(context, mapEntry.getValue());
+        filteredContext.reset(uniqueNumber, mapEntry.getValue(), mapEntry.getKey());
       } else {
-        applyIndex(context, i, uniqueNumber);
-        applyItem(context, o, uniqueNumber);
+        applyIndex(context, i);
+        applyItem(context, o);
+        filteredContext.reset(uniqueNumber, o, i);
       }
-      contents.apply(new FilteredDynamicContext(configuration, context, index, item, uniqueNumber));
+      contents.apply(filteredContext);
       if (first) {
-        first = !((PrefixedContext) context).isPrefixApplied();
+        first = !prefixedContext.isPrefixApplied();
       }
-      context = oldContext;
       i++;
     }
     applyClose(context);
@@ -89,17 +112,29 @@ public class ForEachSqlNode implements SqlNode {
     return true;
   }
 
-  private void applyIndex(DynamicContext context, Object o, int i) {
+  private static List<Object> padToPowerOfTwo(Iterable<?> iterable) {
+    List<Object> elements = new ArrayList<>();
+    for (Object o : iterable) {
+      elements.add(o);
+    }
+    int size = elements.size();
+    int paddedSize = size == 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+    Object last = elements.get(size - 1);
+    for (int i = size; i < paddedSize; i++) {
+      elements.add(last);
+    }
+    return elements;
+  }
+
+  private void applyIndex(DynamicContext context, Object o) {
     if (index != null) {
       context.bind(index, o);
-      context.bind(itemizeItem(index, i), o);
     }
   }
 
-  private void applyItem(DynamicContext context, Object o, int i) {
+  private void applyItem(DynamicContext context, Object o) {
     if (item != null) {
       context.bind(item, o);
-      context.bind(itemizeItem(item, i), o);
     }
   }
 
@@ -119,18 +154,111 @@ public class ForEachSqlNode implements SqlNode {
     return ITEM_PREFIX + item + "_" + i;
   }
 
-  private static class FilteredDynamicContext extends DynamicContext {
+  private Template getTemplate(String sql) {
+    Template template = templates.get(sql);
+    if (template == null) {
+      template = new Template(sql, item, index);
+      if (templates.size() < MAX_TEMPLATES) {
+        // fragments built with ${} may be different every time, those are not worth keeping
+        templates.putIfAbsent(sql, template);
+      }
+    }
+    return template;
+  }
+
+  /**
+   * A fragment of the body split once into its text and its <code>#{...}</code> tokens, so that it is rendered for
+   * every element without parsing it again.
+   */
+  private static final class Template {
+    private static final int ITEM = 1;
+    private static final int INDEX = 2;
+    private static final int OTHER = 3;
+
+    private final String[] texts;
+    private final int[] kinds;
+    private final String[] contents;
+
+    Template(String sql, String item, String index) {
+      // the fragment must not contain the marker
+      List<String> tokens = new ArrayList<>();
+      String parsed = new GenericTokenParser("#{", "}", content -> {
+        tokens.add(content);
+        return String.valueOf(TOKEN_MARKER);
+      }).parse(sql);
+      this.texts = new String[tokens.size() + 1];
+      this.kinds = new int[tokens.size()];
+      this.contents = new String[tokens.size()];
+      int offset = 0;
+      for (int i = 0; i < tokens.size(); i++) {
+        int marker = parsed.indexOf(TOKEN_MARKER, offset);
+        texts[i] = parsed.substring(offset, marker);
+        offset = marker + 1;
+        String content = tokens.get(i);
+        int end = matchName(content, item);
+        if (end >= 0) {
+          kinds[i] = ITEM;
+          contents[i] = content.substring(end);
+        } else if ((end = matchName(content, index)) >= 0) {
+          kinds[i] = INDEX;
+          contents[i] = content.substring(end);
+        } else {
+          kinds[i] = OTHER;
+          contents[i] = content;
+        }
+      }
+      texts[tokens.size()] = parsed.substring(offset);
+    }
+
+    /**
+     * Returns the end of the name if the content starts with it, i.e. <code>item</code>, <code>item.name</code> or
+     * <code>item, jdbcType=VARCHAR</code> but not <code>items</code>.
+     */
+    private static int matchName(String content, String name) {
+      if (name == null) {
+        return -1;
+      }
+      int start = 0;
+      while (start < content.length() && isWhitespace(content.charAt(start))) {
+        start++;
+      }
+      int end = start + name.length();
+      if (!content.startsWith(name, start)) {
+        return -1;
+      }
+      if (end < content.length()) {
+        char next = content.charAt(end);
+        if (next != '.' && next != ',' && next != ':' && !isWhitespace(next)) {
+          return -1;
+        }
+      }
+      return end;
+    }
+
+    private static boolean isWhitespace(char c) {
+      return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+  }
+
+  private class FilteredDynamicContext extends DynamicContext {
     private final DynamicContext delegate;
-    private final int index;
-    private final String itemIndex;
-    private final String item;
+    private int uniqueNumber;
+    private Object itemValue;
+    private Object indexValue;
+    private String itemizedItem;
+    private String itemizedIndex;
 
-    public FilteredDynamicContext(Configuration configuration,DynamicContext delegate, String itemIndex, String item, int i) {
+    public FilteredDynamicContext(Configuration configuration, DynamicContext delegate) {
       super(configuration, null);
       this.delegate = delegate;
-      this.index = i;
-      this.itemIndex = itemIndex;
-      this.item = item;
+    }
+
+    void reset(int uniqueNumber, Object itemValue, Object indexValue) {
+      this.uniqueNumber = uniqueNumber;
+      this.itemValue = itemValue;
+      this.indexValue = indexValue;
+      this.itemizedItem = null;
+      this.itemizedIndex = null;
     }
 
     @Override
@@ -150,15 +278,68 @@ public class ForEachSqlNode implements SqlNode {
 
     @Override
     public void appendSql(String sql) {
-      GenericTokenParser parser = new GenericTokenParser("#{", "}", content -> {
-        String newContent = content.replaceFirst("^\\s*" + item + "(?![^.,:\\s])", itemizeItem(item, index));
-        if (itemIndex != null && newContent.equals(content)) {
-          newContent = content.replaceFirst("^\\s*" + itemIndex + "(?![^.,:\\s])", itemizeItem(itemIndex, index));
+      if (sql == null || sql.isEmpty()) {
+        delegate.appendSql("");
+        return;
+      }
+      if (sql.indexOf(TOKEN_MARKER) >= 0) {
+        delegate.appendSql(parse(sql));
+        return;
+      }
+      Template template = getTemplate(sql);
+      if (template.kinds.length == 0) {
+        delegate.appendSql(template.texts[0]);
+        return;
+      }
+      StringBuilder builder = new StringBuilder(sql.length() + template.kinds.length * 16);
+      for (int i = 0; i < template.kinds.length; i++) {
+        builder.append(template.texts[i]).append("#{");
+        switch (template.kinds[i]) {
+          case Template.ITEM:
+            builder.append(itemizedItem()).append(template.contents[i]);
+            break;
+          case Template.INDEX:
+            builder.append(itemizedIndex()).append(template.contents[i]);
+            break;
+          default:
+            builder.append(template.contents[i]);
+            break;
         }
-        return "#{" + newContent + "}";
-      });
+        builder.append('}');
+      }
+      builder.append(template.texts[template.kinds.length]);
+      delegate.appendSql(builder.toString());
+    }
+
+    private String parse(String sql) {
+      return new GenericTokenParser("#{", "}", content -> {
+        int end = Template.matchName(content, item);
+        if (end >= 0) {
+          return "#{" + itemizedItem() + content.substring(end) + "}";
+        }
+        end = Template.matchName(content, index);
+        if (end >= 0) {
+          return "#{" + itemizedIndex() + content.substring(end) + "}";
+        }
+        return "#{" + content + "}";
+      }).parse(sql);
+    }
 
-      delegate.appendSql(parser.parse(sql));
+    private String itemizedItem() {
+      if (itemizedItem == null) {
+        // bound only if the element is referenced as a parameter
+        itemizedItem = itemizeItem(item, uniqueNumber);
+        delegate.bind(itemizedItem, itemValue);
+      }
+      return itemizedItem;
+    }
+
+    private String itemizedIndex() {
+      if (itemizedIndex == null) {
+        itemizedIndex = itemizeItem(index, uniqueNumber);
+        delegate.bind(itemizedIndex, indexValue);
+      }
+      return itemizedIndex;
     }
 
     @Override
@@ -171,12 +352,15 @@ public class ForEachSqlNode implements SqlNode {
 
   private class PrefixedContext extends DynamicContext {
     private final DynamicContext delegate;
-    private final String prefix;
+    private String prefix;
     private boolean prefixApplied;
 
-    public PrefixedContext(DynamicContext delegate, String prefix) {
+    public PrefixedContext(DynamicContext delegate) {
       super(configuration, null);
       this.delegate = delegate;
+    }
+
+    void reset(String prefix) {
       this.prefix = prefix;
       this.prefixApplied = false;
     }
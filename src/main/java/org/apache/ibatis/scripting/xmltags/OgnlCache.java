@@ -19,12 +19,16 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import ognl.Ognl;
+import ognl.OgnlContext;
 import ognl.OgnlException;
 
 import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.scripting.xmltags.DynamicContext.ContextMap;
 
 /**
  * Caches OGNL parsed expressions.
+ * <p>
+ * Simple expressions are compiled to plain Java evaluators, see {@link CompiledExpression}.
  *
  * @author Eduardo Macarron
  *
@@ -34,7 +38,7 @@ public final class OgnlCache {
 
   private static final OgnlMemberAccess MEMBER_ACCESS = new OgnlMemberAccess();
   private static final OgnlClassResolver CLASS_RESOLVER = new OgnlClassResolver();
-  private static final Map<String, Object> expressionCache = new ConcurrentHashMap<>();
+  private static final ExpressionCache expressionCache = new ExpressionCache();
 
   private OgnlCache() {
     // Prevent Instantiation of Static Class
@@ -42,18 +46,43 @@ public final class OgnlCache {
 
   public static Object getValue(String expression, Object root) {
     try {
+      if (root instanceof ContextMap) {
+        // the bindings of a dynamic context carry the expression cache of their configuration and a reusable context
+        ContextMap bindings = (ContextMap) root;
+        return getValue(parseExpression(expression, bindings.getExpressionCache()), getContext(bindings), root);
+      }
       Map context = Ognl.createDefaultContext(root, MEMBER_ACCESS, CLASS_RESOLVER, null);
-      return Ognl.getValue(parseExpression(expression), context, root);
+      return getValue(parseExpression(expression, expressionCache), context, root);
     } catch (OgnlException e) {
       throw new BuilderException("Error evaluating expression '" + expression + "'. Cause: " + e, e);
     }
   }
 
-  private static Object parseExpression(String expression) throws OgnlException {
-    Object node = expressionCache.get(expression);
+  private static Object getValue(Object node, Map context, Object root) throws OgnlException {
+    if (node instanceof CompiledExpression) {
+      return ((CompiledExpression) node).getValue((OgnlContext) context, root);
+    }
+    return Ognl.getValue(node, context, root);
+  }
+
+  private static Map getContext(ContextMap bindings) {
+    Map context = bindings.getOgnlContext();
+    if (context == null) {
+      context = Ognl.createDefaultContext(bindings, MEMBER_ACCESS, CLASS_RESOLVER, null);
+      bindings.setOgnlContext(context);
+    }
+    return context;
+  }
+
+  private static Object parseExpression(String expression, ExpressionCache cache) throws OgnlException {
+    Object node = cache.get(expression);
     if (node == null) {
       node = Ognl.parseExpression(expression);
-      expressionCache.put(expression, node);
+      CompiledExpression compiled = CompiledExpression.compile(node);
+      if (compiled != null) {
+        node = compiled;
+      }
+      cache.put(expression, node);
     }
     return node;
   }
@@ -0,0 +1,513 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.scripting.xmltags.DynamicContext.ContextMap;
+
+/**
+ * A small expression language for the common tests of dynamic SQL, evaluated without OGNL.
+ * <p>
+ * It supports property paths (<code>user.address.city</code>), the literals <code>null</code>, <code>true</code>,
+ * <code>false</code>, numbers and quoted strings, the comparisons <code>== != &lt; &lt;= &gt; &gt;=</code> (and
+ * <code>eq neq lt lte gt gte</code>), <code>and</code>/<code>&amp;&amp;</code>, <code>or</code>/<code>||</code>,
+ * <code>not</code>/<code>!</code>, parentheses and the <code>size()</code>, <code>isEmpty()</code> and
+ * <code>length()</code> methods of collections, maps, arrays and strings. Expressions are parsed once; map entries are
+ * read without reflection and the getters of beans are looked up once per class.
+ * <p>
+ * Unlike OGNL, quoted strings are never characters, numbers are only equal to numeric strings (so <code>0</code> is
+ * not equal to <code>''</code>), enums are equal to their names and ordering comparisons with <code>null</code> are
+ * false. Expressions using any other syntax are evaluated by OGNL.
+ *
+ * @since 3.5.5
+ */
+public class SimpleExpressionLanguage implements ExpressionLanguage {
+
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
+  private final ExpressionCache expressions = new ExpressionCache();
+  private final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+
+  @Override
+  public Object getValue(String expression, Object root) {
+    Node node = (Node) expressions.get(expression);
+    if (node == null) {
+      node = parse(expression);
+      expressions.put(expression, node);
+    }
+    try {
+      return node.evaluate(root);
+    } catch (BuilderException e) {
+      throw e;
+    } catch (RuntimeException e) {
+      throw new BuilderException("Error evaluating expression '" + expression + "'. Cause: " + e, e);
+    }
+  }
+
+  private Node parse(String expression) {
+    try {
+      return new Parser(expression).parse();
+    } catch (UnsupportedSyntaxException e) {
+      return root -> OgnlCache.getValue(expression, root);
+    }
+  }
+
+  @FunctionalInterface
+  private interface Node {
+    Object evaluate(Object root);
+  }
+
+  private static class UnsupportedSyntaxException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+  }
+
+  private final class Parser {
+
+    private final String expression;
+    private int position;
+
+    Parser(String expression) {
+      this.expression = expression;
+    }
+
+    Node parse() {
+      Node node = parseOr();
+      skipWhitespace();
+      if (position < expression.length()) {
+        throw new UnsupportedSyntaxException();
+      }
+      return node;
+    }
+
+    private Node parseOr() {
+      List<Node> operands = new ArrayList<>();
+      operands.add(parseAnd());
+      while (accept("||") || acceptWord("or")) {
+        operands.add(parseAnd());
+      }
+      return operands.size() == 1 ? operands.get(0) : junction(operands.toArray(new Node[0]), true);
+    }
+
+    private Node parseAnd() {
+      List<Node> operands = new ArrayList<>();
+      operands.add(parseComparison());
+      while (accept("&&") || acceptWord("and")) {
+        operands.add(parseComparison());
+      }
+      return operands.size() == 1 ? operands.get(0) : junction(operands.toArray(new Node[0]), false);
+    }
+
+    private Node parseComparison() {
+      Node left = parseUnary();
+      Comparison comparison = parseComparisonOperator();
+      if (comparison == null) {
+        return left;
+      }
+      Node right = parseUnary();
+      return root -> comparison.test(left.evaluate(root), right.evaluate(root));
+    }
+
+    private Comparison parseComparisonOperator() {
+      if (accept("==") || acceptWord("eq")) {
+        return Comparison.EQ;
+      } else if (accept("!=") || acceptWord("neq")) {
+        return Comparison.NOT_EQ;
+      } else if (accept("<=") || acceptWord("lte")) {
+        return Comparison.LESS_EQ;
+      } else if (accept("<") || acceptWord("lt")) {
+        return Comparison.LESS;
+      } else if (accept(">=") || acceptWord("gte")) {
+        return Comparison.GREATER_EQ;
+      } else if (accept(">") || acceptWord("gt")) {
+        return Comparison.GREATER;
+      }
+      return null;
+    }
+
+    private Node parseUnary() {
+      skipWhitespace();
+      if (!lookingAt("!=") && accept("!") || acceptWord("not")) {
+        Node operand = parseUnary();
+        return root -> isTrue(operand.evaluate(root)) ? Boolean.FALSE : Boolean.TRUE;
+      }
+      return parsePrimary();
+    }
+
+    private Node parsePrimary() {
+      skipWhitespace();
+      if (accept("(")) {
+        Node node = parseOr();
+        expect(")");
+        return node;
+      }
+      if (position >= expression.length()) {
+        throw new UnsupportedSyntaxException();
+      }
+      char c = expression.charAt(position);
+      if (c == '\'' || c == '"') {
+        String value = parseString(c);
+        return root -> value;
+      }
+      if (Character.isDigit(c)) {
+        Object value = parseNumber();
+        return root -> value;
+      }
+      String name = parseIdentifier();
+      switch (name) {
+        case "null":
+          return root -> null;
+        case "true":
+          return root -> Boolean.TRUE;
+        case "false":
+          return root -> Boolean.FALSE;
+        default:
+          return parsePath(name);
+      }
+    }
+
+    private Node parsePath(String first) {
+      List<PathStep> steps = new ArrayList<>();
+      steps.add(new PathStep(first, false));
+      while (accept(".")) {
+        String name = parseIdentifier();
+        boolean method = accept("(");
+        if (method) {
+          expect(")");
+          if (!"size".equals(name) && !"isEmpty".equals(name) && !"length".equals(name)) {
+            throw new UnsupportedSyntaxException();
+          }
+        }
+        steps.add(new PathStep(name, method));
+      }
+      PathStep[] path = steps.toArray(new PathStep[0]);
+      return root -> {
+        Object value = path[0].getRootValue(root);
+        for (int i = 1; i < path.length; i++) {
+          if (value == null) {
+            throw new BuilderException("Could not get '" + path[i].name + "' because '" + path[i - 1].name + "' is null.");
+          }
+          value = path[i].getValue(value);
+        }
+        return value;
+      };
+    }
+
+    private String parseString(char quote) {
+      StringBuilder value = new StringBuilder();
+      position++;
+      while (position < expression.length()) {
+        char c = expression.charAt(position++);
+        if (c == quote) {
+          return value.toString();
+        }
+        if (c == '\\') {
+          if (position >= expression.length()) {
+            break;
+          }
+          c = expression.charAt(position++);
+          if (c != '\\' && c != '\'' && c != '"') {
+            throw new UnsupportedSyntaxException();
+          }
+        }
+        value.append(c);
+      }
+      throw new UnsupportedSyntaxException();
+    }
+
+    private Object parseNumber() {
+      int start = position;
+      while (position < expression.length() && Character.isDigit(expression.charAt(position))) {
+        position++;
+      }
+      if (position + 1 < expression.length() && expression.charAt(position) == '.'
+          && Character.isDigit(expression.charAt(position + 1))) {
+        position++;
+        while (position < expression.length() && Character.isDigit(expression.charAt(position))) {
+          position++;
+        }
+        return new BigDecimal(expression.substring(start, position));
+      }
+      BigInteger value = new BigInteger(expression.substring(start, position));
+      if (position < expression.length() && Character.toUpperCase(expression.charAt(position)) == 'L') {
+        position++;
+        return value.longValue();
+      }
+      return value.bitLength() < Integer.SIZE ? (Object) value.intValue() : (Object) value.longValue();
+    }
+
+    private String parseIdentifier() {
+      skipWhitespace();
+      int start = position;
+      if (position < expression.length() && Character.isJavaIdentifierStart(expression.charAt(position))) {
+        position++;
+        while (position < expression.length() && Character.isJavaIdentifierPart(expression.charAt(position))) {
+          position++;
+        }
+      }
+      if (start == position) {
+        throw new UnsupportedSyntaxException();
+      }
+      return expression.substring(start, position);
+    }
+
+    private boolean lookingAt(String token) {
+      return expression.startsWith(token, position);
+    }
+
+    private boolean accept(String token) {
+      skipWhitespace();
+      if (lookingAt(token)) {
+        position += token.length();
+        return true;
+      }
+      return false;
+    }
+
+    private boolean acceptWord(String word) {
+      skipWhitespace();
+      int end = position + word.length();
+      if (lookingAt(word) && (end == expression.length() || !Character.isJavaIdentifierPart(expression.charAt(end)))) {
+        position = end;
+        return true;
+      }
+      return false;
+    }
+
+    private void expect(String token) {
+      if (!accept(token)) {
+        throw new UnsupportedSyntaxException();
+      }
+    }
+
+    private void skipWhitespace() {
+      while (position < expression.length() && Character.isWhitespace(expression.charAt(position))) {
+        position++;
+      }
+    }
+  }
+
+  private static Node junction(Node[] operands, boolean or) {
+    // like OGNL, the value of the last evaluated operand is returned
+    return root -> {
+      Object result = null;
+      int last = operands.length - 1;
+      for (int i = 0; i <= last; i++) {
+        result = operands[i].evaluate(root);
+        if (i != last && isTrue(result) == or) {
+          break;
+        }
+      }
+      return result;
+    };
+  }
+
+  private final class PathStep {
+
+    private final String name;
+    private final boolean method;
+    private volatile BeanAccessor accessor;
+
+    PathStep(String name, boolean method) {
+      this.name = name;
+      this.method = method;
+    }
+
+    Object getRootValue(Object root) {
+      if (root instanceof ContextMap) {
+        // same lookup as DynamicContext.ContextAccessor
+        Map<?, ?> bindings = (Map<?, ?>) root;
+        Object value = bindings.get(name);
+        if (value != null || bindings.containsKey(name)) {
+          return value;
+        }
+        Object parameterObject = bindings.get(DynamicContext.PARAMETER_OBJECT_KEY);
+        return parameterObject instanceof Map ? ((Map<?, ?>) parameterObject).get(name) : null;
+      }
+      if (root == null) {
+        throw new BuilderException("Could not get '" + name + "' because the root object is null.");
+      }
+      return getValue(root);
+    }
+
+    Object getValue(Object object) {
+      if (method) {
+        return invokeMethod(object);
+      }
+      if (object instanceof Map) {
+        Map<?, ?> map = (Map<?, ?>) object;
+        Object value = map.get(name);
+        if (value == null && "size".equals(name) && !map.containsKey(name)) {
+          return map.size();
+        }
+        return value;
+      }
+      if ("size".equals(name)) {
+        if (object instanceof Collection) {
+          return ((Collection<?>) object).size();
+        } else if (object.getClass().isArray()) {
+          return Array.getLength(object);
+        }
+      } else if ("length".equals(name) && object.getClass().isArray()) {
+        return Array.getLength(object);
+      }
+      return getBeanProperty(object);
+    }
+
+    private Object invokeMethod(Object object) {
+      int size;
+      if (object instanceof Collection) {
+        size = ((Collection<?>) object).size();
+      } else if (object instanceof Map) {
+        size = ((Map<?, ?>) object).size();
+      } else if (object instanceof CharSequence) {
+        size = ((CharSequence) object).length();
+      } else if (object.getClass().isArray()) {
+        size = Array.getLength(object);
+      } else {
+        throw new BuilderException("Could not call '" + name + "()' on " + object.getClass() + ".");
+      }
+      return "isEmpty".equals(name) ? (Object) (size == 0) : (Object) size;
+    }
+
+    private Object getBeanProperty(Object object) {
+      BeanAccessor current = accessor;
+      if (current == null || current.type != object.getClass()) {
+        Reflector reflector = reflectorFactory.findForClass(object.getClass());
+        if (!reflector.hasGetter(name)) {
+          throw new BuilderException("There is no getter for property named '" + name + "' in '" + object.getClass() + "'");
+        }
+        current = new BeanAccessor(object.getClass(), reflector.getGetInvoker(name));
+        accessor = current;
+      }
+      try {
+        return current.invoker.invoke(object, NO_ARGUMENTS);
+      } catch (Throwable t) {
+        throw new BuilderException("Could not get property '" + name + "' from " + object.getClass() + ". Cause: "
+            + ExceptionUtil.unwrapThrowable(t), t);
+      }
+    }
+  }
+
+  private static final class BeanAccessor {
+    private final Class<?> type;
+    private final Invoker invoker;
+
+    BeanAccessor(Class<?> type, Invoker invoker) {
+      this.type = type;
+      this.invoker = invoker;
+    }
+  }
+
+  private static boolean isTrue(Object value) {
+    if (value == null) {
+      return false;
+    } else if (value instanceof Boolean) {
+      return (Boolean) value;
+    } else if (value instanceof Number) {
+      return toBigDecimal((Number) value).signum() != 0;
+    } else if (value instanceof Character) {
+      return (Character) value != 0;
+    }
+    return true;
+  }
+
+  private static BigDecimal toBigDecimal(Number number) {
+    if (number instanceof BigDecimal) {
+      return (BigDecimal) number;
+    } else if (number instanceof BigInteger) {
+      return new BigDecimal((BigInteger) number);
+    }
+    return new BigDecimal(String.valueOf(number));
+  }
+
+  private static BigDecimal toBigDecimal(Object value) {
+    if (value instanceof Number) {
+      return toBigDecimal((Number) value);
+    } else if (value instanceof CharSequence || value instanceof Character) {
+      try {
+        return new BigDecimal(value.toString().trim());
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  private enum Comparison {
+    EQ, NOT_EQ, LESS, LESS_EQ, GREATER, GREATER_EQ;
+
+    Boolean test(Object v1, Object v2) {
+      switch (this) {
+        case EQ:
+          return isEqual(v1, v2);
+        case NOT_EQ:
+          return !isEqual(v1, v2);
+        default:
+          if (v1 == null || v2 == null) {
+            return Boolean.FALSE;
+          }
+          int result = compare(v1, v2);
+          return this == LESS ? result < 0 : this == LESS_EQ ? result <= 0 : this == GREATER ? result > 0 : result >= 0;
+      }
+    }
+
+    private static boolean isEqual(Object v1, Object v2) {
+      if (v1 == v2) {
+        return true;
+      } else if (v1 == null || v2 == null) {
+        return false;
+      } else if (v1 instanceof Number || v2 instanceof Number) {
+        BigDecimal d1 = toBigDecimal(v1);
+        BigDecimal d2 = toBigDecimal(v2);
+        return d1 != null && d2 != null ? d1.compareTo(d2) == 0 : v1.equals(v2);
+      } else if (v1 instanceof Enum || v2 instanceof Enum) {
+        return v1.equals(v2) || String.valueOf(v1 instanceof Enum ? ((Enum<?>) v1).name() : v1)
+            .equals(String.valueOf(v2 instanceof Enum ? ((Enum<?>) v2).name() : v2));
+      } else if (v1 instanceof Character || v2 instanceof Character) {
+        return v1.toString().equals(v2.toString());
+      }
+      return v1.equals(v2);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compare(Object v1, Object v2) {
+      if (v1 instanceof Number || v2 instanceof Number) {
+        BigDecimal d1 = toBigDecimal(v1);
+        BigDecimal d2 = toBigDecimal(v2);
+        if (d1 != null && d2 != null) {
+          return d1.compareTo(d2);
+        }
+      } else if (v1 instanceof Comparable && v1.getClass().isInstance(v2)) {
+        return ((Comparable) v1).compareTo(v2);
+      }
+      throw new BuilderException("Cannot compare " + v1.getClass().getName() + " with " + v2.getClass().getName() + ".");
+    }
+  }
+
+}
@@ -17,8 +17,8 @@ package org.apache.ibatis.scripting.xmltags;
 
 import java.util.regex.Pattern;
 
-import org.apache.ibatis.parsing.GenericTokenParser;
 import org.apache.ibatis.parsing.TokenHandler;
+import org.apache.ibatis.parsing.TokenTemplate;
 import org.apache.ibatis.scripting.ScriptingException;
 import org.apache.ibatis.type.SimpleTypeRegistry;
 
@@ -26,36 +26,28 @@ import org.apache.ibatis.type.SimpleTypeRegistry;
  * @author Clinton Begin
  */
 public class TextSqlNode implements SqlNode {
-  private final String text;
   private final Pattern injectionFilter;
+  private final TokenTemplate template;
 
   public TextSqlNode(String text) {
     this(text, null);
   }
 
   public TextSqlNode(String text, Pattern injectionFilter) {
-    this.text = text;
     this.injectionFilter = injectionFilter;
+    this.template = TokenTemplate.compile("${", "}", text);
   }
 
   public boolean isDynamic() {
-    DynamicCheckerTokenParser checker = new DynamicCheckerTokenParser();
-    GenericTokenParser parser = createParser(checker);
-    parser.parse(text);
-    return checker.isDynamic();
+    return template.hasTokens();
   }
 
   @Override
   public boolean apply(DynamicContext context) {
-    GenericTokenParser parser = createParser(new BindingTokenParser(context, injectionFilter));
-    context.appendSql(parser.parse(text));
+    context.appendSql(template.render(new BindingTokenParser(context, injectionFilter)));
     return true;
   }
 
-  private GenericTokenParser createParser(TokenHandler handler) {
-    return new GenericTokenParser("${", "}", handler);
-  }
-
   private static class BindingTokenParser implements TokenHandler {
 
     private DynamicContext context;
@@ -74,7 +66,7 @@ public class TextSqlNode implements SqlNode {
       } else if (SimpleTypeRegistry.isSimpleType(parameter.getClass())) {
         context.getBindings().put("value", parameter);
       }
-      Object value = OgnlCache.getValue(content, context.getBindings());
+      Object value = ExpressionEvaluator.getValue(content, context.getBindings());
       String srtValue = value == null ? "" : String.valueOf(value); // issue #274 return "" instead of "null"
       checkInjection(srtValue);
       return srtValue;
@@ -87,23 +79,4 @@ public class TextSqlNode implements SqlNode {
     }
   }
 
-  private static class DynamicCheckerTokenParser implements TokenHandler {
-
-    private boolean isDynamic;
-
-    public DynamicCheckerTokenParser() {
-      // Prevent Synthetic Access
-    }
-
-    public boolean isDynamic() {
-      return isDynamic;
-    }
-
-    @Override
-    public String handleToken(String content) {
-      this.isDynamic = true;
-      return null;
-    }
-  }
-
 }
@@ -57,7 +57,7 @@ public class TrimSqlNode implements SqlNode {
     return result;
   }
 
-  private static List<String> parseOverrides(String overrides) {
+  static List<String> parseOverrides(String overrides) {
     if (overrides != null) {
       final StringTokenizer parser = new StringTokenizer(overrides, "|", false);
       final List<String> list = new ArrayList<>(parser.countTokens());
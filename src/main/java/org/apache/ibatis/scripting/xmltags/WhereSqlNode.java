@@ -25,10 +25,11 @@ import org.apache.ibatis.session.Configuration;
  */
 public class WhereSqlNode extends TrimSqlNode {
 
-  private static List<String> prefixList = Arrays.asList("AND ","OR ","AND\n", "OR\n", "AND\r", "OR\r", "AND\t", "OR\t");
+  static final String PREFIX = "WHERE";
+  static final List<String> prefixList = Arrays.asList("AND ","OR ","AND\n", "OR\n", "AND\r", "OR\r", "AND\t", "OR\t");
 
   public WhereSqlNode(Configuration configuration, SqlNode contents) {
-    super(configuration, contents, "WHERE", prefixList, null, null);
+    super(configuration, contents, PREFIX, prefixList, null, null);
   }
 
 }
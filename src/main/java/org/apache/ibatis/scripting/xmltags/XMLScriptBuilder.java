@@ -17,11 +17,21 @@ package org.apache.ibatis.scripting.xmltags;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+
+import ognl.ASTConst;
+import ognl.ExpressionNode;
+import ognl.Ognl;
+import ognl.OgnlException;
 
 import org.apache.ibatis.builder.BaseBuilder;
 import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.mapping.SqlSource;
 import org.apache.ibatis.parsing.XNode;
 import org.apache.ibatis.scripting.defaults.RawSqlSource;
@@ -34,8 +44,12 @@ import org.w3c.dom.NodeList;
  */
 public class XMLScriptBuilder extends BaseBuilder {
 
+  private static final Log log = LogFactory.getLog(XMLScriptBuilder.class);
+
   private final XNode context;
   private boolean isDynamic;
+  // why the SQL still has to be built on every call, reported at debug level
+  private final Set<String> dynamicReasons = new LinkedHashSet<>();
   private final Class<?> parameterType;
   private final Map<String, NodeHandler> nodeHandlerMap = new HashMap<>();
 
@@ -64,17 +78,36 @@ public class XMLScriptBuilder extends BaseBuilder {
   }
 
   public SqlSource parseScriptNode() {
-    MixedSqlNode rootSqlNode = parseDynamicTags(context);
+    List<SqlNode> contents = parseContents(context);
     SqlSource sqlSource;
-    if (isDynamic) {//是否是动态的（该SQL片段是否含有参数）
-      sqlSource = new DynamicSqlSource(configuration, rootSqlNode);//如果是动态的则创建动态SQLsource
+    if (!isDynamic) {
+      sqlSource = new RawSqlSource(configuration, new MixedSqlNode(contents), parameterType);//否则创建原生sqlsource
+    } else if (isStatic(contents)) {
+      // the elements were folded at load time, e.g. constant tests or a <where> around static text
+      StaticTextSqlNode sqlNode = (StaticTextSqlNode) mergeStaticText(contents).get(0);
+      if (parameterType != null && !referencesContextBindings(sqlNode.getText())) {
+        sqlSource = new RawSqlSource(configuration, sqlNode, parameterType);
+      } else {
+        // the types of the parameters are still resolved from the actual parameter object
+        sqlSource = new DynamicSqlSource(configuration, sqlNode);
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Dynamic SQL of " + describeContext() + " was folded to static SQL.");
+      }
     } else {
-      sqlSource = new RawSqlSource(configuration, rootSqlNode, parameterType);//否则创建原生sqlsource
+      sqlSource = new DynamicSqlSource(configuration, new MixedSqlNode(mergeStaticText(contents)));//如果是动态的则创建动态SQLsource
+      if (log.isDebugEnabled()) {
+        log.debug("Dynamic SQL of " + describeContext() + " is built on every call because of " + String.join(", ", dynamicReasons) + ".");
+      }
     }
     return sqlSource;
   }
 
   protected MixedSqlNode parseDynamicTags(XNode node) {
+    return new MixedSqlNode(parseContents(node));//通过MixedSqlNode包装contents
+  }
+
+  private List<SqlNode> parseContents(XNode node) {
     List<SqlNode> contents = new ArrayList<>();
     NodeList children = node.getNode().getChildNodes();//获取子节点
     for (int i = 0; i < children.getLength(); i++) {//遍历子节点
@@ -85,6 +118,7 @@ public class XMLScriptBuilder extends BaseBuilder {
         if (textSqlNode.isDynamic()) {//该SQLnode是否是动态的，如果是则放入contents中
           contents.add(textSqlNode);
           isDynamic = true;
+          dynamicReasons.add("${} substitutions");
         } else {
           contents.add(new StaticTextSqlNode(data));//如果SQLNode不是动态的则通过StaticTextSqlNode包装后放入contents
         }
@@ -98,7 +132,149 @@ public class XMLScriptBuilder extends BaseBuilder {
         isDynamic = true;
       }
     }
-    return new MixedSqlNode(contents);//通过MixedSqlNode包装contents
+    return contents;
+  }
+
+  private static boolean isStatic(List<SqlNode> contents) {
+    for (SqlNode sqlNode : contents) {
+      if (!(sqlNode instanceof StaticTextSqlNode)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Merges consecutive static texts applied to the root context, which separates fragments with a space.
+   */
+  private static List<SqlNode> mergeStaticText(List<SqlNode> contents) {
+    List<SqlNode> merged = new ArrayList<>();
+    StringBuilder text = null;
+    for (SqlNode sqlNode : contents) {
+      if (sqlNode instanceof StaticTextSqlNode) {
+        if (text == null) {
+          text = new StringBuilder(((StaticTextSqlNode) sqlNode).getText());
+        } else {
+          text.append(' ').append(((StaticTextSqlNode) sqlNode).getText());
+        }
+      } else {
+        if (text != null) {
+          merged.add(new StaticTextSqlNode(text.toString()));
+          text = null;
+        }
+        merged.add(sqlNode);
+      }
+    }
+    if (text != null || merged.isEmpty()) {
+      merged.add(new StaticTextSqlNode(text == null ? "" : text.toString()));
+    }
+    return merged;
+  }
+
+  private static boolean referencesContextBindings(String sql) {
+    // only the bindings of a dynamic context provide #{_parameter} and #{_databaseId} for any parameter object
+    return sql.contains(DynamicContext.PARAMETER_OBJECT_KEY) || sql.contains(DynamicContext.DATABASE_ID_KEY);
+  }
+
+  /**
+   * Adds a node whose output does not depend on the parameter when its contents are static, as the text it appends.
+   */
+  private void addFolded(SqlNode sqlNode, List<SqlNode> contents, List<SqlNode> targetContents) {
+    if (!isStatic(contents)) {
+      targetContents.add(sqlNode);
+      return;
+    }
+    sqlNode.apply(new DynamicContext(configuration, null) {
+      @Override
+      public void appendSql(String sql) {
+        targetContents.add(new StaticTextSqlNode(sql));
+      }
+    });
+  }
+
+  /**
+   * Moves a trim without suffix out of the way when its contents start with static text: the prefix is then always
+   * applied and never overridden, so it is rendered once with that text and the remaining contents take its place.
+   *
+   * @return false if the trim has to be applied on every call
+   */
+  private boolean hoistLeadingText(String prefix, List<String> prefixesToOverride, List<SqlNode> contents, List<SqlNode> targetContents) {
+    if (contents.isEmpty() || !(contents.get(0) instanceof StaticTextSqlNode)) {
+      return false;
+    }
+    String text = ((StaticTextSqlNode) contents.get(0)).getText();
+    String leadingText = text.replaceFirst("^\\s+", "");
+    String trimmedUppercaseText = leadingText.trim().toUpperCase(Locale.ENGLISH);
+    if (trimmedUppercaseText.isEmpty()) {
+      return false;
+    }
+    for (String toRemove : prefixesToOverride) {
+      // the text could still be completed to an override by the following contents
+      if (trimmedUppercaseText.startsWith(toRemove.trim()) || toRemove.startsWith(trimmedUppercaseText)) {
+        return false;
+      }
+    }
+    for (int i = 1; i < contents.size(); i++) {
+      // a trim concatenates its contents, the target context may separate them with a space
+      if (!endsWithWhitespace(contents.get(i - 1)) && !startsWithWhitespace(contents.get(i))) {
+        return false;
+      }
+    }
+    targetContents.add(new StaticTextSqlNode(prefix == null ? leadingText : prefix + " " + leadingText));
+    targetContents.addAll(contents.subList(1, contents.size()));
+    return true;
+  }
+
+  private static boolean startsWithWhitespace(SqlNode sqlNode) {
+    String text = sqlNode instanceof StaticTextSqlNode ? ((StaticTextSqlNode) sqlNode).getText() : "";
+    return !text.isEmpty() && Character.isWhitespace(text.charAt(0));
+  }
+
+  private static boolean endsWithWhitespace(SqlNode sqlNode) {
+    String text = sqlNode instanceof StaticTextSqlNode ? ((StaticTextSqlNode) sqlNode).getText() : "";
+    return !text.isEmpty() && Character.isWhitespace(text.charAt(text.length() - 1));
+  }
+
+  /**
+   * Evaluates a test that only consists of literals and operators.
+   *
+   * @return the result, or <code>null</code> if it has to be evaluated on every call
+   */
+  private Boolean evaluateConstantTest(String test) {
+    Class<?> languageType = configuration.getExpressionLanguage().getClass();
+    if (test == null || languageType != OgnlExpressionLanguage.class && languageType != SimpleExpressionLanguage.class) {
+      return null;
+    }
+    try {
+      if (!isConstant((ognl.Node) Ognl.parseExpression(test))) {
+        return null;
+      }
+      return new ExpressionEvaluator().evaluateBoolean(test, new DynamicContext(configuration, null).getBindings());
+    } catch (OgnlException | RuntimeException e) {
+      // reported on every call as before
+      return null;
+    }
+  }
+
+  private static boolean isConstant(ognl.Node node) {
+    if (node instanceof ASTConst) {
+      return !(((ASTConst) node).getValue() instanceof ognl.Node);
+    }
+    if (!(node instanceof ExpressionNode)) {
+      // properties, variables, method calls, ...
+      return false;
+    }
+    for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+      if (!isConstant(node.jjtGetChild(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String describeContext() {
+    String id = context.getStringAttribute("id");
+    return "<" + context.getName() + (id == null ? "" : " id=\"" + id + "\"") + ">";
   }
 
   private interface NodeHandler {
@@ -116,6 +292,7 @@ public class XMLScriptBuilder extends BaseBuilder {
       final String expression = nodeToHandle.getStringAttribute("value");
       final VarDeclSqlNode node = new VarDeclSqlNode(name, expression);
       targetContents.add(node);
+      dynamicReasons.add("<bind name=\"" + name + "\">");
     }
   }
 
@@ -126,13 +303,18 @@ public class XMLScriptBuilder extends BaseBuilder {
 
     @Override
     public void handleNode(XNode nodeToHandle, List<SqlNode> targetContents) {
-      MixedSqlNode mixedSqlNode = parseDynamicTags(nodeToHandle);
+      List<SqlNode> contents = parseContents(nodeToHandle);
+      MixedSqlNode mixedSqlNode = new MixedSqlNode(contents);
       String prefix = nodeToHandle.getStringAttribute("prefix");
       String prefixOverrides = nodeToHandle.getStringAttribute("prefixOverrides");
       String suffix = nodeToHandle.getStringAttribute("suffix");
       String suffixOverrides = nodeToHandle.getStringAttribute("suffixOverrides");
+      if (suffix == null && suffixOverrides == null && !isStatic(contents)
+          && hoistLeadingText(prefix, TrimSqlNode.parseOverrides(prefixOverrides), contents, targetContents)) {
+        return;
+      }
       TrimSqlNode trim = new TrimSqlNode(configuration, mixedSqlNode, prefix, prefixOverrides, suffix, suffixOverrides);
-      targetContents.add(trim);
+      addFolded(trim, contents, targetContents);
     }
   }
 
@@ -143,9 +325,12 @@ public class XMLScriptBuilder extends BaseBuilder {
 
     @Override
     public void handleNode(XNode nodeToHandle, List<SqlNode> targetContents) {
-      MixedSqlNode mixedSqlNode = parseDynamicTags(nodeToHandle);
-      WhereSqlNode where = new WhereSqlNode(configuration, mixedSqlNode);
-      targetContents.add(where);
+      List<SqlNode> contents = parseContents(nodeToHandle);
+      if (!isStatic(contents) && hoistLeadingText(WhereSqlNode.PREFIX, WhereSqlNode.prefixList, contents, targetContents)) {
+        return;
+      }
+      WhereSqlNode where = new WhereSqlNode(configuration, new MixedSqlNode(contents));
+      addFolded(where, contents, targetContents);
     }
   }
 
@@ -156,9 +341,9 @@ public class XMLScriptBuilder extends BaseBuilder {
 
     @Override
     public void handleNode(XNode nodeToHandle, List<SqlNode> targetContents) {
-      MixedSqlNode mixedSqlNode = parseDynamicTags(nodeToHandle);
-      SetSqlNode set = new SetSqlNode(configuration, mixedSqlNode);
-      targetContents.add(set);
+      List<SqlNode> contents = parseContents(nodeToHandle);
+      SetSqlNode set = new SetSqlNode(configuration, new MixedSqlNode(contents));
+      addFolded(set, contents, targetContents);
     }
   }
 
@@ -176,8 +361,10 @@ public class XMLScriptBuilder extends BaseBuilder {
       String open = nodeToHandle.getStringAttribute("open");
       String close = nodeToHandle.getStringAttribute("close");
       String separator = nodeToHandle.getStringAttribute("separator");
-      ForEachSqlNode forEachSqlNode = new ForEachSqlNode(configuration, mixedSqlNode, collection, index, item, open, close, separator);
+      boolean padToPowerOfTwo = nodeToHandle.getBooleanAttribute("padToPowerOfTwo", false);
+      ForEachSqlNode forEachSqlNode = new ForEachSqlNode(configuration, mixedSqlNode, collection, index, item, open, close, separator, padToPowerOfTwo);
       targetContents.add(forEachSqlNode);
+      dynamicReasons.add("<foreach collection=\"" + collection + "\">");
     }
   }
 
@@ -188,10 +375,16 @@ public class XMLScriptBuilder extends BaseBuilder {
 
     @Override
     public void handleNode(XNode nodeToHandle, List<SqlNode> targetContents) {
-      MixedSqlNode mixedSqlNode = parseDynamicTags(nodeToHandle);
+      List<SqlNode> contents = parseContents(nodeToHandle);
       String test = nodeToHandle.getStringAttribute("test");
-      IfSqlNode ifSqlNode = new IfSqlNode(mixedSqlNode, test);
-      targetContents.add(ifSqlNode);
+      Boolean constant = evaluateConstantTest(test);
+      if (constant == null) {
+        targetContents.add(new IfSqlNode(new MixedSqlNode(contents), test));
+        dynamicReasons.add("<" + nodeToHandle.getName() + " test=\"" + test + "\">");
+      } else if (constant) {
+        // an if applies its contents to the same context, so they can take its place
+        targetContents.addAll(contents);
+      }
     }
   }
 
@@ -215,34 +408,58 @@ public class XMLScriptBuilder extends BaseBuilder {
     @Override
     public void handleNode(XNode nodeToHandle, List<SqlNode> targetContents) {
       List<SqlNode> whenSqlNodes = new ArrayList<>();
-      List<SqlNode> otherwiseSqlNodes = new ArrayList<>();
-      handleWhenOtherwiseNodes(nodeToHandle, whenSqlNodes, otherwiseSqlNodes);
-      SqlNode defaultSqlNode = getDefaultSqlNode(otherwiseSqlNodes);
+      List<List<SqlNode>> otherwiseContents = new ArrayList<>();
+      List<SqlNode> chosenContents = handleWhenOtherwiseNodes(nodeToHandle, whenSqlNodes, otherwiseContents);
+      if (chosenContents == null) {
+        chosenContents = getDefaultContents(otherwiseContents);
+      }
+      if (whenSqlNodes.isEmpty()) {
+        // every test is constant, the chosen contents are applied to the same context as the choose
+        if (chosenContents != null) {
+          targetContents.addAll(chosenContents);
+        }
+        return;
+      }
+      SqlNode defaultSqlNode = chosenContents == null ? null : new MixedSqlNode(chosenContents);
       ChooseSqlNode chooseSqlNode = new ChooseSqlNode(whenSqlNodes, defaultSqlNode);
       targetContents.add(chooseSqlNode);
     }
 
-    private void handleWhenOtherwiseNodes(XNode chooseSqlNode, List<SqlNode> ifSqlNodes, List<SqlNode> defaultSqlNodes) {
+    /**
+     * @return the contents of the first when whose test is constantly true, which replaces the otherwise
+     */
+    private List<SqlNode> handleWhenOtherwiseNodes(XNode chooseSqlNode, List<SqlNode> ifSqlNodes, List<List<SqlNode>> defaultContents) {
+      List<SqlNode> chosenContents = null;
       List<XNode> children = chooseSqlNode.getChildren();
       for (XNode child : children) {
         String nodeName = child.getNode().getNodeName();
         NodeHandler handler = nodeHandlerMap.get(nodeName);
         if (handler instanceof IfHandler) {
-          handler.handleNode(child, ifSqlNodes);
+          List<SqlNode> contents = parseContents(child);
+          if (chosenContents != null) {
+            // never reached
+            continue;
+          }
+          String test = child.getStringAttribute("test");
+          Boolean constant = evaluateConstantTest(test);
+          if (constant == null) {
+            ifSqlNodes.add(new IfSqlNode(new MixedSqlNode(contents), test));
+            dynamicReasons.add("<when test=\"" + test + "\">");
+          } else if (constant) {
+            chosenContents = contents;
+          }
         } else if (handler instanceof OtherwiseHandler) {
-          handler.handleNode(child, defaultSqlNodes);
+          defaultContents.add(parseContents(child));
         }
       }
-    }
-
-    private SqlNode getDefaultSqlNode(List<SqlNode> defaultSqlNodes) {
-      SqlNode defaultSqlNode = null;
-      if (defaultSqlNodes.size() == 1) {
-        defaultSqlNode = defaultSqlNodes.get(0);
-      } else if (defaultSqlNodes.size() > 1) {
+      if (defaultContents.size() > 1) {
         throw new BuilderException("Too many default (otherwise) elements in choose statement.");
       }
-      return defaultSqlNode;
+      return chosenContents;
+    }
+
+    private List<SqlNode> getDefaultContents(List<List<SqlNode>> defaultContents) {
+      return defaultContents.isEmpty() ? null : defaultContents.get(0);
     }
   }
 
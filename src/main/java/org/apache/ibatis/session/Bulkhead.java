@@ -0,0 +1,133 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ibatis.exceptions.BulkheadFullException;
+
+/**
+ * Limits the number of statements of one mapper namespace that are executed concurrently, so that a slow mapper cannot
+ * hold every connection of the pool and starve the other mappers sharing the same {@link SqlSessionFactory}.
+ * <p>
+ * A call that finds the bulkhead full waits up to the configured timeout for another call to finish, then it fails
+ * with a {@link BulkheadFullException}. The permit is taken before the statement gets a connection and is returned
+ * when the statement completes, or when the cursor is closed for {@link SqlSession#selectCursor(String)}.
+ *
+ * @since 3.5.5
+ */
+public class Bulkhead {
+
+  private final String id;
+  private final int maxConcurrentCalls;
+  private final long timeout;
+  private final Semaphore semaphore;
+  private final LongAdder acceptedCount = new LongAdder();
+  private final LongAdder rejectedCount = new LongAdder();
+
+  /**
+   * Creates a bulkhead.
+   *
+   * @param id
+   *          the namespace it protects
+   * @param maxConcurrentCalls
+   *          the number of statements that may run at the same time
+   * @param timeout
+   *          the time in milliseconds a call waits for a permit, 0 or less rejects the call at once
+   */
+  public Bulkhead(String id, int maxConcurrentCalls, long timeout) {
+    if (maxConcurrentCalls <= 0) {
+      throw new IllegalArgumentException("The maximum number of concurrent calls of bulkhead '" + id + "' must be positive.");
+    }
+    this.id = id;
+    this.maxConcurrentCalls = maxConcurrentCalls;
+    this.timeout = timeout;
+    // fair, so that the calls waiting longest are not overtaken
+    this.semaphore = new Semaphore(maxConcurrentCalls, true);
+  }
+
+  /**
+   * Takes a permit, waiting up to the timeout if necessary.
+   *
+   * @throws BulkheadFullException
+   *           if no permit became available in time
+   */
+  public void acquire() {
+    boolean acquired;
+    try {
+      acquired = timeout > 0 ? semaphore.tryAcquire(timeout, TimeUnit.MILLISECONDS) : semaphore.tryAcquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      acquired = false;
+    }
+    if (!acquired) {
+      rejectedCount.increment();
+      throw new BulkheadFullException("Bulkhead '" + id + "' is full: " + maxConcurrentCalls
+          + " statements are running and no permit became available within " + Math.max(0, timeout) + " ms.");
+    }
+    acceptedCount.increment();
+  }
+
+  /**
+   * Returns a permit taken by {@link #acquire()}.
+   */
+  public void release() {
+    semaphore.release();
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public int getMaxConcurrentCalls() {
+    return maxConcurrentCalls;
+  }
+
+  public long getTimeout() {
+    return timeout;
+  }
+
+  /**
+   * Returns the number of statements currently holding a permit.
+   */
+  public int getActiveCalls() {
+    return maxConcurrentCalls - semaphore.availablePermits();
+  }
+
+  /**
+   * Returns the number of calls waiting for a permit (an estimate).
+   */
+  public int getQueuedCalls() {
+    return semaphore.getQueueLength();
+  }
+
+  public long getAcceptedCount() {
+    return acceptedCount.sum();
+  }
+
+  public long getRejectedCount() {
+    return rejectedCount.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "Bulkhead[" + id + ", active=" + getActiveCalls() + "/" + maxConcurrentCalls + ", queued=" + getQueuedCalls()
+        + ", accepted=" + getAcceptedCount() + ", rejected=" + getRejectedCount() + "]";
+  }
+
+}
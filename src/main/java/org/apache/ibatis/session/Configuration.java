@@ -30,6 +30,7 @@ import java.util.function.BiFunction;
 import org.apache.ibatis.binding.MapperRegistry;
 import org.apache.ibatis.builder.CacheRefResolver;
 import org.apache.ibatis.builder.IncompleteElementException;
+import org.apache.ibatis.builder.ParameterMappingCache;
 import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
@@ -41,6 +42,7 @@ import org.apache.ibatis.cache.decorators.WeakCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
+import org.apache.ibatis.datasource.routing.RoutingDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.BatchExecutor;
 import org.apache.ibatis.executor.CachingExecutor;
@@ -86,6 +88,10 @@ import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
 import org.apache.ibatis.scripting.LanguageDriverRegistry;
 import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
+import org.apache.ibatis.scripting.xmltags.ExpressionCache;
+import org.apache.ibatis.scripting.xmltags.ExpressionLanguage;
+import org.apache.ibatis.scripting.xmltags.OgnlExpressionLanguage;
+import org.apache.ibatis.scripting.xmltags.SimpleExpressionLanguage;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
@@ -129,6 +135,9 @@ public class Configuration {
 
   protected Properties variables = new Properties();
   protected ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+  protected ExpressionCache expressionCache = new ExpressionCache();
+  protected ParameterMappingCache parameterMappingCache = new ParameterMappingCache();
+  protected ExpressionLanguage expressionLanguage = new OgnlExpressionLanguage();
   protected ObjectFactory objectFactory = new DefaultObjectFactory();
   protected ObjectWrapperFactory objectWrapperFactory = new DefaultObjectWrapperFactory();
 
@@ -154,6 +163,7 @@ public class Configuration {
       .conflictMessageProducer((savedValue, targetValue) ->
           ". please check " + savedValue.getResource() + " and " + targetValue.getResource());
   protected final Map<String, Cache> caches = new StrictMap<>("Caches collection");
+  protected final Map<String, Bulkhead> bulkheads = new StrictMap<>("Bulkheads collection");
   protected final Map<String, ResultMap> resultMaps = new StrictMap<>("Result Maps collection");
   protected final Map<String, ParameterMap> parameterMaps = new StrictMap<>("Parameter Maps collection");
   protected final Map<String, KeyGenerator> keyGenerators = new StrictMap<>("Key Generators collection");
@@ -185,6 +195,7 @@ public class Configuration {
     typeAliasRegistry.registerAlias("JNDI", JndiDataSourceFactory.class);
     typeAliasRegistry.registerAlias("POOLED", PooledDataSourceFactory.class);
     typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
+    typeAliasRegistry.registerAlias("ROUTING", RoutingDataSourceFactory.class);
 
     typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
     typeAliasRegistry.registerAlias("FIFO", FifoCache.class);
@@ -197,6 +208,9 @@ public class Configuration {
     typeAliasRegistry.registerAlias("XML", XMLLanguageDriver.class);
     typeAliasRegistry.registerAlias("RAW", RawLanguageDriver.class);
 
+    typeAliasRegistry.registerAlias("OGNL", OgnlExpressionLanguage.class);
+    typeAliasRegistry.registerAlias("SIMPLE", SimpleExpressionLanguage.class);
+
     typeAliasRegistry.registerAlias("SLF4J", Slf4jImpl.class);
     typeAliasRegistry.registerAlias("COMMONS_LOGGING", JakartaCommonsLoggingImpl.class);
     typeAliasRegistry.registerAlias("LOG4J", Log4jImpl.class);
@@ -514,6 +528,72 @@ public class Configuration {
     this.reflectorFactory = reflectorFactory;
   }
 
+  /**
+   * Returns the cache of the OGNL expressions evaluated by the dynamic SQL of this configuration.
+   *
+   * @return the expression cache
+   * @since 3.5.5
+   */
+  public ExpressionCache getExpressionCache() {
+    return expressionCache;
+  }
+
+  /**
+   * Sets the expression cache, e.g. to change its maximum size.
+   *
+   * @param expressionCache
+   *          the expression cache
+   * @since 3.5.5
+   */
+  public void setExpressionCache(ExpressionCache expressionCache) {
+    this.expressionCache = expressionCache;
+  }
+
+  /**
+   * Returns the cache of the parameter mappings of the SQL built by dynamic statements.
+   *
+   * @return the parameter mapping cache
+   * @since 3.5.5
+   */
+  public ParameterMappingCache getParameterMappingCache() {
+    return parameterMappingCache;
+  }
+
+  /**
+   * Sets the parameter mapping cache, e.g. to change its maximum size.
+   *
+   * @param parameterMappingCache
+   *          the parameter mapping cache
+   * @since 3.5.5
+   */
+  public void setParameterMappingCache(ParameterMappingCache parameterMappingCache) {
+    this.parameterMappingCache = parameterMappingCache;
+  }
+
+  /**
+   * Returns the language of the expressions of dynamic SQL elements.
+   *
+   * @return the expression language
+   * @since 3.5.5
+   */
+  public ExpressionLanguage getExpressionLanguage() {
+    return expressionLanguage;
+  }
+
+  /**
+   * Sets the language of the expressions of dynamic SQL elements, OGNL when <code>null</code>.
+   *
+   * @param expressionLanguage
+   *          the expression language
+   * @since 3.5.5
+   */
+  public void setExpressionLanguage(ExpressionLanguage expressionLanguage) {
+    if (expressionLanguage == null) {
+      expressionLanguage = new OgnlExpressionLanguage();
+    }
+    this.expressionLanguage = expressionLanguage;
+  }
+
   public ObjectFactory getObjectFactory() {
     return objectFactory;
   }
@@ -656,6 +736,34 @@ public class Configuration {
     return caches.containsKey(id);
   }
 
+  /**
+   * @since 3.5.5
+   */
+  public void addBulkhead(Bulkhead bulkhead) {
+    bulkheads.put(bulkhead.getId(), bulkhead);
+  }
+
+  /**
+   * @since 3.5.5
+   */
+  public Collection<Bulkhead> getBulkheads() {
+    return bulkheads.values();
+  }
+
+  /**
+   * @since 3.5.5
+   */
+  public Bulkhead getBulkhead(String id) {
+    return bulkheads.get(id);
+  }
+
+  /**
+   * @since 3.5.5
+   */
+  public boolean hasBulkhead(String id) {
+    return bulkheads.containsKey(id);
+  }
+
   public void addResultMap(ResultMap rm) {
     resultMaps.put(rm.getId(), rm);
     checkLocallyForDiscriminatedNestedResultMaps(rm);
@@ -21,11 +21,13 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.binding.BindingException;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.exceptions.BulkheadFullException;
 import org.apache.ibatis.exceptions.ExceptionFactory;
 import org.apache.ibatis.exceptions.TooManyResultsException;
 import org.apache.ibatis.executor.BatchResult;
@@ -34,6 +36,7 @@ import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.result.DefaultMapResultHandler;
 import org.apache.ibatis.executor.result.DefaultResultContext;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Bulkhead;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -120,9 +123,26 @@ public class DefaultSqlSession implements SqlSession {
   public <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds) {
     try {
       MappedStatement ms = configuration.getMappedStatement(statement);
-      Cursor<T> cursor = executor.queryCursor(ms, wrapCollection(parameter), rowBounds);
+      Bulkhead bulkhead = ms.getBulkhead();
+      if (bulkhead == null) {
+        Cursor<T> cursor = executor.queryCursor(ms, wrapCollection(parameter), rowBounds);
+        registerCursor(cursor);
+        return cursor;
+      }
+      bulkhead.acquire();
+      Cursor<T> cursor;
+      try {
+        cursor = executor.queryCursor(ms, wrapCollection(parameter), rowBounds);
+      } catch (Exception e) {
+        bulkhead.release();
+        throw e;
+      }
+      // the permit is held until the cursor, and with it the connection, is released
+      cursor = new BulkheadCursor<>(cursor, bulkhead);
       registerCursor(cursor);
       return cursor;
+    } catch (BulkheadFullException e) {
+      throw e;
     } catch (Exception e) {
       throw ExceptionFactory.wrapException("Error querying database.  Cause: " + e, e);
     } finally {
@@ -144,7 +164,14 @@ public class DefaultSqlSession implements SqlSession {
   public <E> List<E> selectList(String statement, Object parameter, RowBounds rowBounds) {
     try {
       MappedStatement ms = configuration.getMappedStatement(statement);//从configuration中获取MappedStatement（同时会进行校验是否还有未解析的方法和Cache等）
-      return executor.query(ms, wrapCollection(parameter), rowBounds, Executor.NO_RESULT_HANDLER);//采用执行器执行MappedStatement
+      Bulkhead bulkhead = acquireBulkhead(ms);
+      try {
+        return executor.query(ms, wrapCollection(parameter), rowBounds, Executor.NO_RESULT_HANDLER);//采用执行器执行MappedStatement
+      } finally {
+        releaseBulkhead(bulkhead);
+      }
+    } catch (BulkheadFullException e) {
+      throw e;
     } catch (Exception e) {
       throw ExceptionFactory.wrapException("Error querying database.  Cause: " + e, e);
     } finally {
@@ -166,7 +193,14 @@ public class DefaultSqlSession implements SqlSession {
   public void select(String statement, Object parameter, RowBounds rowBounds, ResultHandler handler) {
     try {
       MappedStatement ms = configuration.getMappedStatement(statement);
-      executor.query(ms, wrapCollection(parameter), rowBounds, handler);
+      Bulkhead bulkhead = acquireBulkhead(ms);
+      try {
+        executor.query(ms, wrapCollection(parameter), rowBounds, handler);
+      } finally {
+        releaseBulkhead(bulkhead);
+      }
+    } catch (BulkheadFullException e) {
+      throw e;
     } catch (Exception e) {
       throw ExceptionFactory.wrapException("Error querying database.  Cause: " + e, e);
     } finally {
@@ -194,7 +228,14 @@ public class DefaultSqlSession implements SqlSession {
     try {
       dirty = true;
       MappedStatement ms = configuration.getMappedStatement(statement);
-      return executor.update(ms, wrapCollection(parameter));
+      Bulkhead bulkhead = acquireBulkhead(ms);
+      try {
+        return executor.update(ms, wrapCollection(parameter));
+      } finally {
+        releaseBulkhead(bulkhead);
+      }
+    } catch (BulkheadFullException e) {
+      throw e;
     } catch (Exception e) {
       throw ExceptionFactory.wrapException("Error updating database.  Cause: " + e, e);
     } finally {
@@ -312,6 +353,20 @@ public class DefaultSqlSession implements SqlSession {
     cursorList.add(cursor);
   }
 
+  private Bulkhead acquireBulkhead(MappedStatement ms) {
+    Bulkhead bulkhead = ms.getBulkhead();
+    if (bulkhead != null) {
+      bulkhead.acquire();
+    }
+    return bulkhead;
+  }
+
+  private void releaseBulkhead(Bulkhead bulkhead) {
+    if (bulkhead != null) {
+      bulkhead.release();
+    }
+  }
+
   private boolean isCommitOrRollbackRequired(boolean force) {
     return (!autoCommit && dirty) || force;
   }
@@ -332,6 +387,72 @@ public class DefaultSqlSession implements SqlSession {
     return object;
   }
 
+  /**
+   * Holds a permit of a bulkhead until the cursor is closed or fully consumed.
+   */
+  private static class BulkheadCursor<T> implements Cursor<T> {
+
+    private final Cursor<T> delegate;
+    private final Bulkhead bulkhead;
+    private boolean released;
+
+    BulkheadCursor(Cursor<T> delegate, Bulkhead bulkhead) {
+      this.delegate = delegate;
+      this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return delegate.isOpen();
+    }
+
+    @Override
+    public boolean isConsumed() {
+      return delegate.isConsumed();
+    }
+
+    @Override
+    public int getCurrentIndex() {
+      return delegate.getCurrentIndex();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      Iterator<T> iterator = delegate.iterator();
+      return new Iterator<T>() {
+        @Override
+        public boolean hasNext() {
+          boolean hasNext = iterator.hasNext();
+          if (!hasNext) {
+            release();
+          }
+          return hasNext;
+        }
+
+        @Override
+        public T next() {
+          return iterator.next();
+        }
+      };
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        delegate.close();
+      } finally {
+        release();
+      }
+    }
+
+    private synchronized void release() {
+      if (!released) {
+        released = true;
+        bulkhead.release();
+      }
+    }
+  }
+
   public static class StrictMap<V> extends HashMap<String, V> {
 
     private static final long serialVersionUID = -5741767162221585340L;
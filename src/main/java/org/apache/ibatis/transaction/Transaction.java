@@ -57,4 +57,15 @@ public interface Transaction {
    */
   Integer getTimeout() throws SQLException;
 
+  /**
+   * Called by the executor when no statement is using the connection anymore, i.e. every statement has been executed
+   * and its results have been read. A transaction that does not span several statements may return the connection to
+   * the data source here; {@link #getConnection()} then opens a new one for the next statement.
+   * @throws SQLException
+   * @since 3.5.5
+   */
+  default void releaseConnection() throws SQLException {
+    // NOP
+  }
+
 }
@@ -30,6 +30,8 @@ import org.apache.ibatis.transaction.TransactionException;
  * It relies on the connection retrieved from the dataSource to manage the scope of the transaction.
  * Delays connection retrieval until getConnection() is called.
  * Ignores commit or rollback requests when autocommit is on.
+ * When autocommit is on it can also return the connection to the dataSource after each statement, so that the
+ * connection is only held while the database is actually used.
  *
  * @author Clinton Begin
  *
@@ -43,11 +45,21 @@ public class JdbcTransaction implements Transaction {
   protected DataSource dataSource;
   protected TransactionIsolationLevel level;
   protected boolean autoCommit;
+  protected boolean releaseConnectionAfterStatement;
 
   public JdbcTransaction(DataSource ds, TransactionIsolationLevel desiredLevel, boolean desiredAutoCommit) {
+    this(ds, desiredLevel, desiredAutoCommit, false);
+  }
+
+  /**
+   * @since 3.5.5
+   */
+  public JdbcTransaction(DataSource ds, TransactionIsolationLevel desiredLevel, boolean desiredAutoCommit,
+      boolean releaseConnectionAfterStatement) {
     dataSource = ds;
     level = desiredLevel;
     autoCommit = desiredAutoCommit;
+    this.releaseConnectionAfterStatement = releaseConnectionAfterStatement;
   }
 
   public JdbcTransaction(Connection connection) {
@@ -93,6 +105,19 @@ public class JdbcTransaction implements Transaction {
     }
   }
 
+  @Override
+  public void releaseConnection() throws SQLException {
+    // a connection that was passed in or takes part in a transaction must be kept
+    if (releaseConnectionAfterStatement && connection != null && dataSource != null && connection.getAutoCommit()) {
+      if (log.isDebugEnabled()) {
+        log.debug("Releasing JDBC Connection [" + connection + "]");
+      }
+      Connection released = connection;
+      connection = null;
+      released.close();
+    }
+  }
+
   protected void setDesiredAutoCommit(boolean desiredAutoCommit) {
     try {
       if (connection.getAutoCommit() != desiredAutoCommit) {
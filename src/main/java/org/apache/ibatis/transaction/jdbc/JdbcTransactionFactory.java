@@ -16,6 +16,7 @@
 package org.apache.ibatis.transaction.jdbc;
 
 import java.sql.Connection;
+import java.util.Properties;
 
 import javax.sql.DataSource;
 
@@ -32,6 +33,18 @@ import org.apache.ibatis.transaction.TransactionFactory;
  */
 public class JdbcTransactionFactory implements TransactionFactory {
 
+  private boolean releaseConnectionAfterStatement;
+
+  @Override
+  public void setProperties(Properties props) {
+    if (props != null) {
+      String releaseConnectionAfterStatementProperty = props.getProperty("releaseConnectionAfterStatement");
+      if (releaseConnectionAfterStatementProperty != null) {
+        releaseConnectionAfterStatement = Boolean.parseBoolean(releaseConnectionAfterStatementProperty);
+      }
+    }
+  }
+
   @Override
   public Transaction newTransaction(Connection conn) {
     return new JdbcTransaction(conn);
@@ -39,6 +52,6 @@ public class JdbcTransactionFactory implements TransactionFactory {
 
   @Override
   public Transaction newTransaction(DataSource ds, TransactionIsolationLevel level, boolean autoCommit) {
-    return new JdbcTransaction(ds, level, autoCommit);
+    return new JdbcTransaction(ds, level, autoCommit, releaseConnectionAfterStatement);
   }
 }
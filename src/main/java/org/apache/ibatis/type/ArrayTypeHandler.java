@@ -31,6 +31,7 @@ import java.time.LocalTime;
 import java.time.OffsetDateTime;
 import java.time.OffsetTime;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -82,19 +83,43 @@ public class ArrayTypeHandler extends BaseTypeHandler<Object> {
       // it's the user's responsibility to properly free() the Array instance
       ps.setArray(i, (Array) parameter);
     } else {
-      if (!parameter.getClass().isArray()) {
+      Object[] elements;
+      Class<?> componentType;
+      if (parameter instanceof Collection) {
+        elements = ((Collection<?>) parameter).toArray();
+        componentType = resolveElementType(elements);
+      } else if (parameter.getClass().isArray()) {
+        componentType = parameter.getClass().getComponentType();
+        elements = componentType.isPrimitive() ? boxElements(parameter) : (Object[]) parameter;
+      } else {
         throw new TypeException(
-            "ArrayType Handler requires SQL array or java array parameter and does not support type "
+            "ArrayType Handler requires SQL array, java array or collection parameter and does not support type "
                 + parameter.getClass());
       }
-      Class<?> componentType = parameter.getClass().getComponentType();
       String arrayTypeName = resolveTypeName(componentType);
-      Array array = ps.getConnection().createArrayOf(arrayTypeName, (Object[]) parameter);
+      Array array = ps.getConnection().createArrayOf(arrayTypeName, elements);
       ps.setArray(i, array);
       array.free();
     }
   }
 
+  private static Class<?> resolveElementType(Object[] elements) {
+    for (Object element : elements) {
+      if (element != null) {
+        return element.getClass();
+      }
+    }
+    return Object.class;
+  }
+
+  private static Object[] boxElements(Object primitiveArray) {
+    Object[] elements = new Object[java.lang.reflect.Array.getLength(primitiveArray)];
+    for (int i = 0; i < elements.length; i++) {
+      elements[i] = java.lang.reflect.Array.get(primitiveArray, i);
+    }
+    return elements;
+  }
+
   protected String resolveTypeName(Class<?> type) {
     return STANDARD_MAPPING.getOrDefault(type, JdbcType.JAVA_OBJECT.name());
   }
@@ -51,6 +51,8 @@ import org.apache.ibatis.logging.slf4j.Slf4jImpl;
 import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.mapping.ResultSetType;
 import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
+import org.apache.ibatis.scripting.xmltags.OgnlExpressionLanguage;
+import org.apache.ibatis.scripting.xmltags.SimpleExpressionLanguage;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
@@ -95,6 +97,7 @@ class XmlConfigBuilderTest {
       assertThat(config.getLazyLoadTriggerMethods()).isEqualTo(new HashSet<>(Arrays.asList("equals", "clone", "hashCode", "toString")));
       assertThat(config.isSafeResultHandlerEnabled()).isTrue();
       assertThat(config.getDefaultScriptingLanuageInstance()).isInstanceOf(XMLLanguageDriver.class);
+      assertThat(config.getExpressionLanguage()).isInstanceOf(OgnlExpressionLanguage.class);
       assertThat(config.isCallSettersOnNulls()).isFalse();
       assertNull(config.getLogPrefix());
       assertNull(config.getLogImpl());
@@ -189,6 +192,7 @@ class XmlConfigBuilderTest {
       assertThat(config.getLazyLoadTriggerMethods()).isEqualTo(new HashSet<>(Arrays.asList("equals", "clone", "hashCode", "toString", "xxx")));
       assertThat(config.isSafeResultHandlerEnabled()).isFalse();
       assertThat(config.getDefaultScriptingLanuageInstance()).isInstanceOf(RawLanguageDriver.class);
+      assertThat(config.getExpressionLanguage()).isInstanceOf(SimpleExpressionLanguage.class);
       assertThat(config.isCallSettersOnNulls()).isTrue();
       assertThat(config.getLogPrefix()).isEqualTo("mybatis_");
       assertThat(config.getLogImpl().getName()).isEqualTo(Slf4jImpl.class.getName());
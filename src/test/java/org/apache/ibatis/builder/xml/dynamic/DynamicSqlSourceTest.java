@@ -16,12 +16,18 @@
 package org.apache.ibatis.builder.xml.dynamic;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.io.Reader;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,7 +35,9 @@ import java.util.Map;
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.scripting.xmltags.ChooseSqlNode;
+import org.apache.ibatis.scripting.xmltags.DynamicContext;
 import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
 import org.apache.ibatis.scripting.xmltags.ForEachSqlNode;
 import org.apache.ibatis.scripting.xmltags.IfSqlNode;
@@ -37,10 +45,12 @@ import org.apache.ibatis.scripting.xmltags.MixedSqlNode;
 import org.apache.ibatis.scripting.xmltags.SetSqlNode;
 import org.apache.ibatis.scripting.xmltags.SqlNode;
 import org.apache.ibatis.scripting.xmltags.TextSqlNode;
+import org.apache.ibatis.scripting.xmltags.VarDeclSqlNode;
 import org.apache.ibatis.scripting.xmltags.WhereSqlNode;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.type.JdbcType;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -376,6 +386,105 @@ class DynamicSqlSourceTest extends BaseDataTest {
     assertEquals("__frch_u_0", boundSql.getParameterMappings().get(3).getProperty());
   }
 
+  @Test
+  void shouldBindOnlyTheReferencedItemsAndIndexesOfForEach() throws Exception {
+    final Map<String, Object> param = new HashMap<>();
+    List<Bean> beans = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      beans.add(new Bean("id" + i));
+    }
+    param.put("beans", beans);
+    DynamicSqlSource source = createDynamicSqlSource(
+        new TextSqlNode("INSERT INTO BLOG (ID, NOTE) VALUES"),
+        new ForEachSqlNode(new Configuration(), mixedContents(
+            new TextSqlNode("(#{b.id}, #{i}, #{ b.id , jdbcType=VARCHAR}, #{bi})")), "beans", "i", "b", "", "", ","));
+    BoundSql boundSql = source.getBoundSql(param);
+    assertEquals(4000, boundSql.getParameterMappings().size());
+    assertEquals("__frch_b_999.id", boundSql.getParameterMappings().get(3996).getProperty());
+    assertEquals("__frch_i_999", boundSql.getParameterMappings().get(3997).getProperty());
+    assertEquals("__frch_b_999.id", boundSql.getParameterMappings().get(3998).getProperty());
+    assertEquals("bi", boundSql.getParameterMappings().get(3999).getProperty());
+    assertEquals("id999", boundSql.getAdditionalParameter("__frch_b_999.id"));
+    assertEquals(999, boundSql.getAdditionalParameter("__frch_i_999"));
+    assertFalse(boundSql.hasAdditionalParameter("__frch_bi_0"));
+    assertTrue(boundSql.getSql().endsWith("(?, ?, ?, ?)"));
+  }
+
+  @Test
+  void shouldPadForEachToPowerOfTwo() throws Exception {
+    String[] sqls = new String[9];
+    for (int size = 1; size <= 8; size++) {
+      final Map<String, Object> param = new HashMap<>();
+      List<Integer> ids = new ArrayList<>();
+      for (int i = 0; i < size; i++) {
+        ids.add(i);
+      }
+      param.put("ids", ids);
+      DynamicSqlSource source = createDynamicSqlSource(
+          new TextSqlNode("SELECT * FROM BLOG WHERE ID IN"),
+          new ForEachSqlNode(new Configuration(), mixedContents(new TextSqlNode("#{id}")), "ids", null, "id", "(", ")", ",", true));
+      BoundSql boundSql = source.getBoundSql(param);
+      sqls[size] = boundSql.getSql();
+      int lastIndex = boundSql.getParameterMappings().size() - 1;
+      assertEquals(size - 1, boundSql.getAdditionalParameter(boundSql.getParameterMappings().get(lastIndex).getProperty()));
+    }
+    assertNotEquals(sqls[1], sqls[2]);
+    assertNotEquals(sqls[2], sqls[3]);
+    assertEquals(sqls[4], sqls[3]);
+    assertEquals(sqls[8], sqls[5]);
+    assertEquals(sqls[8], sqls[7]);
+  }
+
+  @Test
+  void shouldJoinAndTrimSqlFragmentsLikeBefore() {
+    DynamicContext context = new DynamicContext(new Configuration(), null, 4);
+    context.appendSql("");
+    context.appendSql("\n  SELECT * ");
+    context.appendSql("FROM BLOG\t");
+    context.appendSql("");
+    assertEquals("SELECT *  FROM BLOG", context.getSql());
+    assertEquals("", new DynamicContext(new Configuration(), null).getSql());
+  }
+
+  @Test
+  void shouldReuseParameterMappingsResolvedAgainstTheSameType() throws Exception {
+    DynamicSqlSource source = createDynamicSqlSource(new TextSqlNode("SELECT * FROM BLOG WHERE ID = #{id}"));
+    ParameterMapping first = source.getBoundSql(new Bean("1")).getParameterMappings().get(0);
+    assertSame(first, source.getBoundSql(new Bean("2")).getParameterMappings().get(0));
+    assertEquals(String.class, first.getJavaType());
+    ParameterMapping mapMapping = source.getBoundSql(new HashMap<String, Object>()).getParameterMappings().get(0);
+    assertNotSame(first, mapMapping);
+    assertEquals(Object.class, mapMapping.getJavaType());
+
+    DynamicSqlSource bound = createDynamicSqlSource(new VarDeclSqlNode("id", "_parameter.id == null ? 0 : _parameter.id"),
+        new TextSqlNode("SELECT * FROM BLOG WHERE ID = #{id}"));
+    assertEquals(Integer.class, bound.getBoundSql(new Bean(null)).getParameterMappings().get(0).getJavaType());
+    assertEquals(String.class, bound.getBoundSql(new Bean("1")).getParameterMappings().get(0).getJavaType());
+  }
+
+  @Test
+  void shouldShareCachedParameterMappingsBetweenForEachIterations() throws Exception {
+    Configuration configuration = new Configuration();
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG WHERE ID in"),
+        new ForEachSqlNode(configuration, mixedContents(new TextSqlNode("#{item_1.id, jdbcType=VARCHAR}")), "list",
+            "index", "item_1", "(", ")", ",")));
+    List<Bean> beans = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      beans.add(new Bean(String.valueOf(i)));
+    }
+    BoundSql boundSql = source.getBoundSql(Collections.singletonMap("list", beans));
+    assertEquals(20, boundSql.getParameterMappings().size());
+    for (int i = 0; i < 20; i++) {
+      ParameterMapping parameterMapping = boundSql.getParameterMappings().get(i);
+      assertEquals("__frch_item_1_" + i + ".id", parameterMapping.getProperty());
+      assertEquals(String.class, parameterMapping.getJavaType());
+      assertEquals(JdbcType.VARCHAR, parameterMapping.getJdbcType());
+    }
+    // one mapping serves every iteration
+    assertEquals(1, configuration.getParameterMappingCache().getSize());
+  }
+
   private DynamicSqlSource createDynamicSqlSource(SqlNode... contents) throws IOException, SQLException {
     createBlogDataSource();
     final String resource = "org/apache/ibatis/builder/MapperConfig.xml";
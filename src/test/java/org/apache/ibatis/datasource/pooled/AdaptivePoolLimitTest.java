@@ -0,0 +1,98 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class AdaptivePoolLimitTest {
+
+  private static final long NORMAL = 1_000_000L;
+  private static final long SLOW = 10_000_000L;
+
+  @Test
+  void shouldBackOffWhenTheDatabaseSlowsDownAndGrowWhenBorrowersWait() {
+    AdaptivePoolLimit limit = new AdaptivePoolLimit(2, 2, 10);
+    assertEquals(10, limit.getLimit());
+    for (int i = 0; i < 10; i++) {
+      limit.onRelease(NORMAL, 9);
+    }
+    assertEquals(10, limit.getLimit());
+
+    // cut once per window of returns
+    for (int i = 0; i < 5; i++) {
+      limit.onRelease(SLOW, 9);
+    }
+    assertEquals(9, limit.getLimit());
+    // a lasting slowdown becomes the new normal
+    for (int i = 0; i < 200; i++) {
+      limit.onRelease(SLOW, 9);
+    }
+    int settled = limit.getLimit();
+    assertTrue(settled < 9);
+    for (int i = 0; i < 20; i++) {
+      limit.onRelease(SLOW, 9);
+    }
+    assertEquals(settled, limit.getLimit());
+
+    limit.onAcquire(0, settled);
+    assertEquals(settled, limit.getLimit());
+    limit.onAcquire(NORMAL, settled - 1);
+    assertEquals(settled, limit.getLimit());
+    limit.onAcquire(NORMAL, settled);
+    assertEquals(settled + 1, limit.getLimit());
+  }
+
+  @Test
+  void shouldNotBackOffBelowTheMinimum() {
+    AdaptivePoolLimit limit = new AdaptivePoolLimit(2, 2, 3);
+    limit.onRelease(NORMAL, 2);
+    for (int i = 0; i < 10; i++) {
+      limit.onRelease(SLOW * (i + 1), 2);
+    }
+    assertEquals(2, limit.getLimit());
+  }
+
+  @Test
+  void shouldShrinkWhileMostConnectionsAreUnusedAndStayWithinBounds() {
+    AdaptivePoolLimit limit = new AdaptivePoolLimit(3, 3, 6);
+    for (int i = 0; i < 10; i++) {
+      limit.onRelease(NORMAL, 0);
+    }
+    assertEquals(3, limit.getLimit());
+    for (int i = 0; i < 10; i++) {
+      limit.onAcquire(NORMAL, limit.getLimit());
+    }
+    assertEquals(6, limit.getLimit());
+  }
+
+  @Test
+  void shouldNotShrinkBelowTheIdleFloorUnderLowLoad() {
+    AdaptivePoolLimit limit = new AdaptivePoolLimit(1, 5, 10);
+    for (int i = 0; i < 100; i++) {
+      limit.onRelease(NORMAL, 0);
+    }
+    assertEquals(5, limit.getLimit());
+    // an overloaded database still cuts the limit below the floor
+    for (int i = 0; i < 100; i++) {
+      limit.onRelease(SLOW * (i + 1), 0);
+    }
+    assertEquals(1, limit.getLimit());
+  }
+
+}
@@ -0,0 +1,69 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  void shouldMapEveryValueToTheBucketThatHoldsIt() {
+    long[] values = {0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+    for (long value : values) {
+      int index = LatencyHistogram.indexOf(value);
+      assertTrue(LatencyHistogram.upperBoundOf(index) >= value, "value " + value);
+      if (index > 0) {
+        assertTrue(LatencyHistogram.upperBoundOf(index - 1) < value, "value " + value);
+      }
+    }
+  }
+
+  @Test
+  void shouldReportPercentilesWithinTheBucketPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+    }
+    assertEquals(1000, histogram.getCount());
+    assertEquals(TimeUnit.MICROSECONDS.toNanos(1000), histogram.getMaxNanos());
+    assertEquals(500500, histogram.getMeanNanos());
+    assertWithinPrecision(TimeUnit.MICROSECONDS.toNanos(500), histogram.getValueAtPercentile(50));
+    assertWithinPrecision(TimeUnit.MICROSECONDS.toNanos(990), histogram.getValueAtPercentile(99));
+    assertEquals(histogram.getMaxNanos(), histogram.getValueAtPercentile(100));
+    assertEquals(1.0, histogram.getSummary().getMax(), 0.0);
+  }
+
+  @Test
+  void shouldClearRecordedValuesOnReset() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(42);
+    histogram.record(-1);
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMaxNanos());
+    assertEquals(0, histogram.getValueAtPercentile(99));
+  }
+
+  private void assertWithinPrecision(long expected, long actual) {
+    assertTrue(actual >= expected && actual <= expected * 1.125, "expected about " + expected + " but was " + actual);
+  }
+
+}
@@ -17,17 +17,35 @@ package org.apache.ibatis.jdbc;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
 
 import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.pooled.PoolListener;
+import org.apache.ibatis.datasource.pooled.PoolMetrics;
 import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.executor.ErrorContext;
+import org.apache.ibatis.io.Resources;
 import org.hsqldb.jdbc.JDBCConnection;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -136,6 +154,340 @@ class PooledDataSourceTest extends BaseDataTest {
     con.close();
   }
 
+  @Test
+  void shouldPreWarmMinimumIdleConnectionsInBackground() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMinimumIdleConnections(2);
+      ds.setPoolMaintenanceInterval(50);
+      ds.startMaintenance();
+      waitFor(() -> ds.getPoolState().getIdleConnectionCount() == 2);
+      Connection c = ds.getConnection();
+      waitFor(() -> ds.getPoolState().getIdleConnectionCount() == 2);
+      assertEquals(1, ds.getPoolState().getActiveConnectionCount());
+      c.close();
+    } finally {
+      ds.stopMaintenance();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldRetireConnectionsPastMaximumLifetime() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumConnectionLifetime(100);
+      ds.setPoolMaintenanceInterval(0);
+      Connection c = ds.getConnection();
+      Connection realConnection = PooledDataSource.unwrapConnection(c);
+      c.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      Thread.sleep(150);
+      c = ds.getConnection();
+      assertNotSame(realConnection, PooledDataSource.unwrapConnection(c));
+      assertTrue(realConnection.isClosed());
+      c.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldDiscardBrokenIdleConnectionsInBackground() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolValidateIdleConnections(true);
+      ds.setPoolMaintenanceInterval(50);
+      Connection c = ds.getConnection();
+      Connection realConnection = PooledDataSource.unwrapConnection(c);
+      c.close();
+      realConnection.close();
+      waitFor(() -> ds.getPoolState().getBadConnectionCount() == 1);
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.stopMaintenance();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldLimitConcurrentConnectionCreation() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(4);
+      ds.setPoolMaximumPendingConnections(1);
+      ds.setPoolMaintenanceInterval(0);
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+      List<Future<Void>> results = new ArrayList<>();
+      for (int i = 0; i < 32; i++) {
+        results.add(executor.submit(() -> {
+          try (Connection c = ds.getConnection()) {
+            assertTrue(ds.getPoolState().getPendingConnectionCount() <= 1);
+            assertTrue(c.isValid(1));
+          }
+          return null;
+        }));
+      }
+      for (Future<Void> result : results) {
+        result.get(10, TimeUnit.SECONDS);
+      }
+      executor.shutdown();
+      assertEquals(0, ds.getPoolState().getPendingConnectionCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertTrue(ds.getPoolState().getIdleConnectionCount() <= 4);
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldCloseNewConnectionsThatAreNotValid() throws Exception {
+    List<Connection> realConnections = new ArrayList<>();
+    Properties props = Resources.getResourceAsProperties(JPETSTORE_PROPERTIES);
+    UnpooledDataSource unpooledDataSource = new UnpooledDataSource(props.getProperty("driver"), props.getProperty("url"),
+        props.getProperty("username"), props.getProperty("password")) {
+      @Override
+      public Connection getConnection() throws SQLException {
+        Connection realConnection = super.getConnection();
+        realConnections.add(realConnection);
+        // a connection that fails the validity check of the pool
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+            (proxy, method, args) -> {
+              if ("isClosed".equals(method.getName())) {
+                throw new SQLException("Connection reset");
+              }
+              try {
+                return method.invoke(realConnection, args);
+              } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+              }
+            });
+      }
+    };
+    PooledDataSource ds = new PooledDataSource(unpooledDataSource);
+    try {
+      ds.setPoolMaximumIdleConnections(1);
+      ds.setPoolMaximumLocalBadConnectionTolerance(1);
+      ds.setPoolMaintenanceInterval(0);
+      SQLException e = assertThrows(SQLException.class, ds::getConnection);
+      assertTrue(e.getMessage().contains("Could not get a good connection"));
+      assertEquals(3, realConnections.size());
+      for (Connection realConnection : realConnections) {
+        assertTrue(realConnection.isClosed());
+      }
+      assertEquals(0, ds.getPoolState().getPendingConnectionCount());
+      assertEquals(3, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldRecordPoolMetricsAndNotifyListeners() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      AtomicInteger released = new AtomicInteger();
+      ds.addPoolListener(new PoolListener() {
+        @Override
+        public void connectionReleased(long usageNanos) {
+          released.incrementAndGet();
+        }
+      });
+      ds.addPoolListener(new PoolListener() {
+        @Override
+        public void connectionAcquired(long acquireNanos, long waitNanos) {
+          throw new IllegalStateException("ignored");
+        }
+      });
+      ds.setPoolMetricsJmxName("org.mybatis:type=PooledDataSource,name=test");
+      for (int i = 0; i < 3; i++) {
+        try (Connection c = ds.getConnection()) {
+          assertEquals(1, ds.getPoolMetrics().getActiveConnections());
+        }
+      }
+      PoolMetrics metrics = ds.getPoolMetrics();
+      assertEquals(3, metrics.getAcquireTime().getCount());
+      assertEquals(3, metrics.getUsageTime().getCount());
+      assertEquals(1, metrics.getCreationTime().getCount());
+      assertEquals(0, metrics.getWaitTime().getCount());
+      assertEquals(3, released.get());
+
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName("org.mybatis:type=PooledDataSource,name=test");
+      assertEquals(1, server.getAttribute(name, "IdleConnections"));
+      assertEquals(3L, ((CompositeData) server.getAttribute(name, "AcquireTime")).get("count"));
+      ds.setPoolMetricsJmxName(null);
+      assertFalse(server.isRegistered(name));
+    } finally {
+      ds.setPoolMetricsJmxName(null);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldReportLeakedConnectionsWithTheLastStatement() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolLeakDetectionThreshold(50);
+      ds.setPoolMaintenanceInterval(20);
+      Connection c = ds.getConnection();
+      ErrorContext.instance().object("org.apache.ibatis.LeakMapper.select");
+      try {
+        c.prepareStatement("SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS").close();
+      } finally {
+        ErrorContext.instance().reset();
+      }
+      waitFor(() -> ds.getPoolState().getLeakedConnectionCount() == 1);
+      Thread.sleep(60);
+      // reported only once
+      assertEquals(1, ds.getPoolState().getLeakedConnectionCount());
+      c.close();
+    } finally {
+      ds.stopMaintenance();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldKeepSeparatePoolsPerUser() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+        try {
+          st.execute("DROP USER tenant");
+        } catch (SQLException e) {
+          // does not exist yet
+        }
+        st.execute("CREATE USER tenant PASSWORD 'secret' ADMIN");
+      }
+      ds.setPoolMaximumActiveConnectionsPerUser(1);
+      ds.setPoolTimeToWait(20);
+
+      Connection tenant = ds.getConnection("TENANT", "secret");
+      assertEquals("TENANT", tenant.getMetaData().getUserName());
+      Connection tenantRealConnection = PooledDataSource.unwrapConnection(tenant);
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+        Future<Connection> waiting = executor.submit(() -> ds.getConnection("TENANT", "secret"));
+        // the tenant has reached its limit but the other users have not
+        try (Connection c = ds.getConnection()) {
+          assertEquals("SA", c.getMetaData().getUserName());
+        }
+        Thread.sleep(50);
+        assertFalse(waiting.isDone());
+        tenant.close();
+        Connection second = waiting.get(5, TimeUnit.SECONDS);
+        assertSame(tenantRealConnection, PooledDataSource.unwrapConnection(second));
+        second.close();
+      } finally {
+        executor.shutdownNow();
+      }
+      assertEquals(2, ds.getPoolState().getPartitionCount());
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      try (Connection c = ds.getConnection("TENANT", "secret")) {
+        assertSame(tenantRealConnection, PooledDataSource.unwrapConnection(c));
+      }
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldApplyAndResetConnectionSettingsLazily() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      Connection realConnection;
+      int originalIsolation;
+      try (Connection c = ds.getConnection()) {
+        realConnection = PooledDataSource.unwrapConnection(c);
+        originalIsolation = realConnection.getTransactionIsolation();
+        c.setAutoCommit(false);
+        c.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        assertFalse(c.getAutoCommit());
+        // nothing is sent to the driver until a statement is created
+        assertTrue(realConnection.getAutoCommit());
+        try (Statement st = c.createStatement()) {
+          assertFalse(realConnection.getAutoCommit());
+          assertEquals(Connection.TRANSACTION_SERIALIZABLE, realConnection.getTransactionIsolation());
+        }
+        c.commit();
+      }
+      try (Connection c = ds.getConnection()) {
+        assertSame(realConnection, PooledDataSource.unwrapConnection(c));
+        assertTrue(c.getAutoCommit());
+        assertEquals(originalIsolation, c.getTransactionIsolation());
+        try (Statement st = c.createStatement()) {
+          assertTrue(realConnection.getAutoCommit());
+          assertEquals(originalIsolation, realConnection.getTransactionIsolation());
+        }
+      }
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldEndTransactionsOfStatementsPreparedBeforeTheLastCommit() throws Exception {
+    PooledDataSource ds = new PooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:connection_state", "sa", null);
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+        st.execute("create table item (id int)");
+      }
+      try (Connection c = ds.getConnection();
+           PreparedStatement ps = c.prepareStatement("insert into item (id) values (?)")) {
+        c.setAutoCommit(false);
+        ps.setInt(1, 1);
+        ps.executeUpdate();
+        c.commit();
+        ps.setInt(1, 2);
+        ps.executeUpdate();
+        c.commit();
+        ps.setInt(1, 3);
+        ps.executeUpdate();
+      }
+      try (Connection c = ds.getConnection(); Statement st = c.createStatement();
+           ResultSet rs = st.executeQuery("select count(*) from item")) {
+        assertTrue(rs.next());
+        // the first two rows have been committed, the third one has been rolled back when the connection was returned
+        assertEquals(2, rs.getInt(1));
+      }
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldRejectBorrowersThatWouldWaitLongerThanTheMaximumWaitTime() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolAdaptiveSizingEnabled(true);
+      ds.setPoolMaximumWaitTime(50);
+      assertEquals(1, ds.getPoolActiveConnectionLimit());
+      try (Connection c = ds.getConnection()) {
+        long start = System.currentTimeMillis();
+        SQLException e = assertThrows(SQLException.class, ds::getConnection);
+        assertTrue(e.getMessage().contains("within 50 milliseconds"));
+        assertTrue(System.currentTimeMillis() - start < 5000);
+      }
+      assertEquals(1, ds.getPoolState().getRejectedRequestCount());
+      try (Connection c = ds.getConnection()) {
+        assertTrue(c.isValid(1));
+      }
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  private void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the pool maintenance");
+      Thread.sleep(10);
+    }
+  }
+
   private void exexuteQuery(Connection con) throws SQLException {
     try (PreparedStatement st = con.prepareStatement("select 1");
          ResultSet rs = st.executeQuery()) {
@@ -0,0 +1,58 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.parsing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class TokenTemplateTest {
+
+  @Test
+  void shouldSplitTextIntoTokens() {
+    TokenTemplate template = TokenTemplate.compile("#{", "}", "select * from a where id = #{id} and \\#{name} = #{na\\}me} #{");
+    assertTrue(template.hasTokens());
+    assertEquals(Arrays.asList("id", "na}me"), template.getTokens());
+    assertEquals("select * from a where id = [id] and #{name} = [na}me] #{", template.render(content -> "[" + content + "]"));
+  }
+
+  @Test
+  void shouldRenderTextWithoutTokensAsIs() {
+    TokenTemplate template = TokenTemplate.compile("${", "}", "select * from a");
+    assertFalse(template.hasTokens());
+    assertEquals(Collections.emptyList(), template.getTokens());
+    assertEquals("select * from a", template.render(content -> {
+      throw new AssertionError(content);
+    }));
+    assertEquals("", TokenTemplate.compile("${", "}", null).render(content -> content));
+  }
+
+  @Test
+  void shouldCallHandlerForEachRender() {
+    AtomicInteger counter = new AtomicInteger();
+    TokenTemplate template = TokenTemplate.compile("#{", "}", "#{a},#{b}");
+    TokenHandler handler = content -> content + counter.incrementAndGet();
+    assertEquals("a1,b2", template.render(handler));
+    assertEquals("a3,b4", template.render(handler));
+  }
+
+}
@@ -300,4 +300,45 @@ class MetaObjectTest {
     assertTrue(meta.hasGetter("filterParams[2]"));
   }
 
+  @Test
+  void shouldCacheCompiledPropertyPathPerClass() {
+    Reflector reflector = new DefaultReflectorFactory().findForClass(RichType.class);
+    assertSame(reflector.getPropertyPath("richType.richField"), reflector.getPropertyPath("richType.richField"));
+    assertNull(reflector.getPropertyPath("richList[0]"));
+  }
+
+  @Test
+  void shouldFollowRuntimeTypeOfNestedProperty() {
+    ObjectHolder holder = new ObjectHolder();
+    MetaObject meta = SystemMetaObject.forObject(holder);
+    assertNull(meta.getValue("value.richProperty"));
+
+    holder.setValue(new RichType());
+    meta.setValue("value.richProperty", "foo");
+    assertEquals("foo", meta.getValue("value.richProperty"));
+
+    Map<String, Object> map = new HashMap<>();
+    map.put("richProperty", "bar");
+    holder.setValue(map);
+    assertEquals("bar", meta.getValue("value.richProperty"));
+    meta.setValue("value.richProperty", "baz");
+    assertEquals("baz", map.get("richProperty"));
+
+    Section section = Section.NEWS;
+    holder.setValue(section);
+    assertThrows(ReflectionException.class, () -> meta.getValue("value.richProperty"));
+  }
+
+  static class ObjectHolder {
+    private Object value;
+
+    public Object getValue() {
+      return value;
+    }
+
+    public void setValue(Object value) {
+      this.value = value;
+    }
+  }
+
 }
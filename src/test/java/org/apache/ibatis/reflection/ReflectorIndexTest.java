@@ -0,0 +1,164 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+
+import org.apache.ibatis.builder.xml.XMLConfigBuilder;
+import org.apache.ibatis.domain.misc.RichType;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.reflection.ReflectorTest.Section;
+import org.apache.ibatis.reflection.invoker.InvokerFactory;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.submitted.batch_nested_select.Customer;
+import org.apache.ibatis.submitted.batch_nested_select.Order;
+import org.junit.jupiter.api.Test;
+
+class ReflectorIndexTest {
+
+  @Test
+  void shouldCreateReflectorsFromIndex() throws Exception {
+    ReflectorIndex index = writeAndRead(ReflectorIndex.create(Arrays.asList(Section.class, RichType.class)));
+    assertEquals(2, index.size());
+
+    DefaultReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    reflectorFactory.addReflectorIndex(index);
+    for (Class<?> type : Arrays.asList(Section.class, RichType.class)) {
+      Reflector expected = new Reflector(type);
+      Reflector reflector = reflectorFactory.findForClass(type);
+      assertEquals(new HashSet<>(Arrays.asList(expected.getGetablePropertyNames())),
+          new HashSet<>(Arrays.asList(reflector.getGetablePropertyNames())));
+      assertEquals(new HashSet<>(Arrays.asList(expected.getSetablePropertyNames())),
+          new HashSet<>(Arrays.asList(reflector.getSetablePropertyNames())));
+      for (String name : expected.getGetablePropertyNames()) {
+        assertEquals(expected.getGetterType(name), reflector.getGetterType(name));
+      }
+      for (String name : expected.getSetablePropertyNames()) {
+        assertEquals(expected.getSetterType(name), reflector.getSetterType(name));
+      }
+      assertEquals(expected.hasDefaultConstructor(), reflector.hasDefaultConstructor());
+    }
+
+    Reflector reflector = reflectorFactory.findForClass(Section.class);
+    assertEquals(Long.class, reflector.getGetterType("id"));
+    assertEquals("id", reflector.findPropertyName("ID"));
+    Section section = new Section();
+    reflector.getSetInvoker("id").invoke(section, new Object[] { 5L });
+    assertEquals(5L, reflector.getGetInvoker("id").invoke(section, null));
+    RichType richType = new RichType();
+    reflectorFactory.findForClass(RichType.class).getSetInvoker("richField").invoke(richType, new Object[] { "field" });
+    assertEquals("field", reflectorFactory.findForClass(RichType.class).getGetInvoker("richField").invoke(richType, null));
+  }
+
+  @Test
+  void shouldReflectClassesNotInIndex() {
+    DefaultReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    reflectorFactory.addReflectorIndex(ReflectorIndex.create(Arrays.asList(Section.class)));
+    Reflector reflector = reflectorFactory.findForClass(RichType.class);
+    assertTrue(reflector.hasGetter("richProperty"));
+  }
+
+  @Test
+  void shouldIndexTypesOfMappedStatements() throws Exception {
+    Configuration configuration;
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_nested_select/mybatis-config.xml")) {
+      configuration = new XMLConfigBuilder(reader).parse();
+    }
+    ReflectorIndex index = ReflectorIndex.create(configuration);
+    assertTrue(index.contains(Order.class));
+    assertTrue(index.contains(Customer.class));
+    assertFalse(index.contains(Integer.class));
+  }
+
+  @Test
+  void shouldRejectInvalidIndex() {
+    ReflectionException e = assertThrows(ReflectionException.class, () -> {
+      DefaultReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+      Properties properties = new Properties();
+      properties.setProperty("index", "org/apache/ibatis/reflection/ReflectorIndexTest.class");
+      reflectorFactory.setProperties(properties);
+    });
+    assertThat(e.getMessage()).contains("Not a reflector index");
+  }
+
+  @Test
+  void shouldReflectClassesChangedAfterIndexWasCreated() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ReflectorIndex.create(Arrays.asList(IndexedBean.class)).write(out);
+    // simulates a class that has gained a property and changed a getter type since the index was written
+    byte[] bytes = new String(out.toByteArray(), StandardCharsets.ISO_8859_1)
+        .replace(IndexedBean.class.getName(), ChangedBean.class.getName()).getBytes(StandardCharsets.ISO_8859_1);
+    ReflectorIndex index = ReflectorIndex.read(new ByteArrayInputStream(bytes));
+    assertTrue(index.contains(ChangedBean.class));
+    assertNull(index.newReflector(ChangedBean.class, new InvokerFactory() {}));
+
+    DefaultReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    reflectorFactory.addReflectorIndex(index);
+    Reflector reflector = reflectorFactory.findForClass(ChangedBean.class);
+    assertEquals(CharSequence.class, reflector.getGetterType("name"));
+    assertTrue(reflector.hasGetter("age"));
+    assertTrue(reflector.hasSetter("age"));
+  }
+
+  static class IndexedBean {
+    private String name;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+  }
+
+  static class ChangedBean {
+    private String name;
+    private int age;
+
+    public CharSequence getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public int getAge() {
+      return age;
+    }
+
+    public void setAge(int age) {
+      this.age = age;
+    }
+  }
+
+  private ReflectorIndex writeAndRead(ReflectorIndex index) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    index.write(out);
+    return ReflectorIndex.read(new ByteArrayInputStream(out.toByteArray()));
+  }
+
+}
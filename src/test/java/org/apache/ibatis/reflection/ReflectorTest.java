@@ -20,10 +20,13 @@ import static org.assertj.core.api.BDDAssertions.then;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
 import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -321,4 +324,62 @@ class ReflectorTest {
             "Ambiguous setters defined for property 'bool' in class '" + Bean.class.getName().replace("$", "\\$")
                 + "' with types '(java.lang.Integer|boolean)' and '(java.lang.Integer|boolean)'\\.");
   }
+
+  @Test
+  void shouldAccessPropertiesThroughMethodHandles() throws Exception {
+    @SuppressWarnings("unused")
+    class Bean {
+      private String field;
+      private final String finalField = "final";
+      private Long id;
+      public Long getId() {return id;}
+      public void setId(Long id) {this.id = id;}
+      public String getFailing() {throw new IllegalArgumentException("failing getter");}
+    }
+    ReflectorFactory reflectorFactory = new MethodHandleReflectorFactory();
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    Bean bean = new Bean();
+    reflector.getSetInvoker("id").invoke(bean, new Object[] { 1L });
+    reflector.getSetInvoker("field").invoke(bean, new Object[] { "value" });
+    assertEquals(1L, reflector.getGetInvoker("id").invoke(bean, null));
+    assertEquals("value", reflector.getGetInvoker("field").invoke(bean, null));
+    assertEquals("final", reflector.getGetInvoker("finalField").invoke(bean, null));
+    MetaObject metaObject = MetaObject.forObject(bean, new DefaultObjectFactory(),
+        new DefaultObjectWrapperFactory(), reflectorFactory);
+    when(() -> metaObject.getValue("failing"));
+    then(caughtException()).isInstanceOf(IllegalArgumentException.class).hasMessage("failing getter");
+  }
+
+  @Test
+  void shouldReportArgumentMismatchesOfMethodHandlesLikeReflection() throws Exception {
+    @SuppressWarnings("unused")
+    class Bean {
+      private long count;
+      private Integer field;
+      public long getCount() {return count;}
+      public void setCount(long count) {this.count = count;}
+      public String getCasting() {return (String) (Object) count;}
+    }
+    Reflector reflector = new MethodHandleReflectorFactory().findForClass(Bean.class);
+    Bean bean = new Bean();
+    reflector.getSetInvoker("count").invoke(bean, new Object[] { 2 });
+    assertEquals(2L, reflector.getGetInvoker("count").invoke(bean, null));
+    when(() -> reflector.getSetInvoker("count").invoke(bean, new Object[] { "two" }));
+    then(caughtException()).isInstanceOf(IllegalArgumentException.class);
+    when(() -> reflector.getSetInvoker("count").invoke(bean, new Object[] { null }));
+    then(caughtException()).isInstanceOf(IllegalArgumentException.class);
+    when(() -> reflector.getGetInvoker("count").invoke("not a bean", null));
+    then(caughtException()).isInstanceOf(IllegalArgumentException.class);
+    when(() -> reflector.getSetInvoker("field").invoke(bean, new Object[] { "two" }));
+    then(caughtException()).isInstanceOf(IllegalArgumentException.class);
+    when(() -> reflector.getGetInvoker("casting").invoke(bean, null));
+    then(caughtException()).isInstanceOf(InvocationTargetException.class).hasCauseInstanceOf(ClassCastException.class);
+  }
+
+  @Test
+  void shouldResolveGenericTypesWithMethodHandleReflectors() {
+    MetaClass metaClass = MetaClass.forClass(Section.class, new MethodHandleReflectorFactory());
+    assertEquals(Long.class, metaClass.getGetterType("id"));
+    assertEquals(Long.class, metaClass.getSetterType("id"));
+  }
 }
@@ -15,6 +15,10 @@
  */
 package org.apache.ibatis.reflection.factory;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -94,4 +98,30 @@ class DefaultObjectFactoryTest {
     Set set = defaultObjectFactory.create(Set.class);
     Assertions.assertTrue(set instanceof HashSet, " set should be HashSet");
   }
+
+  @Test
+  void createClassWithPrivateConstructorRepeatedly() throws Exception {
+    DefaultObjectFactory defaultObjectFactory = new DefaultObjectFactory();
+    for (int i = 0; i < 2; i++) {
+      PrivateTestClass testClass = defaultObjectFactory.create(PrivateTestClass.class,
+          Collections.singletonList(String.class), Collections.singletonList("foo" + i));
+      Assertions.assertEquals("foo" + i, testClass.myString);
+    }
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    new ObjectOutputStream(baos).writeObject(defaultObjectFactory);
+    DefaultObjectFactory deserialized = (DefaultObjectFactory) new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray())).readObject();
+    Assertions.assertNotNull(deserialized.create(PrivateTestClass.class));
+  }
+
+  static class PrivateTestClass {
+    String myString;
+
+    private PrivateTestClass() {
+    }
+
+    private PrivateTestClass(String myString) {
+      this.myString = myString;
+    }
+  }
 }
@@ -19,6 +19,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.sql.PreparedStatement;
@@ -27,8 +28,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
 import org.apache.ibatis.mapping.*;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
@@ -70,6 +74,43 @@ class DefaultParameterHandlerTest {
 
   }
 
+  @Test
+  void shouldBindValuesOfBeansMapsAndSimpleParameters() throws SQLException {
+    final MappedStatement mappedStatement = getMappedStatement();
+    final Configuration config = mappedStatement.getConfiguration();
+    final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
+    List<ParameterMapping> parameterMappings = new ArrayList<>();
+    parameterMappings.add(new ParameterMapping.Builder(config, "id", registry.getTypeHandler(Integer.class)).build());
+    parameterMappings.add(new ParameterMapping.Builder(config, "username", registry.getTypeHandler(String.class)).build());
+
+    Author author = new Author(101, "jim", "******", "jim@apache.org", "", Section.NEWS);
+    PreparedStatement ps = mock(PreparedStatement.class);
+    setParameters(mappedStatement, author, parameterMappings, ps);
+    verify(ps).setInt(1, 101);
+    verify(ps).setString(2, "jim");
+
+    Map<String, Object> map = new HashMap<>();
+    map.put("id", 102);
+    map.put("username", "sally");
+    ps = mock(PreparedStatement.class);
+    setParameters(mappedStatement, map, parameterMappings, ps);
+    verify(ps).setInt(1, 102);
+    verify(ps).setString(2, "sally");
+
+    ps = mock(PreparedStatement.class);
+    setParameters(mappedStatement, 103, parameterMappings.subList(0, 1), ps);
+    verify(ps).setInt(1, 103);
+
+    Assertions.assertSame(mappedStatement.getParameterBindingPlan(author), mappedStatement.getParameterBindingPlan(
+        new Author(104, "bob", "******", "bob@apache.org", "", Section.IMAGES)));
+  }
+
+  private void setParameters(MappedStatement mappedStatement, Object parameterObject, List<ParameterMapping> parameterMappings,
+      PreparedStatement ps) {
+    BoundSql boundSql = new BoundSql(mappedStatement.getConfiguration(), "some select statement", parameterMappings, parameterObject);
+    new DefaultParameterHandler(mappedStatement, parameterObject, boundSql).setParameters(ps);
+  }
+
   MappedStatement getMappedStatement() {
     final Configuration config = new Configuration();
     final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
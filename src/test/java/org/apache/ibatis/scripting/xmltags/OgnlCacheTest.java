@@ -19,6 +19,8 @@ package org.apache.ibatis.scripting.xmltags;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,6 +29,10 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.stream.IntStream;
 
+import ognl.Ognl;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.session.Configuration;
 import org.junit.jupiter.api.Test;
 
 public class OgnlCacheTest {
@@ -51,4 +57,59 @@ public class OgnlCacheTest {
     }
     executor.shutdown();
   }
+
+  @Test
+  void shouldEvaluateCompiledExpressionsLikeTheInterpreter() throws Exception {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("name", "");
+    parameter.put("zero", 0);
+    parameter.put("one", 1L);
+    parameter.put("flag", Boolean.TRUE);
+    parameter.put("list", Arrays.asList(1, 2));
+    parameter.put("map", Collections.singletonMap("key", "value"));
+    Map<String, Object> bindings = new DynamicContext(new Configuration(), parameter).getBindings();
+    String[] expressions = { "name", "name != null", "name != ''", "zero != ''", "zero == 0", "one == '1'", "one > 0",
+        "one >= 1", "one < 1", "one <= 1", "missing == null", "name != null and name != ''", "missing != null or one == 1",
+        "!(one == 1)", "not flag", "zero and one", "zero or one", "list.size > 1", "map.key == 'value'",
+        "_parameter.one != null", "'a' == 'a'", "_databaseId == null" };
+    for (String expression : expressions) {
+      Object node = Ognl.parseExpression(expression);
+      assertNotNull(CompiledExpression.compile(node), expression);
+      Map context = Ognl.createDefaultContext(bindings, new OgnlMemberAccess(), new OgnlClassResolver(), null);
+      assertEquals(Ognl.getValue(node, context, bindings), OgnlCache.getValue(expression, bindings), expression);
+    }
+  }
+
+  @Test
+  void shouldInterpretExpressionsThatAreNotCompiled() throws Exception {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("list", Arrays.asList(1, 2));
+    Map<String, Object> bindings = new DynamicContext(new Configuration(), parameter).getBindings();
+    assertNull(CompiledExpression.compile(Ognl.parseExpression("list.size() > 1")));
+    assertNull(CompiledExpression.compile(Ognl.parseExpression("list[0] == 1")));
+    assertEquals(Boolean.TRUE, OgnlCache.getValue("list.size() > 1", bindings));
+    assertEquals(Boolean.TRUE, OgnlCache.getValue("list[0] == 1", bindings));
+  }
+
+  @Test
+  void shouldFailLikeTheInterpreterOnNullIntermediateProperty() {
+    Map<String, Object> bindings = new DynamicContext(new Configuration(), new HashMap<>()).getBindings();
+    BuilderException e = assertThrows(BuilderException.class, () -> OgnlCache.getValue("missing.id != null", bindings));
+    assertTrue(e.getMessage().contains("source is null"), e.getMessage());
+  }
+
+  @Test
+  void shouldBoundTheExpressionCacheOfConfiguration() {
+    Configuration configuration = new Configuration();
+    configuration.setExpressionCache(new ExpressionCache(2));
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("id", 1);
+    Map<String, Object> bindings = new DynamicContext(configuration, parameter).getBindings();
+    assertEquals(Boolean.TRUE, OgnlCache.getValue("id == 1", bindings));
+    assertEquals(Boolean.FALSE, OgnlCache.getValue("id == 2", bindings));
+    assertEquals(Boolean.FALSE, OgnlCache.getValue("id == 3", bindings));
+    assertEquals(Boolean.FALSE, OgnlCache.getValue("id == 3", bindings));
+    assertEquals(2, configuration.getExpressionCache().getSize());
+    assertEquals(0, new Configuration().getExpressionCache().getSize());
+  }
 }
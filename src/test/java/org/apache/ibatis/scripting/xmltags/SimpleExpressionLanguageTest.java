@@ -0,0 +1,169 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ognl.Ognl;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class SimpleExpressionLanguageTest {
+
+  private final SimpleExpressionLanguage language = new SimpleExpressionLanguage();
+
+  @Test
+  void shouldEvaluateTheCommonSubsetLikeOgnl() throws Exception {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("name", "");
+    parameter.put("zero", 0);
+    parameter.put("one", 1L);
+    parameter.put("flag", Boolean.TRUE);
+    parameter.put("list", Arrays.asList(1, 2));
+    parameter.put("map", Collections.singletonMap("key", "value"));
+    parameter.put("author", new Author(101, "jim", "********", "jim@ibatis.apache.org", "", Section.NEWS));
+    Map<String, Object> bindings = new DynamicContext(new Configuration(), parameter).getBindings();
+    String[] expressions = { "name", "missing", "name != null", "name != ''", "zero == 0", "one > 0", "one >= 1",
+        "one < 1", "one <= 1", "one gt 0", "one eq 1", "one neq 1", "1.5 > one", "missing == null",
+        "name != null and name != ''", "name != null && name == ''", "missing != null or one == 1",
+        "missing != null || one == 2", "!(one == 1)", "not flag", "!flag == false", "zero and one", "zero or one",
+        "(one == 1 or zero == 1) and flag", "list.size > 1", "list.size() > 1", "list.isEmpty()", "map.key == 'value'",
+        "map.size() == 1", "name.length() == 0", "author.username == \"jim\"", "author.id == 101",
+        "author.username != null and author.username != ''", "_parameter.one != null", "_databaseId == null" };
+    for (String expression : expressions) {
+      Map context = Ognl.createDefaultContext(bindings, new OgnlMemberAccess(), new OgnlClassResolver(), null);
+      Object expected = Ognl.getValue(Ognl.parseExpression(expression), context, bindings);
+      Object actual = language.getValue(expression, bindings);
+      if (expected instanceof Number) {
+        assertEquals(0, new BigDecimal(expected.toString()).compareTo(new BigDecimal(actual.toString())), expression);
+      } else {
+        assertEquals(expected, actual, expression);
+      }
+    }
+  }
+
+  @Test
+  void shouldResolveNamesAgainstBeanParameter() {
+    Author author = new Author(101, "jim", "********", "jim@ibatis.apache.org", "", Section.NEWS);
+    Map<String, Object> bindings = new DynamicContext(new Configuration(), author).getBindings();
+    assertEquals(Boolean.TRUE, language.getValue("username == 'jim' and favouriteSection == 'NEWS'", bindings));
+    assertEquals(Boolean.FALSE, language.getValue("bio != null and bio != ''", bindings));
+  }
+
+  @Test
+  void shouldCompareWithoutOgnlConversions() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("zero", 0);
+    parameter.put("section", Section.NEWS);
+    Map<String, Object> bindings = new DynamicContext(new Configuration(), parameter).getBindings();
+    assertEquals(Boolean.FALSE, language.getValue("zero == ''", bindings));
+    assertEquals(Boolean.TRUE, language.getValue("zero == '0'", bindings));
+    assertEquals(Boolean.TRUE, language.getValue("section == 'NEWS'", bindings));
+    assertEquals(Boolean.FALSE, language.getValue("missing > 0", bindings));
+    assertEquals("a", language.getValue("'a'", bindings));
+  }
+
+  @Test
+  void shouldReadPropertiesOfDifferentClassesAtTheSamePath() {
+    List<Object> items = new ArrayList<>();
+    items.add(new Author(1, "jim", null, null, null, null));
+    items.add(new SubAuthor("sally"));
+    for (Object item : items) {
+      Map<String, Object> parameter = new HashMap<>();
+      parameter.put("item", item);
+      Map<String, Object> bindings = new DynamicContext(new Configuration(), parameter).getBindings();
+      assertEquals(((Author) item).getUsername(), language.getValue("item.username", bindings));
+    }
+  }
+
+  @Test
+  void shouldFallBackToOgnlForOtherSyntax() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("list", Arrays.asList(1, 2));
+    parameter.put("name", "jim");
+    Map<String, Object> bindings = new DynamicContext(new Configuration(), parameter).getBindings();
+    assertEquals(Boolean.TRUE, language.getValue("list[0] == 1", bindings));
+    assertEquals("jim!", language.getValue("name + '!'", bindings));
+    assertEquals(Boolean.TRUE, language.getValue("name.startsWith('j')", bindings));
+    assertEquals(2, language.getValue("@java.lang.Math@max(1, 2)", bindings));
+  }
+
+  @Test
+  void shouldFailOnNullIntermediateProperty() {
+    Map<String, Object> bindings = new DynamicContext(new Configuration(), new HashMap<>()).getBindings();
+    BuilderException e = assertThrows(BuilderException.class, () -> language.getValue("missing.id != null", bindings));
+    assertTrue(e.getMessage().contains("'missing' is null"), e.getMessage());
+    e = assertThrows(BuilderException.class, () -> language.getValue("_databaseId.length() > 0", bindings));
+    assertTrue(e.getMessage().contains("'_databaseId' is null"), e.getMessage());
+  }
+
+  @Test
+  void shouldFailOnMissingProperty() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("author", new Author(1, "jim", null, null, null, null));
+    Map<String, Object> bindings = new DynamicContext(new Configuration(), parameter).getBindings();
+    BuilderException e = assertThrows(BuilderException.class, () -> language.getValue("author.nickname", bindings));
+    assertTrue(e.getMessage().contains("There is no getter for property named 'nickname'"), e.getMessage());
+  }
+
+  @Test
+  void shouldEvaluateDynamicSqlWithTheLanguageOfTheConfiguration() {
+    Configuration configuration = new Configuration();
+    List<String> evaluated = new ArrayList<>();
+    configuration.setExpressionLanguage((expression, root) -> {
+      evaluated.add(expression);
+      return "ids".equals(expression) ? Arrays.asList(1, 2) : language.getValue(expression, root);
+    });
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("name", "jim");
+    DynamicSqlSource sqlSource = new DynamicSqlSource(configuration, new MixedSqlNode(Arrays.asList(
+        new StaticTextSqlNode("SELECT * FROM AUTHOR WHERE"),
+        new VarDeclSqlNode("pattern", "name"),
+        new IfSqlNode(new StaticTextSqlNode("USERNAME = #{pattern} AND"), "name != null"),
+        new ForEachSqlNode(configuration, new StaticTextSqlNode("#{id}"), "ids", null, "id", "ID IN (", ")", ","))));
+    assertEquals("SELECT * FROM AUTHOR WHERE USERNAME = ? AND ID IN (  ? , ? )",
+        sqlSource.getBoundSql(parameter).getSql());
+    assertEquals(Arrays.asList("name", "name != null", "ids"), evaluated);
+  }
+
+  static class SubAuthor extends Author {
+    private static final long serialVersionUID = 1L;
+
+    SubAuthor(String username) {
+      super(2, username, null, null, null, null);
+    }
+
+    @Override
+    public String getUsername() {
+      return super.getUsername().toUpperCase();
+    }
+  }
+
+}
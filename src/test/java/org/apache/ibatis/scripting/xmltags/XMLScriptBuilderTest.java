@@ -0,0 +1,123 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class XMLScriptBuilderTest {
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  void shouldFoldWhereAroundStaticText() {
+    SqlSource sqlSource = createSqlSource(
+        "<script>SELECT * FROM AUTHOR <where> AND id = #{id} </where> ORDER BY id</script>", Author.class);
+    assertTrue(sqlSource instanceof RawSqlSource);
+    assertEquals("SELECT * FROM AUTHOR  WHERE  id = ?  ORDER BY id", sqlSource.getBoundSql(new Author(1)).getSql());
+  }
+
+  @Test
+  void shouldFoldConstantTests() {
+    SqlSource sqlSource = createSqlSource("<script>SELECT * FROM AUTHOR <trim prefix='WHERE' prefixOverrides='AND |OR '>"
+        + "<if test='true'>AND id = #{id}</if><if test=\"1 == 2 or 'a' != 'a'\">AND bio = #{bio}</if>"
+        + "<choose><when test='false'>AND 1 = 2</when><when test='1 &lt; 2'>OR username = #{username}</when>"
+        + "<otherwise>AND 1 = 3</otherwise></choose></trim></script>", Author.class);
+    assertTrue(sqlSource instanceof RawSqlSource);
+    assertEquals("SELECT * FROM AUTHOR  WHERE  id = ?OR username = ?", sqlSource.getBoundSql(new Author(1)).getSql());
+  }
+
+  @Test
+  void shouldKeepSourceDynamicWithoutParameterType() {
+    SqlSource sqlSource = createSqlSource("<script>SELECT * FROM AUTHOR <if test='true'>WHERE id = #{id}</if></script>", null);
+    assertTrue(sqlSource instanceof DynamicSqlSource);
+    assertEquals("SELECT * FROM AUTHOR  WHERE id = ?", sqlSource.getBoundSql(new Author(1)).getSql());
+  }
+
+  @Test
+  void shouldKeepSourceDynamicWhenContextBindingsAreReferenced() {
+    SqlSource sqlSource = createSqlSource("<script>SELECT * FROM AUTHOR <where>id = #{_parameter}</where></script>", Integer.class);
+    assertTrue(sqlSource instanceof DynamicSqlSource);
+    assertEquals("_parameter", sqlSource.getBoundSql(1).getParameterMappings().get(0).getProperty());
+  }
+
+  @Test
+  void shouldKeepTestsDependingOnParameter() {
+    SqlSource sqlSource = createSqlSource("<script>SELECT * FROM AUTHOR <where><if test='false'>AND 1 = 2</if>"
+        + "<if test='id != null'>AND id = #{id}</if></where></script>", Map.class);
+    assertTrue(sqlSource instanceof DynamicSqlSource);
+    Map<String, Object> parameter = new HashMap<>();
+    assertEquals("SELECT * FROM AUTHOR", sqlSource.getBoundSql(parameter).getSql());
+    parameter.put("id", 1);
+    assertEquals("SELECT * FROM AUTHOR  WHERE  id = ?", sqlSource.getBoundSql(parameter).getSql());
+  }
+
+  @Test
+  void shouldHoistWhereBeforeLeadingStaticText() {
+    SqlSource sqlSource = createSqlSource("<script>SELECT * FROM AUTHOR <where> username = #{username} "
+        + "<if test='id != null'>AND id = #{id}</if> </where>ORDER BY id</script>", Map.class);
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("username", "jim");
+    assertEquals("SELECT * FROM AUTHOR  WHERE username = ?    ORDER BY id", sqlSource.getBoundSql(parameter).getSql());
+    parameter.put("id", 1);
+    assertEquals("SELECT * FROM AUTHOR  WHERE username = ?  AND id = ?   ORDER BY id", sqlSource.getBoundSql(parameter).getSql());
+  }
+
+  @Test
+  void shouldNotHoistTrimWhenItsContentsAreConcatenated() {
+    SqlSource sqlSource = createSqlSource("<script>SELECT * FROM AUTHOR <trim prefix='WHERE' prefixOverrides='AND'>"
+        + " AND bio = 'a<if test='id != null'>b</if>'</trim> <trim prefix='WHERE'> id = #{id}<if test='id != null'>0</if></trim>"
+        + "</script>", Map.class);
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("id", 1);
+    assertEquals("SELECT * FROM AUTHOR  WHERE  bio = 'ab'   WHERE id = ?0", sqlSource.getBoundSql(parameter).getSql());
+  }
+
+  @Test
+  void shouldUseConstantWhenAfterDynamicWhensAsDefault() {
+    SqlSource sqlSource = createSqlSource("<script>SELECT * FROM AUTHOR WHERE <choose>"
+        + "<when test='id != null'>id = #{id}</when><when test='true'>1 = 1</when><when test='name != null'>1 = 2</when>"
+        + "<otherwise>1 = 3</otherwise></choose></script>", Map.class);
+    assertTrue(sqlSource instanceof DynamicSqlSource);
+    Map<String, Object> parameter = new HashMap<>();
+    assertEquals("SELECT * FROM AUTHOR WHERE  1 = 1", sqlSource.getBoundSql(parameter).getSql());
+    parameter.put("id", 1);
+    assertEquals("SELECT * FROM AUTHOR WHERE  id = ?", sqlSource.getBoundSql(parameter).getSql());
+  }
+
+  @Test
+  void shouldNotFoldTestsOfCustomExpressionLanguage() {
+    OgnlExpressionLanguage ognl = new OgnlExpressionLanguage();
+    configuration.setExpressionLanguage((expression, root) -> "true".equals(expression) ? false : ognl.getValue(expression, root));
+    SqlSource sqlSource = createSqlSource("<script>SELECT * FROM AUTHOR <if test='true'>WHERE id = #{id}</if></script>", Author.class);
+    assertTrue(sqlSource instanceof DynamicSqlSource);
+    assertEquals("SELECT * FROM AUTHOR", sqlSource.getBoundSql(new Author(1)).getSql());
+  }
+
+  private SqlSource createSqlSource(String script, Class<?> parameterType) {
+    return new XMLLanguageDriver().createSqlSource(configuration, script, parameterType);
+  }
+
+}
@@ -19,6 +19,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
 import java.io.Reader;
+import java.util.Arrays;
 
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.io.Resources;
@@ -82,4 +83,33 @@ public class ArrayTypeHandlerTest {
       assertNull(nicknameCount);
     }
   }
+
+  @Test
+  public void shouldBindCollectionAsSqlArray() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      insertUsers(mapper, 5);
+      assertEquals(Arrays.asList("User 1", "User 3", "User 4"), mapper.getUserNamesByIds(Arrays.asList(4, 1, 3)));
+    }
+  }
+
+  @Test
+  public void shouldPadForEachToPowerOfTwo() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      insertUsers(mapper, 5);
+      assertEquals(Arrays.asList("User 1", "User 3", "User 4"), mapper.getUserNamesByPaddedIds(Arrays.asList(4, 1, 3)));
+      assertEquals(Arrays.asList("User 1", "User 2", "User 3", "User 4", "User 5"),
+          mapper.getUserNamesByPaddedIds(Arrays.asList(1, 2, 3, 4, 5)));
+    }
+  }
+
+  private void insertUsers(Mapper mapper, int count) {
+    for (int i = 1; i <= count; i++) {
+      User user = new User();
+      user.setId(i);
+      user.setName("User " + i);
+      mapper.insert(user);
+    }
+  }
 }
@@ -15,12 +15,20 @@
  */
 package org.apache.ibatis.submitted.array_type_handler;
 
+import java.util.List;
+
+import org.apache.ibatis.annotations.Param;
+
 public interface Mapper {
 
   void insert(User user);
 
   int getUserCount();
 
+  List<String> getUserNamesByIds(@Param("ids") List<Integer> ids);
+
+  List<String> getUserNamesByPaddedIds(@Param("ids") List<Integer> ids);
+
   /**
    * HSQL returns NULL when asked for the cardinality of an array column with NULL value :-(
    */
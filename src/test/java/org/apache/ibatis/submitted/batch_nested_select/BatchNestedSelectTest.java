@@ -0,0 +1,97 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_nested_select;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchNestedSelectTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_nested_select/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_nested_select/CreateDB.sql");
+  }
+
+  @BeforeEach
+  void resetCounter() {
+    StatementCounter.COUNT.set(0);
+  }
+
+  @Test
+  void shouldLoadNestedSelectsInBatches() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Order> orders = sqlSession.getMapper(Mapper.class).selectOrders();
+      assertEquals(5, orders.size());
+      // 1 for orders, 1 for both customers and 3 for the lines of 5 orders in batches of 2
+      assertEquals(5, StatementCounter.COUNT.get());
+
+      assertEquals("alice", orders.get(0).getCustomer().getName());
+      assertEquals("bob", orders.get(1).getCustomer().getName());
+      assertEquals("alice", orders.get(2).getCustomer().getName());
+      assertNull(orders.get(3).getCustomer());
+      assertEquals("bob", orders.get(4).getCustomer().getName());
+
+      assertEquals(2, orders.get(0).getLines().size());
+      assertEquals("apple", orders.get(0).getLines().get(0).getProduct());
+      assertEquals("banana", orders.get(0).getLines().get(1).getProduct());
+      assertEquals(1, orders.get(1).getLines().size());
+      assertEquals("cherry", orders.get(1).getLines().get(0).getProduct());
+      assertEquals(1, orders.get(2).getLines().size());
+      assertEquals(0, orders.get(3).getLines().size());
+      assertEquals("elderberry", orders.get(4).getLines().get(0).getProduct());
+    }
+  }
+
+  @Test
+  void shouldLoadLazyNestedSelectsInBatches() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Order> orders = sqlSession.getMapper(Mapper.class).selectLazyOrders();
+      assertEquals(1, StatementCounter.COUNT.get());
+
+      assertEquals(2, orders.get(0).getLines().size());
+      assertEquals(2, StatementCounter.COUNT.get());
+      assertEquals(1, orders.get(1).getLines().size());
+      assertEquals(2, StatementCounter.COUNT.get());
+
+      assertEquals(0, orders.get(3).getLines().size());
+      assertEquals(3, StatementCounter.COUNT.get());
+      assertEquals("date", orders.get(2).getLines().get(0).getProduct());
+      assertEquals(3, StatementCounter.COUNT.get());
+
+      assertEquals("elderberry", orders.get(4).getLines().get(0).getProduct());
+      assertEquals(4, StatementCounter.COUNT.get());
+    }
+  }
+
+}
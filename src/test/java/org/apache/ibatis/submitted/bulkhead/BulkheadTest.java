@@ -0,0 +1,103 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.bulkhead;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.exceptions.BulkheadFullException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Bulkhead;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BulkheadTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/bulkhead/Config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/bulkhead/CreateDB.sql");
+  }
+
+  @Test
+  void shouldRejectStatementsOnceTheBulkheadIsFull() throws Exception {
+    Bulkhead bulkhead = sqlSessionFactory.getConfiguration().getBulkhead("org.apache.ibatis.submitted.bulkhead.ReportMapper");
+    assertEquals(1, bulkhead.getMaxConcurrentCalls());
+    assertEquals(50, bulkhead.getTimeout());
+    try (SqlSession reportSession = sqlSessionFactory.openSession(); SqlSession otherSession = sqlSessionFactory.openSession()) {
+      Cursor<String> cursor = reportSession.getMapper(ReportMapper.class).getNameCursor();
+      assertEquals(1, bulkhead.getActiveCalls());
+
+      ReportMapper otherMapper = otherSession.getMapper(ReportMapper.class);
+      assertThrows(BulkheadFullException.class, otherMapper::getNames);
+      assertThrows(BulkheadFullException.class, () -> otherMapper.rename(1, "hourly"));
+      assertEquals(2, bulkhead.getRejectedCount());
+      // other namespaces are not affected
+      assertEquals(2, otherSession.getMapper(AnnotatedMapper.class).count());
+
+      cursor.close();
+      assertEquals(0, bulkhead.getActiveCalls());
+      assertEquals(Arrays.asList("daily", "weekly"), otherMapper.getNames());
+    }
+    assertEquals(0, bulkhead.getActiveCalls());
+  }
+
+  @Test
+  void shouldReleaseThePermitWhenTheCursorIsConsumed() {
+    Bulkhead bulkhead = sqlSessionFactory.getConfiguration().getBulkhead("org.apache.ibatis.submitted.bulkhead.ReportMapper");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ReportMapper mapper = sqlSession.getMapper(ReportMapper.class);
+      Iterator<String> names = mapper.getNameCursor().iterator();
+      assertEquals("daily", names.next());
+      assertEquals("weekly", names.next());
+      assertEquals(1, bulkhead.getActiveCalls());
+      assertFalse(names.hasNext());
+      assertEquals(0, bulkhead.getActiveCalls());
+      assertEquals(1, mapper.rename(2, "monthly"));
+    }
+    // closing the session does not release the permit twice
+    assertEquals(0, bulkhead.getActiveCalls());
+  }
+
+  @Test
+  void shouldConfigureTheBulkheadOfAnnotatedMappers() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    Bulkhead bulkhead = configuration.getBulkhead("org.apache.ibatis.submitted.bulkhead.AnnotatedMapper");
+    assertEquals(3, bulkhead.getMaxConcurrentCalls());
+    assertEquals(0, bulkhead.getTimeout());
+    assertEquals(bulkhead, configuration.getMappedStatement("org.apache.ibatis.submitted.bulkhead.AnnotatedMapper.count").getBulkhead());
+    // the annotated statement of the XML namespace uses the bulkhead of the XML mapper
+    assertEquals(configuration.getBulkhead("org.apache.ibatis.submitted.bulkhead.ReportMapper"),
+        configuration.getMappedStatement("org.apache.ibatis.submitted.bulkhead.ReportMapper.getNameCursor").getBulkhead());
+  }
+
+}
@@ -0,0 +1,117 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.generated_mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.binding.GeneratedMapper;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class GeneratedMapperTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/generated_mapper/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/generated_mapper/CreateDB.sql");
+  }
+
+  @Test
+  void shouldUseGeneratedImplementation() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      UserMapper mapper = sqlSession.getMapper(UserMapper.class);
+      assertTrue(mapper instanceof GeneratedMapper);
+      assertFalse(Proxy.isProxyClass(mapper.getClass()));
+    }
+  }
+
+  @Test
+  void shouldSelect() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      UserMapper mapper = sqlSession.getMapper(UserMapper.class);
+      assertEquals("User1", mapper.getUser(1).getName());
+      assertEquals("User2", mapper.selectById(2).getName());
+      assertEquals("User1", mapper.getUserByIdAndName(1, "User1").getName());
+      assertNull(mapper.getUserByIdAndName(1, "User2"));
+      assertEquals(2, mapper.countUsers());
+      assertEquals(2, mapper.getIdByName("User2"));
+      assertEquals("User1", mapper.findUser(1).get().getName());
+      assertFalse(mapper.findUser(3).isPresent());
+      Map<Integer, User> users = mapper.getUserMap();
+      assertEquals("User2", users.get(2).getName());
+      List<User> page = mapper.getUsers(new RowBounds(1, 1));
+      assertEquals(1, page.size());
+      assertEquals("User2", page.get(0).getName());
+      assertEquals("User1", mapper.getFirstUser().getName());
+    }
+  }
+
+  @Test
+  void shouldFailOnNullForPrimitiveReturnType() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      UserMapper mapper = sqlSession.getMapper(UserMapper.class);
+      BindingException e = assertThrows(BindingException.class, () -> mapper.getIdByName("User3"));
+      assertEquals("Mapper method 'org.apache.ibatis.submitted.generated_mapper.UserMapper.getIdByName attempted to return null"
+          + " from a method with a primitive return type (int).", e.getMessage());
+    }
+  }
+
+  @Test
+  void shouldDelegateOtherMethodsToProxy() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      UserMapper mapper = sqlSession.getMapper(UserMapper.class);
+      assertEquals("User1", mapper.getUserFromXml(1).getName());
+      assertEquals("User2", mapper.getUserByIdAndNameWithoutParam(2, "User2").getName());
+    }
+  }
+
+  @Test
+  void shouldUpdate() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      UserMapper mapper = sqlSession.getMapper(UserMapper.class);
+      assertEquals(1, mapper.insertUser(new User(3, "User3")));
+      assertTrue(mapper.renameUser(3, "User 3"));
+      assertFalse(mapper.renameUser(4, "User 4"));
+      assertEquals("User 3", mapper.getUser(3).getName());
+      mapper.deleteUser(3);
+      assertNull(mapper.getUser(3));
+      sqlSession.rollback();
+    }
+  }
+
+}
@@ -0,0 +1,74 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.generated_mapper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.MapKey;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.session.RowBounds;
+
+@Mapper
+public interface UserMapper extends BaseMapper<User> {
+
+  @Select("select * from users where id = #{id}")
+  User getUser(Integer id);
+
+  @Select("select * from users where id = #{id} and name = #{name}")
+  User getUserByIdAndName(@Param("id") Integer id, @Param("name") String name);
+
+  @Select("select * from users where id = #{param1} and name = #{name}")
+  User getUserByIdAndNameWithoutParam(Integer id, String name);
+
+  @Select("select * from users order by id")
+  List<User> getUsers(RowBounds rowBounds);
+
+  @Select("select count(*) from users")
+  int countUsers();
+
+  @Select("select id from users where name = #{name}")
+  int getIdByName(String name);
+
+  @Select("select * from users where id = #{id}")
+  Optional<User> findUser(Integer id);
+
+  @MapKey("id")
+  @Select("select * from users")
+  Map<Integer, User> getUserMap();
+
+  @Insert("insert into users values (#{id}, #{name})")
+  int insertUser(User user);
+
+  @Update("update users set name = #{name} where id = #{id}")
+  boolean renameUser(@Param("id") Integer id, @Param("name") String name);
+
+  @Delete("delete from users where id = #{id}")
+  void deleteUser(Integer id);
+
+  User getUserFromXml(Integer id);
+
+  default User getFirstUser() {
+    return getUser(1);
+  }
+
+}
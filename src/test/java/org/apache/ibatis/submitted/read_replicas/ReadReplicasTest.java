@@ -0,0 +1,179 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.read_replicas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.datasource.routing.RoutingDataSource;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ReadReplicasTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private RoutingDataSource dataSource;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/read_replicas/Config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    dataSource = (RoutingDataSource) sqlSessionFactory.getConfiguration().getEnvironment().getDataSource();
+    createNode(dataSource.getPrimary(), "primary");
+    createNode(dataSource.getReplica(0), "r1");
+    createNode(dataSource.getReplica(1), "r2");
+  }
+
+  @AfterEach
+  void tearDown() {
+    ((PooledDataSource) dataSource.getPrimary()).forceCloseAll();
+    for (int i = 0; i < dataSource.getReplicaCount(); i++) {
+      ((PooledDataSource) dataSource.getReplica(i)).forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldReadFromReplicasAndWriteToPrimary() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertTrue(Arrays.asList("r1", "r2").contains(mapper.getNode()));
+      assertEquals(1, mapper.insertNode("inserted"));
+    }
+    assertEquals("inserted", selectName(dataSource.getPrimary(), 2));
+    assertEquals(null, selectName(dataSource.getReplica(0), 2));
+    assertEquals(null, selectName(dataSource.getReplica(1), 2));
+  }
+
+  @Test
+  void shouldSpreadConcurrentSessionsOverReplicas() {
+    try (SqlSession session1 = sqlSessionFactory.openSession(true);
+         SqlSession session2 = sqlSessionFactory.openSession(true)) {
+      Set<String> nodes = new HashSet<>();
+      nodes.add(session1.getMapper(Mapper.class).getNode());
+      nodes.add(session2.getMapper(Mapper.class).getNode());
+      assertEquals(new HashSet<>(Arrays.asList("r1", "r2")), nodes);
+      assertEquals(1, dataSource.getReplicaOutstandingConnections(0));
+      assertEquals(1, dataSource.getReplicaOutstandingConnections(1));
+    }
+    assertEquals(0, dataSource.getReplicaOutstandingConnections(0));
+    assertEquals(0, dataSource.getReplicaOutstandingConnections(1));
+  }
+
+  @Test
+  void shouldReadFromPrimaryWithinTransactionsBeforeAnyWrite() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("primary", mapper.getNode());
+      assertEquals(0, dataSource.getReplicaOutstandingConnections(0) + dataSource.getReplicaOutstandingConnections(1));
+    }
+  }
+
+  @Test
+  void shouldReadOwnWritesUntilTheTransactionEnds() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertNotEquals("primary", mapper.getNodeFromReplica());
+      mapper.insertNode("inserted");
+      assertEquals("primary", mapper.getNodeFromReplica());
+      sqlSession.commit();
+      assertNotEquals("primary", mapper.getNodeFromReplica());
+    }
+  }
+
+  @Test
+  void shouldHonorUseReplicaAttribute() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("primary", mapper.getNodeFromPrimary());
+      assertEquals(1, mapper.refreshOnReplica());
+    }
+    assertEquals("primary", selectName(dataSource.getPrimary(), 1));
+    Set<String> replicaNames = new HashSet<>(Arrays.asList(selectName(dataSource.getReplica(0), 1),
+        selectName(dataSource.getReplica(1), 1)));
+    assertTrue(replicaNames.contains("refreshed"));
+  }
+
+  @Test
+  void shouldEjectFailingReplicas() {
+    DataSource broken = new UnpooledDataSource("org.hsqldb.jdbcDriver", "jdbc:unknown:read_replicas", "sa", null);
+    RoutingDataSource routing = new RoutingDataSource(dataSource.getPrimary(), Arrays.asList(broken, dataSource.getReplica(0)));
+    useDataSource(routing);
+    for (int i = 0; i < 3; i++) {
+      try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+        assertEquals("r1", sqlSession.getMapper(Mapper.class).getNode());
+      }
+    }
+    assertTrue(routing.isReplicaEjected(0));
+    assertFalse(routing.isReplicaEjected(1));
+
+    useDataSource(new RoutingDataSource(dataSource.getPrimary(), Collections.singletonList(broken)));
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      assertEquals("primary", sqlSession.getMapper(Mapper.class).getNode());
+    }
+  }
+
+  private void useDataSource(DataSource dataSource) {
+    sqlSessionFactory.getConfiguration().setEnvironment(new Environment("test", new JdbcTransactionFactory(), dataSource));
+  }
+
+  private void createNode(DataSource target, String name) throws Exception {
+    BaseDataTest.runScript(target, "org/apache/ibatis/submitted/read_replicas/CreateDB.sql");
+    try (Connection conn = target.getConnection();
+         PreparedStatement stmt = conn.prepareStatement("insert into node (id, name) values (1, ?)")) {
+      stmt.setString(1, name);
+      stmt.executeUpdate();
+      if (!conn.getAutoCommit()) {
+        conn.commit();
+      }
+    }
+  }
+
+  private String selectName(DataSource target, int id) throws SQLException {
+    try (Connection conn = target.getConnection();
+         PreparedStatement stmt = conn.prepareStatement("select name from node where id = ?")) {
+      stmt.setInt(1, id);
+      try (ResultSet rs = stmt.executeQuery()) {
+        return rs.next() ? rs.getString(1) : null;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,35 @@
+--
+--    Copyright 2009-2020 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table child if exists;
+drop table parent if exists;
+
+create table parent (
+  id int,
+  name varchar(20)
+);
+
+create table child (
+  id int,
+  parent_id int,
+  name varchar(20)
+);
+
+insert into parent (id, name) values(1, 'p1');
+insert into parent (id, name) values(2, 'p2');
+insert into child (id, parent_id, name) values(1, 1, 'c1');
+insert into child (id, parent_id, name) values(2, 1, 'c2');
+insert into child (id, parent_id, name) values(3, 2, 'c3');
@@ -0,0 +1,117 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.release_connection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.datasource.pooled.PoolState;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ReleaseConnectionTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private PoolState poolState;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/release_connection/Config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    PooledDataSource dataSource = (PooledDataSource) sqlSessionFactory.getConfiguration().getEnvironment().getDataSource();
+    BaseDataTest.runScript(dataSource, "org/apache/ibatis/submitted/release_connection/CreateDB.sql");
+    poolState = dataSource.getPoolState();
+  }
+
+  @AfterEach
+  void tearDown() {
+    ((PooledDataSource) sqlSessionFactory.getConfiguration().getEnvironment().getDataSource()).forceCloseAll();
+  }
+
+  @Test
+  void shouldReleaseTheConnectionAfterEachStatementInAutoCommitSessions() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      // the nested selects use the connection of the outer one
+      List<Parent> parents = mapper.getParents();
+      assertEquals(Arrays.asList("c1", "c2"), parents.get(0).getChildren());
+      assertEquals(Arrays.asList("c3"), parents.get(1).getChildren());
+      assertEquals(0, poolState.getActiveConnectionCount());
+
+      assertEquals(1, mapper.renameParent(2, "renamed"));
+      assertEquals(0, poolState.getActiveConnectionCount());
+      assertEquals("renamed", mapper.getParents().get(1).getName());
+      assertEquals(0, poolState.getActiveConnectionCount());
+    }
+  }
+
+  @Test
+  void shouldReleaseTheConnectionWhenAStatementFails() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThrows(PersistenceException.class, mapper::getMissingNames);
+      assertEquals(0, poolState.getActiveConnectionCount());
+      assertThrows(PersistenceException.class, () -> mapper.renameMissing("renamed"));
+      assertEquals(0, poolState.getActiveConnectionCount());
+    }
+  }
+
+  @Test
+  void shouldKeepTheConnectionOfATransaction() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(false)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(1, mapper.renameParent(1, "uncommitted"));
+      assertEquals(1, poolState.getActiveConnectionCount());
+      assertEquals("uncommitted", mapper.getParents().get(0).getName());
+      sqlSession.rollback();
+      assertEquals("p1", mapper.getParents().get(0).getName());
+      assertEquals(1, poolState.getActiveConnectionCount());
+    }
+    assertEquals(0, poolState.getActiveConnectionCount());
+  }
+
+  @Test
+  void shouldKeepTheConnectionWhileACursorIsOpen() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      try (Cursor<String> cursor = mapper.getAllChildNames()) {
+        Iterator<String> names = cursor.iterator();
+        assertEquals("c1", names.next());
+        assertEquals(Arrays.asList("c3"), mapper.getChildNames(2));
+        assertEquals(1, poolState.getActiveConnectionCount());
+        assertEquals("c2", names.next());
+        assertEquals("c3", names.next());
+      }
+    }
+    assertEquals(0, poolState.getActiveConnectionCount());
+  }
+
+}